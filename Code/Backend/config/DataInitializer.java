@@ -7,12 +7,14 @@ import com.example.lowflightzone.repositories.FlightRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
 import java.util.*;
 
 @Component
+@Order(0) // раньше импорта рейсов из командной строки: ему нужны аэропорты
 @RequiredArgsConstructor
 @Slf4j
 public class DataInitializer implements CommandLineRunner {
@@ -0,0 +1,58 @@
+package com.example.lowflightzone.config;
+
+import com.example.lowflightzone.dto.FlightImportResultDto;
+import com.example.lowflightzone.services.FlightImportService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Импорт рейсов из файлов при запуске:
+ * <pre>
+ * java -jar lowflightzone.jar --import-flights=timetable.csv [--import-flights=extra.ndjson]
+ * </pre>
+ * Формат — по расширению (.csv, .ndjson/.jsonl/.json). Для разовой загрузки без сервера
+ * добавить --spring.main.web-application-type=none: после импорта приложение завершится.
+ */
+@Slf4j
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class FlightImportRunner implements ApplicationRunner {
+
+    private static final String IMPORT_OPTION = "import-flights";
+    private static final int LOGGED_ERRORS = 20;
+
+    private final FlightImportService flightImportService;
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (!args.containsOption(IMPORT_OPTION)) {
+            return;
+        }
+        for (String value : args.getOptionValues(IMPORT_OPTION)) {
+            Path file = Path.of(value);
+            FlightImportService.Format format = FlightImportService.Format.fromFileName(file.getFileName().toString());
+            log.info("📥 Импорт рейсов из {} ({})", file, format);
+
+            FlightImportResultDto result;
+            try (InputStream input = Files.newInputStream(file)) {
+                result = flightImportService.importFlights(input, format);
+            }
+            result.getErrors().stream().limit(LOGGED_ERRORS).forEach(error ->
+                    log.warn("⚠️ {}:{} [{}] {}", file.getFileName(), error.getLine(), error.getFlightNumber(), error.getMessage()));
+            if (result.getFailed() > LOGGED_ERRORS) {
+                log.warn("⚠️ … и ещё ошибок: {}", result.getFailed() - LOGGED_ERRORS);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.lowflightzone.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Реплика для чтения. Включается, только если задан app.datasource.replica.jdbc-url,
+ * иначе остаётся обычный DataSource Spring Boot.
+ * <pre>
+ * spring.datasource.url=jdbc:postgresql://localhost:5432/lowflightzone       # основная БД
+ * app.datasource.replica.jdbc-url=jdbc:postgresql://localhost:5433/lowflightzone
+ * app.datasource.replica.username=...
+ * app.datasource.replica.password=...
+ * app.datasource.replica.maximum-pool-size=20
+ * app.datasource.replica.read-your-writes-window=5s
+ * </pre>
+ * Для локальной проверки достаточно двух экземпляров БД (или двух URL на один экземпляр).
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.replica", name = "jdbc-url")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("app.datasource.replica")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primary,
+                                 @Qualifier("replicaDataSource") DataSource replica,
+                                 @Value("${app.datasource.replica.read-your-writes-window:5s}") Duration window) {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replica, window);
+        routing.afterPropertiesSet();
+        log.info("📚 Чтение read-only транзакций направлено на реплику (read-your-writes окно {})", window);
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+}
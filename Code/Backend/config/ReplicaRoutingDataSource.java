@@ -0,0 +1,94 @@
+package com.example.lowflightzone.config;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Маршрутизация соединений: транзакции {@code @Transactional(readOnly = true)} идут на реплику,
+ * всё остальное — на основную БД.
+ * <p>
+ * Read-your-writes: пользователь, который только что писал, ещё window читает с основной БД,
+ * чтобы не увидеть отстающую реплику. Писателем считается любая не read-only транзакция
+ * аутентифицированного пользователя; учёт в памяти узла.
+ * <p>
+ * Ключ определяется при фактическом получении соединения, поэтому источник нужно оборачивать
+ * в LazyConnectionDataSourceProxy — иначе соединение берётся до того, как известен флаг readOnly.
+ */
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private static final int MAX_TRACKED_WRITERS = 10_000;
+
+    private final long windowNanos;
+    // 🕒 email → момент (nanoTime), до которого чтения идут на основную БД
+    private final Map<String, Long> primaryUntil = new ConcurrentHashMap<>();
+
+    public ReplicaRoutingDataSource(DataSource primary, DataSource replica, Duration readYourWritesWindow) {
+        this.windowNanos = readYourWritesWindow.toNanos();
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        String user = currentUser();
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return user != null && wroteRecently(user) ? Route.PRIMARY : Route.REPLICA;
+        }
+
+        if (user != null && TransactionSynchronizationManager.isActualTransactionActive()) {
+            markWrite(user);
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                // окно отсчитывается и от фиксации: длинная транзакция не съедает его целиком
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCompletion(int status) {
+                        markWrite(user);
+                    }
+                });
+            }
+        }
+        return Route.PRIMARY;
+    }
+
+    private boolean wroteRecently(String user) {
+        Long until = primaryUntil.get(user);
+        if (until == null) {
+            return false;
+        }
+        if (System.nanoTime() - until < 0) {
+            return true;
+        }
+        primaryUntil.remove(user, until);
+        return false;
+    }
+
+    private void markWrite(String user) {
+        if (primaryUntil.size() >= MAX_TRACKED_WRITERS) {
+            long now = System.nanoTime();
+            primaryUntil.values().removeIf(until -> now - until >= 0);
+        }
+        primaryUntil.put(user, System.nanoTime() + windowNanos);
+    }
+
+    /** Email из контекста безопасности — без обращения к БД (мы и есть источник соединений) */
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || "anonymousUser".equals(authentication.getPrincipal())) {
+            return null;
+        }
+        return authentication.getName();
+    }
+}
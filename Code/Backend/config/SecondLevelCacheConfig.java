@@ -0,0 +1,99 @@
+package com.example.lowflightzone.config;
+
+import com.example.lowflightzone.entity.CacheRegions;
+import lombok.extern.slf4j.Slf4j;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.Eh107Configuration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.time.Duration;
+
+/**
+ * Кэш второго уровня Hibernate на локальном JCache (Ehcache 3, только heap).
+ * Регионы создаются здесь с явным размером и TTL, Hibernate получает готовый CacheManager.
+ * <pre>
+ * app.cache.airports-ttl=6h          # справочник аэропортов и терминалов
+ * app.cache.flights-ttl=2m           # рейсы; TTL ограничивает и отставание реплики
+ * app.cache.flights-size=20000
+ * app.cache.statistics=true          # счётчики попаданий/промахов (GET /cache-stats)
+ * </pre>
+ * Зависимости сверх стартеров Spring Boot (версии hibernate-jcache и ehcache управляются BOM Spring Boot):
+ * <pre>
+ * org.hibernate.orm:hibernate-jcache        # RegionFactory для JCache
+ * javax.cache:cache-api                     # JSR-107 API
+ * org.ehcache:ehcache, classifier jakarta   # провайдер JCache; jakarta-сборка — под Jakarta EE / Spring Boot 3
+ * </pre>
+ */
+@Slf4j
+@Configuration
+public class SecondLevelCacheConfig {
+
+    private static final long AIRPORTS_SIZE = 1_000;
+    private static final long TERMINALS_SIZE = 5_000;
+    private static final long REFERENCE_QUERIES_SIZE = 2_000;
+    private static final long FLIGHT_QUERIES_SIZE = 10_000;
+    /** Отметки изменения таблиц: по одной на таблицу, не вытесняются и не истекают */
+    private static final long TIMESTAMPS_SIZE = 1_000;
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(
+            @Value("${app.cache.airports-ttl:6h}") Duration airportsTtl,
+            @Value("${app.cache.flights-ttl:2m}") Duration flightsTtl,
+            @Value("${app.cache.flights-size:20000}") long flightsSize) {
+        CachingProvider provider = Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(provider.getDefaultURI(), getClass().getClassLoader());
+
+        createRegion(cacheManager, CacheRegions.AIRPORTS, AIRPORTS_SIZE, airportsTtl);
+        createRegion(cacheManager, CacheRegions.AIRPORT_TERMINALS, TERMINALS_SIZE, airportsTtl);
+        createRegion(cacheManager, CacheRegions.FLIGHTS, flightsSize, flightsTtl);
+        createRegion(cacheManager, CacheRegions.REFERENCE_QUERIES, REFERENCE_QUERIES_SIZE, airportsTtl);
+        createRegion(cacheManager, CacheRegions.FLIGHT_QUERIES, FLIGHT_QUERIES_SIZE, flightsTtl);
+        createRegion(cacheManager, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                REFERENCE_QUERIES_SIZE, flightsTtl);
+        createRegion(cacheManager, RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+                TIMESTAMPS_SIZE, null);
+
+        log.info("🗄 Кэш второго уровня: аэропорты TTL {}, рейсы TTL {} (до {} шт.)", airportsTtl, flightsTtl, flightsSize);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheProperties(
+            CacheManager hibernateCacheManager,
+            @Value("${app.cache.statistics:true}") boolean statistics) {
+        return properties -> {
+            properties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            properties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            properties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            // все регионы созданы выше; неизвестный регион — ошибка в аннотациях, её видно в логе
+            properties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "create-warn");
+            properties.put(AvailableSettings.GENERATE_STATISTICS, statistics);
+        };
+    }
+
+    private static void createRegion(CacheManager cacheManager, String name, long entries, Duration ttl) {
+        // CacheManager провайдера общий на загрузчик классов: при перезапуске контекста регион уже есть
+        if (cacheManager.getCache(name) != null) {
+            cacheManager.destroyCache(name);
+        }
+        CacheConfigurationBuilder<Object, Object> config = CacheConfigurationBuilder
+                .newCacheConfigurationBuilder(Object.class, Object.class, ResourcePoolsBuilder.heap(entries));
+        if (ttl != null) {
+            config = config.withExpiry(ExpiryPolicyBuilder.timeToLiveExpiration(ttl));
+        }
+        cacheManager.createCache(name, Eh107Configuration.fromEhcacheCacheConfiguration(config));
+    }
+}
@@ -33,6 +33,7 @@ public class SecurityConfig {
                         .requestMatchers(
                                 "/auth/**",
                                 "/health",
+                                "/health/readiness",
                                 "/swagger-ui/**",
                                 "/api-docs/**",
                                 "/api/external/flight/**" // <-- вот это ключевое!
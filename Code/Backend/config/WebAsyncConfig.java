@@ -0,0 +1,34 @@
+package com.example.lowflightzone.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Асинхронные ответы MVC (потоковая выгрузка рейсов): ограниченный пул вместо
+ * SimpleAsyncTaskExecutor с потоком на запрос и таймаут, рассчитанный на большие табло.
+ */
+@Configuration
+public class WebAsyncConfig implements WebMvcConfigurer {
+
+    private static final long STREAM_TIMEOUT_MS = 5 * 60 * 1000L;
+
+    @Bean
+    public ThreadPoolTaskExecutor mvcStreamingExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(4);
+        executor.setMaxPoolSize(16);
+        executor.setQueueCapacity(64);
+        executor.setThreadNamePrefix("flight-stream-");
+        executor.initialize();
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(mvcStreamingExecutor());
+        configurer.setDefaultTimeout(STREAM_TIMEOUT_MS);
+    }
+}
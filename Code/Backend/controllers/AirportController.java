@@ -1,12 +1,20 @@
 package com.example.lowflightzone.controllers;
 
+import com.example.lowflightzone.dto.AirportBoardDto;
 import com.example.lowflightzone.dto.AirportDto;
+import com.example.lowflightzone.dto.ResourceVersion;
+import com.example.lowflightzone.index.AirportBoards;
+import com.example.lowflightzone.services.AirportBoardService;
 import com.example.lowflightzone.services.AirportService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -15,31 +23,73 @@ import java.util.List;
 public class AirportController {
 
     private final AirportService airportService;
+    private final AirportBoardService airportBoardService;
 
     @Autowired
-    public AirportController(AirportService airportService) {
+    public AirportController(AirportService airportService, AirportBoardService airportBoardService) {
         this.airportService = airportService;
+        this.airportBoardService = airportBoardService;
     }
 
     @Operation(summary = "Получить все аэропорты")
     @GetMapping
-    public ResponseEntity<List<AirportDto>> getAllAirports() {
+    public ResponseEntity<List<AirportDto>> getAllAirports(WebRequest request) {
+        ResourceVersion version = airportService.getAirportsVersion();
         List<AirportDto> airports = airportService.getAllAirports();
-        return ResponseEntity.ok(airports);
+        if (isNotModified(version, request)) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(airports);
     }
 
     @Operation(summary = "Получить аэропорт по коду IATA")
     @GetMapping("/{iataCode}")
-    public ResponseEntity<AirportDto> getAirportByCode(@PathVariable String iataCode) {
+    public ResponseEntity<AirportDto> getAirportByCode(@PathVariable String iataCode, WebRequest request) {
+        ResourceVersion version = airportService.getAirportsVersion();
         AirportDto airport = airportService.getAirportByCode(iataCode);
-        return ResponseEntity.ok(airport);
+        if (isNotModified(version, request)) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(airport);
     }
 
     @Operation(summary = "Найти аэропорты по городу")
     @GetMapping("/city/{city}")
-    public ResponseEntity<List<AirportDto>> getAirportsByCity(@PathVariable String city) {
+    public ResponseEntity<List<AirportDto>> getAirportsByCity(@PathVariable String city, WebRequest request) {
+        ResourceVersion version = airportService.getAirportsVersion();
         List<AirportDto> airports = airportService.getAirportsByCity(city);
-        return ResponseEntity.ok(airports);
+        if (isNotModified(version, request)) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(airports);
+    }
+
+    @Operation(summary = "Табло вылетов аэропорта (полный снимок или дельта после since)")
+    @GetMapping("/{iataCode}/departures")
+    public ResponseEntity<AirportBoardDto> getDepartures(
+            @PathVariable String iataCode,
+            @RequestParam(name = "terminal", required = false) String terminal,
+            @RequestParam(name = "from", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "since", required = false) Long since,
+            @RequestParam(name = "epoch", required = false) String epoch) {
+        return ResponseEntity.ok(airportBoardService.getBoard(
+                iataCode, AirportBoards.Direction.DEPARTURES, terminal, from, limit, since, epoch));
+    }
+
+    @Operation(summary = "Табло прилётов аэропорта (полный снимок или дельта после since)")
+    @GetMapping("/{iataCode}/arrivals")
+    public ResponseEntity<AirportBoardDto> getArrivals(
+            @PathVariable String iataCode,
+            @RequestParam(name = "terminal", required = false) String terminal,
+            @RequestParam(name = "from", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "since", required = false) Long since,
+            @RequestParam(name = "epoch", required = false) String epoch) {
+        return ResponseEntity.ok(airportBoardService.getBoard(
+                iataCode, AirportBoards.Direction.ARRIVALS, terminal, from, limit, since, epoch));
     }
 
     @Operation(summary = "Добавить новый аэропорт")
@@ -48,4 +98,13 @@ public class AirportController {
         AirportDto newAirport = airportService.addAirport(airportDto);
         return ResponseEntity.ok(newAirport);
     }
-}
\ No newline at end of file
+
+    /*
+     * 🏷 Условный GET по версии справочника: при совпадении ETag уже отправлен 304.
+     * Версия берётся до чтения, а проверяется после: неизвестный код — 404, а не 304,
+     * и ETag не может оказаться новее отданного тела.
+     */
+    private static boolean isNotModified(ResourceVersion version, WebRequest request) {
+        return version != null && version.isNotModified(request);
+    }
+}
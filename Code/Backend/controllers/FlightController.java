@@ -1,11 +1,30 @@
 package com.example.lowflightzone.controllers;
 
+import com.example.lowflightzone.dto.BulkFlightUpdateRequest;
+import com.example.lowflightzone.dto.BulkFlightUpdateResultDto;
+import com.example.lowflightzone.dto.CursorPage;
 import com.example.lowflightzone.dto.FlightDto;
+import com.example.lowflightzone.dto.FlightFilter;
+import com.example.lowflightzone.dto.FlightImportResultDto;
+import com.example.lowflightzone.dto.ResourceVersion;
+import com.example.lowflightzone.dto.SuggestionDto;
+import com.example.lowflightzone.services.FlightBulkUpdateService;
+import com.example.lowflightzone.services.FlightImportService;
 import com.example.lowflightzone.services.FlightService;
+import com.example.lowflightzone.services.FlightStreamService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.InputStream;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
@@ -13,28 +32,95 @@ import java.util.List;
 public class FlightController {
 
     private final FlightService flightService;
+    private final FlightStreamService flightStreamService;
+    private final FlightImportService flightImportService;
+    private final FlightBulkUpdateService flightBulkUpdateService;
 
     @Autowired
-    public FlightController(FlightService flightService) {
+    public FlightController(FlightService flightService, FlightStreamService flightStreamService,
+                            FlightImportService flightImportService, FlightBulkUpdateService flightBulkUpdateService) {
         this.flightService = flightService;
+        this.flightStreamService = flightStreamService;
+        this.flightImportService = flightImportService;
+        this.flightBulkUpdateService = flightBulkUpdateService;
     }
 
-    // 📌 Получение списка рейсов с фильтрацией
+    // 📌 Получение списка рейсов с фильтрацией (аэропорты, статус, окно вылета, авиакомпания, сортировка)
     @GetMapping
-    public ResponseEntity<List<FlightDto>> getFlights(
+    public ResponseEntity<CursorPage<FlightDto>> getFlights(
             @RequestParam(name = "departure", required = false) final String departureAirport,
             @RequestParam(name = "arrival", required = false) final String arrivalAirport,
-            @RequestParam(name = "status", required = false) final String status
+            @RequestParam(name = "status", required = false) final String status,
+            @RequestParam(name = "airline", required = false) final String airline,
+            @RequestParam(name = "departureFrom", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final LocalDateTime departureFrom,
+            @RequestParam(name = "departureTo", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final LocalDateTime departureTo,
+            @RequestParam(name = "sort", required = false) final String sortBy,
+            @RequestParam(name = "direction", defaultValue = "ASC") final Sort.Direction direction,
+            @RequestParam(name = "cursor", required = false) final String cursor,
+            @RequestParam(name = "limit", required = false) final Integer limit,
+            final WebRequest request
     ) {
-        List<FlightDto> flights = flightService.getFlights(departureAirport, arrivalAirport, status);
-        return ResponseEntity.ok(flights);
+        FlightFilter filter = buildFilter(departureAirport, arrivalAirport, status, airline,
+                departureFrom, departureTo, sortBy, direction);
+
+        // 🏷 Условный GET для запросов к табло: версия проверяется до выборки и сериализации
+        ResourceVersion version = flightService.getFlightsVersion(filter);
+        if (version != null && version.isNotModified(request)) {
+            return null;
+        }
+
+        CursorPage<FlightDto> flights = flightService.getFlights(filter, cursor, limit);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(flights);
+    }
+
+    // 📌 Все рейсы по тем же фильтрам одним потоком NDJSON (без курсора и лимита), gzip по Accept-Encoding
+    @GetMapping(value = "/stream", produces = FlightStreamService.NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamFlights(
+            @RequestParam(name = "departure", required = false) final String departureAirport,
+            @RequestParam(name = "arrival", required = false) final String arrivalAirport,
+            @RequestParam(name = "status", required = false) final String status,
+            @RequestParam(name = "airline", required = false) final String airline,
+            @RequestParam(name = "departureFrom", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final LocalDateTime departureFrom,
+            @RequestParam(name = "departureTo", required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) final LocalDateTime departureTo,
+            @RequestParam(name = "sort", required = false) final String sortBy,
+            @RequestParam(name = "direction", defaultValue = "ASC") final Sort.Direction direction,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) final String acceptEncoding
+    ) {
+        FlightFilter filter = buildFilter(departureAirport, arrivalAirport, status, airline,
+                departureFrom, departureTo, sortBy, direction);
+        boolean gzip = acceptsGzip(acceptEncoding);
+        return streamResponse(flightStreamService.streamFlights(filter, gzip), gzip);
+    }
+
+    // 📌 Пакет рейсов по ID или номерам одним запросом (экран «мои рейсы»), порядок как в запросе
+    @GetMapping("/batch")
+    public ResponseEntity<List<FlightDto>> getFlightsBatch(
+            @RequestParam(name = "ids", required = false) final List<Integer> ids,
+            @RequestParam(name = "numbers", required = false) final List<String> numbers
+    ) {
+        return ResponseEntity.ok(flightService.getFlightsBatch(ids, numbers));
     }
 
     // 📌 Получение рейса по ID
     @GetMapping("/{id}")
-    public ResponseEntity<FlightDto> getFlightById(@PathVariable final Integer id) {
+    public ResponseEntity<FlightDto> getFlightById(@PathVariable final Integer id, final WebRequest request) {
+        // 🏷 Тело и ETag — из одной строки табло; 304, если версия не изменилась (просмотр не пишется)
+        FlightService.VersionedFlight versioned = flightService.getVersionedFlight(id);
+        if (versioned != null) {
+            if (versioned.version().isNotModified(request)) {
+                return null;
+            }
+            flightService.recordView(id);
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(versioned.flight());
+        }
+
+        // до загрузки табло — из БД, без ETag
         FlightDto flight = flightService.getFlightById(id);
-        return ResponseEntity.ok(flight);
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(flight);
     }
 
     // 📌 Получение рейса по номеру
@@ -45,14 +131,36 @@ public class FlightController {
     }
 
     @GetMapping("/search")
-    public ResponseEntity<List<FlightDto>> searchFlights(
+    public ResponseEntity<CursorPage<FlightDto>> searchFlights(
             @RequestParam("query") String query,
-            @RequestParam(name = "userEmail", required = false) String userEmail // 👈 добавляем
+            @RequestParam(name = "userEmail", required = false) String userEmail, // 👈 добавляем
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "limit", required = false) Integer limit
     ) {
-        List<FlightDto> results = flightService.searchFlights(query, userEmail);
+        CursorPage<FlightDto> results = flightService.searchFlights(query, userEmail, cursor, limit);
         return ResponseEntity.ok(results);
     }
 
+    // 📌 Все результаты поиска одним потоком NDJSON в порядке ранжирования
+    @GetMapping(value = "/search/stream", produces = FlightStreamService.NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamSearchFlights(
+            @RequestParam("query") String query,
+            @RequestParam(name = "userEmail", required = false) String userEmail,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        return streamResponse(flightStreamService.streamSearch(query, userEmail, gzip), gzip);
+    }
+
+    // 📌 Подсказки автодополнения по префиксу (номер рейса, IATA, город, аэропорт)
+    @GetMapping("/suggest")
+    public ResponseEntity<List<SuggestionDto>> suggest(
+            @RequestParam("prefix") String prefix,
+            @RequestParam(name = "limit", required = false) Integer limit
+    ) {
+        return ResponseEntity.ok(flightService.suggest(prefix, limit));
+    }
+
     // 📌 Добавление нового рейса
     @PostMapping
     public ResponseEntity<FlightDto> addFlight(@RequestBody final FlightDto flightDto) {
@@ -60,6 +168,22 @@ public class FlightController {
         return ResponseEntity.status(HttpStatus.CREATED).body(newFlight);
     }
 
+    // 📌 Массовый импорт рейсов потоком: CSV с заголовком или NDJSON; отчёт с ошибками по строкам
+    @PostMapping(value = "/import", consumes = {"text/csv", FlightStreamService.NDJSON})
+    public ResponseEntity<FlightImportResultDto> importFlights(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) final String contentType,
+            final InputStream body
+    ) {
+        FlightImportService.Format format = FlightImportService.Format.fromContentType(contentType);
+        return ResponseEntity.ok(flightImportService.importFlights(body, format));
+    }
+
+    // 📌 Массовое изменение статуса / задержки рейсов по условию; подписчики уведомляются в фоне
+    @PostMapping("/bulk-update")
+    public ResponseEntity<BulkFlightUpdateResultDto> bulkUpdate(@RequestBody final BulkFlightUpdateRequest request) {
+        return ResponseEntity.ok(flightBulkUpdateService.bulkUpdate(request));
+    }
+
     // 📌 Удаление рейса по ID
     @DeleteMapping("/{id}")
     public ResponseEntity<String> deleteFlight(@PathVariable final Integer id) {
@@ -82,4 +206,33 @@ public class FlightController {
         FlightDto updatedFlight = flightService.patchFlight(id, flightDto);
         return ResponseEntity.ok(updatedFlight);
     }
+
+    private FlightFilter buildFilter(String departureAirport, String arrivalAirport, String status, String airline,
+                                     LocalDateTime departureFrom, LocalDateTime departureTo,
+                                     String sortBy, Sort.Direction direction) {
+        FlightFilter filter = new FlightFilter();
+        filter.setDepartureAirport(departureAirport);
+        filter.setArrivalAirport(arrivalAirport);
+        filter.setStatus(status);
+        filter.setAirline(airline);
+        filter.setDepartureFrom(departureFrom);
+        filter.setDepartureTo(departureTo);
+        filter.setSortBy(sortBy);
+        filter.setSortDirection(direction);
+        return filter;
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    }
+
+    private static ResponseEntity<StreamingResponseBody> streamResponse(StreamingResponseBody body, boolean gzip) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(FlightStreamService.NDJSON))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
 }
@@ -1,5 +1,6 @@
 package com.example.lowflightzone.controllers;
 
+import com.example.lowflightzone.dto.CursorPage;
 import com.example.lowflightzone.dto.FlightSubscriptionDto;
 import com.example.lowflightzone.dto.SubscriptionRequest;
 import com.example.lowflightzone.services.FlightSubscriptionService;
@@ -9,8 +10,6 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/subscriptions")
@@ -52,17 +51,21 @@ public class FlightSubscriptionController {
 
     @Operation(summary = "Получить подписки пользователя")
     @GetMapping("/user/{userEmail}")
-    public ResponseEntity<List<FlightSubscriptionDto>> getUserSubscriptions(
-            @PathVariable String userEmail
+    public ResponseEntity<CursorPage<FlightSubscriptionDto>> getUserSubscriptions(
+            @PathVariable String userEmail,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit
     ) {
-        return ResponseEntity.ok(subscriptionService.getUserSubscriptions(userEmail));
+        return ResponseEntity.ok(subscriptionService.getUserSubscriptions(userEmail, cursor, limit));
     }
 
     @Operation(summary = "Получить подписки на конкретный рейс")
     @GetMapping("/flight/{flightNumber}")
-    public ResponseEntity<List<FlightSubscriptionDto>> getSubscriptionsForFlight(
-            @PathVariable String flightNumber
+    public ResponseEntity<CursorPage<FlightSubscriptionDto>> getSubscriptionsForFlight(
+            @PathVariable String flightNumber,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit
     ) {
-        return ResponseEntity.ok(subscriptionService.getSubscriptionsForFlight(flightNumber));
+        return ResponseEntity.ok(subscriptionService.getSubscriptionsForFlight(flightNumber, cursor, limit));
     }
 }
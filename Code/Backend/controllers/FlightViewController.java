@@ -1,5 +1,6 @@
 package com.example.lowflightzone.controllers;
 
+import com.example.lowflightzone.dto.CursorPage;
 import com.example.lowflightzone.dto.FlightViewHistoryDto;
 import com.example.lowflightzone.services.FlightViewHistoryService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -58,8 +59,10 @@ public class FlightViewController {
 
     @Operation(summary = "Получить историю просмотров текущего пользователя")
     @GetMapping("/my")
-    public ResponseEntity<List<FlightViewHistoryDto>> getMyViewHistory() {
-        List<FlightViewHistoryDto> history = viewHistoryService.getCurrentUserViewHistory();
+    public ResponseEntity<CursorPage<FlightViewHistoryDto>> getMyViewHistory(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        CursorPage<FlightViewHistoryDto> history = viewHistoryService.getCurrentUserViewHistory(cursor, limit);
         return ResponseEntity.ok(history);
     }
 
@@ -1,9 +1,15 @@
 package com.example.lowflightzone.controllers;
 
 import com.example.lowflightzone.dao.FlightDao;
+import com.example.lowflightzone.dto.CacheStatsDto;
+import com.example.lowflightzone.services.EntityCacheService;
+import com.example.lowflightzone.services.StartupWarmup;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @RestController
@@ -11,16 +17,33 @@ import java.util.Map;
 public class HealthController {
 
     private final FlightDao flightDao;
+    private final EntityCacheService entityCache;
+    private final StartupWarmup warmup;
 
     @GetMapping("/health")
     public Map<String, String> health() {
         return Map.of(
                 "status", "OK",
                 "service", "LowFlightZone API",
+                "warmup", warmup.getPhase().name(),
                 "timestamp", java.time.LocalDateTime.now().toString()
         );
     }
 
+    // 🚦 Готовность для балансировщика: 503, пока идёт прогрев (пересчёт рейсов, табло, индексы).
+    // Эндпоинт открыт без авторизации — только фаза, текст ошибок прогрева остаётся в логе
+    @GetMapping("/health/readiness")
+    public ResponseEntity<Map<String, Object>> readiness() {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", warmup.isReady() ? "READY" : "NOT_READY");
+        body.put("phase", warmup.getPhase());
+        body.put("startedAt", warmup.getStartedAt().toString());
+        if (warmup.getReadyAt() != null) {
+            body.put("readyAt", warmup.getReadyAt().toString());
+        }
+        return ResponseEntity.status(warmup.isReady() ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(body);
+    }
+
     @GetMapping("/db-status")
     public Map<String, Object> dbStatus() {
         long flightCount = flightDao.findAll().size();
@@ -30,4 +53,10 @@ public class HealthController {
                 "status", flightCount > 0 ? "READY" : "EMPTY"
         );
     }
-}
\ No newline at end of file
+
+    // 📊 Попадания/промахи кэша второго уровня по регионам
+    @GetMapping("/cache-stats")
+    public CacheStatsDto cacheStats() {
+        return entityCache.getStatistics();
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.lowflightzone.controllers;
 
+import com.example.lowflightzone.dto.CursorPage;
 import com.example.lowflightzone.dto.UserDto;
 import com.example.lowflightzone.dto.WebPushSubscriptionDto;
 import com.example.lowflightzone.security.SecurityUtils;
@@ -10,7 +11,6 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import java.util.List;
 
 @RestController
 @RequestMapping("/api/users")
@@ -30,8 +30,10 @@ public class UserController {
 
     @Operation(summary = "Получить всех пользователей")
     @GetMapping
-    public ResponseEntity<List<UserDto>> getAllUsers() {
-        List<UserDto> users = userService.getAllUsers();
+    public ResponseEntity<CursorPage<UserDto>> getAllUsers(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        CursorPage<UserDto> users = userService.getAllUsers(cursor, limit);
         return ResponseEntity.ok(users);
     }
 
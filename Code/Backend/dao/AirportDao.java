@@ -33,6 +33,11 @@ public class AirportDao {
         return airportRepository.save(airport);
     }
 
+    /** Ссылка на аэропорт по коду без SELECT (существование проверяет вызывающий) */
+    public Airport getReference(String iataCode) {
+        return airportRepository.getReferenceById(iataCode);
+    }
+
     public boolean existsByIataCode(String iataCode) {
         return airportRepository.existsByIataCode(iataCode);
     }
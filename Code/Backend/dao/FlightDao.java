@@ -2,17 +2,42 @@ package com.example.lowflightzone.dao;
 
 import com.example.lowflightzone.entity.Flight;
 import com.example.lowflightzone.repositories.FlightRepository;
+import com.example.lowflightzone.repositories.projections.FlightRow;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.Parameter;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
 import jakarta.transaction.Transactional;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
 import org.springframework.stereotype.Repository;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
 public class FlightDao {
 
     private final FlightRepository flightRepository;
 
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Autowired
     public FlightDao(FlightRepository flightRepository) {
         this.flightRepository = flightRepository;
@@ -26,10 +51,140 @@ public class FlightDao {
         return flightRepository.findAll();
     }
 
+    /**
+     * Одна keyset-страница проекцией: до limit строк по спецификации в заданном порядке,
+     * без count-запроса и без загрузки сущностей.
+     */
+    public List<FlightRow> findRowSlice(Specification<Flight> specification, Sort sort, int limit) {
+        return entityManager.createQuery(rowQuery(specification, sort))
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * То же, что findRowSlice, но с блокировкой выбранных строк (SELECT … FOR UPDATE) до конца
+     * транзакции: для read-modify-write, где новые значения считаются из прочитанных.
+     * Вызывать внутри транзакции.
+     */
+    public List<FlightRow> findRowSliceForUpdate(Specification<Flight> specification, Sort sort, int limit) {
+        return entityManager.createQuery(rowQuery(specification, sort))
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    /**
+     * Потоковое чтение проекцией: строки идут из курсора БД порциями по fetchSize,
+     * а не загружаются списком. Вызывать внутри транзакции и закрывать поток.
+     * Размер порции — подсказка Hibernate (org.hibernate.fetchSize): в стандарте JPA такой нет;
+     * драйвер MySQL учитывает её только с useCursorFetch=true.
+     */
+    public Stream<FlightRow> streamRows(Specification<Flight> specification, Sort sort, int fetchSize) {
+        return entityManager.createQuery(rowQuery(specification, sort))
+                .setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize)
+                .getResultStream();
+    }
+
+    /** Строки рейсов по id одним IN-запросом (порядок не гарантирован, отсутствующие пропускаются) */
+    public List<FlightRow> findRowsByIds(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return entityManager.createQuery(rowQuery((root, query, cb) -> root.get("id").in(ids), Sort.unsorted()))
+                .getResultList();
+    }
+
+    /** Строки рейсов по номерам одним IN-запросом (порядок не гарантирован, отсутствующие пропускаются) */
+    public List<FlightRow> findRowsByFlightNumbers(Collection<String> flightNumbers) {
+        if (flightNumbers.isEmpty()) {
+            return List.of();
+        }
+        return entityManager.createQuery(rowQuery(
+                        (root, query, cb) -> root.get("flightNumber").in(flightNumbers), Sort.unsorted()))
+                .getResultList();
+    }
+
+    /**
+     * id рейсов по условию HQL над псевдонимом f (в порядке id) с блокировкой строк до конца транзакции.
+     * Из parameters связываются только объявленные в запросе.
+     */
+    public List<Integer> lockIdsWhere(String where, Map<String, ?> parameters) {
+        TypedQuery<Integer> query = entityManager.createQuery(
+                "select f.id from Flight f where " + where + " order by f.id", Integer.class);
+        bind(query, parameters);
+        return query.setLockMode(LockModeType.PESSIMISTIC_WRITE).getResultList();
+    }
+
+    /**
+     * Массовый HQL UPDATE рейсов (set и where — над псевдонимом f): один оператор на множество строк,
+     * без загрузки сущностей. Hibernate сам вытесняет регион рейсов из кэша второго уровня. Вызывать в транзакции.
+     */
+    public int updateWhere(String set, String where, Map<String, ?> parameters) {
+        Query query = entityManager.createQuery("update Flight f set " + set + " where " + where);
+        bind(query, parameters);
+        return query.executeUpdate();
+    }
+
+    private static void bind(Query query, Map<String, ?> parameters) {
+        for (Parameter<?> parameter : query.getParameters()) {
+            query.setParameter(parameter.getName(), parameters.get(parameter.getName()));
+        }
+    }
+
+    private CriteriaQuery<FlightRow> rowQuery(Specification<Flight> specification, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<FlightRow> query = cb.createQuery(FlightRow.class);
+        Root<Flight> root = query.from(Flight.class);
+        query.select(FlightRow.selection(root, cb));
+        Predicate predicate = specification.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        if (sort.isSorted()) {
+            query.orderBy(orders(sort, root, cb));
+        }
+        return query;
+    }
+
+    /**
+     * ORDER BY по Sort. NULLS LAST в JPA Criteria нет, а умолчание у СУБД разное — для таких полей
+     * переносимо сортируем сначала по признаку null (как Comparator.nullsLast у табло).
+     */
+    private static List<Order> orders(Sort sort, Root<Flight> root, CriteriaBuilder cb) {
+        List<Order> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            if (order.getNullHandling() == Sort.NullHandling.NULLS_LAST) {
+                orders.add(cb.asc(cb.selectCase()
+                        .when(cb.isNull(root.get(order.getProperty())), 1)
+                        .otherwise(0)));
+            }
+            orders.addAll(QueryUtils.toOrders(Sort.by(order), root, cb));
+        }
+        return orders;
+    }
+
     public Optional<Flight> findById(Integer id) {
         return flightRepository.findById(id);
     }
 
+    public List<Flight> findAllByFlightNumbers(Collection<String> flightNumbers) {
+        if (flightNumbers.isEmpty()) {
+            return List.of();
+        }
+        return flightRepository.findByFlightNumberIn(flightNumbers);
+    }
+
+    public List<String> findAllFlightNumbers() {
+        return flightRepository.findAllFlightNumbers();
+    }
+
+    /** До limit номеров рейсов, начинающихся с prefix (без учёта регистра), по алфавиту */
+    public List<String> findFlightNumbersByPrefix(String prefix, int limit) {
+        String pattern = prefix.toLowerCase(Locale.ROOT)
+                .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return flightRepository.findFlightNumbersByPrefix(pattern, PageRequest.of(0, limit));
+    }
+
     public Optional<Flight> findByFlightNumber(String flightNumber) {
         return flightRepository.findByFlightNumber(flightNumber);
     }
@@ -2,15 +2,25 @@ package com.example.lowflightzone.dao;
 
 import com.example.lowflightzone.entity.FlightSubscription;
 import com.example.lowflightzone.repositories.FlightSubscriptionRepository;
+import com.example.lowflightzone.repositories.projections.PushTargetRow;
+import com.example.lowflightzone.repositories.projections.SubscriptionRow;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Repository
 public class FlightSubscriptionDao {
 
+    // Ограничение на размер IN-списка в одном запросе
+    private static final int COUNT_BATCH_SIZE = 1000;
+
     private final FlightSubscriptionRepository subscriptionRepository;
 
     @Autowired
@@ -18,8 +28,8 @@ public class FlightSubscriptionDao {
         this.subscriptionRepository = subscriptionRepository;
     }
 
-    public List<FlightSubscription> findActiveByUserId(Integer userId) {
-        return subscriptionRepository.findActiveSubscriptionsByUserId(userId);
+    public List<SubscriptionRow> findActiveRowsByUserId(Integer userId) {
+        return subscriptionRepository.findActiveRowsByUserId(userId);
     }
 
     public List<FlightSubscription> findAll() {
@@ -48,6 +58,24 @@ public class FlightSubscriptionDao {
         );
     }
 
+    public List<SubscriptionRow> findActivePageByUserEmail(String userEmail, Integer afterId, int limit) {
+        return subscriptionRepository.findPageByUserEmailAndStatus(
+                userEmail,
+                FlightSubscription.SubscriptionStatus.ACTIVE,
+                afterId != null ? afterId : 0,
+                PageRequest.of(0, limit)
+        );
+    }
+
+    public List<SubscriptionRow> findActivePageByFlightNumber(String flightNumber, Integer afterId, int limit) {
+        return subscriptionRepository.findPageByFlightNumberAndStatus(
+                flightNumber,
+                FlightSubscription.SubscriptionStatus.ACTIVE,
+                afterId != null ? afterId : 0,
+                PageRequest.of(0, limit)
+        );
+    }
+
     public boolean existsByFlightAndUser(String flightNumber, String userEmail) {
         return subscriptionRepository.existsByFlight_FlightNumberAndUser_Email(flightNumber, userEmail);
     }
@@ -69,4 +97,81 @@ public class FlightSubscriptionDao {
         );
     }
 
+    /** id рейсов с активной подпиской; email ожидается в нижнем регистре */
+    public List<Integer> findActiveFlightIdsByUserEmail(String userEmail) {
+        return subscriptionRepository.findFlightIdsByUserEmailAndStatus(
+                userEmail, FlightSubscription.SubscriptionStatus.ACTIVE);
+    }
+
+    public int countActiveByFlightId(Integer flightId) {
+        return (int) subscriptionRepository.countByFlight_IdAndStatus(
+                flightId, FlightSubscription.SubscriptionStatus.ACTIVE);
+    }
+
+    public int countActiveByUserId(Integer userId) {
+        return (int) subscriptionRepository.countByUser_IdAndStatus(
+                userId, FlightSubscription.SubscriptionStatus.ACTIVE);
+    }
+
+    /** flightId → число активных подписок; рейсов без подписок в карте нет */
+    public Map<Integer, Integer> countActiveByFlightIds(Collection<Integer> flightIds) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (List<Integer> chunk : chunks(flightIds)) {
+            putCounts(counts, subscriptionRepository.countGroupedByFlight(
+                    chunk, FlightSubscription.SubscriptionStatus.ACTIVE));
+        }
+        return counts;
+    }
+
+    /** Адресаты push активных подписок на рейсы пачки */
+    public List<PushTargetRow> findActivePushTargets(Collection<Integer> flightIds) {
+        List<PushTargetRow> targets = new ArrayList<>();
+        for (List<Integer> chunk : chunks(flightIds)) {
+            targets.addAll(subscriptionRepository.findPushTargets(
+                    chunk, FlightSubscription.SubscriptionStatus.ACTIVE));
+        }
+        return targets;
+    }
+
+    /** flightId → число активных подписок по всем рейсам */
+    public Map<Integer, Integer> countActiveForAllFlights() {
+        Map<Integer, Integer> counts = new HashMap<>();
+        putCounts(counts, subscriptionRepository.countGroupedByFlight(FlightSubscription.SubscriptionStatus.ACTIVE));
+        return counts;
+    }
+
+    /** userId → число активных подписок; пользователей без подписок в карте нет */
+    public Map<Integer, Integer> countActiveByUserIds(Collection<Integer> userIds) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (List<Integer> chunk : chunks(userIds)) {
+            putCounts(counts, subscriptionRepository.countGroupedByUser(
+                    chunk, FlightSubscription.SubscriptionStatus.ACTIVE));
+        }
+        return counts;
+    }
+
+    private static void putCounts(Map<Integer, Integer> counts, List<Object[]> rows) {
+        for (Object[] row : rows) {
+            counts.put((Integer) row[0], ((Number) row[1]).intValue());
+        }
+    }
+
+    private static List<List<Integer>> chunks(Collection<Integer> ids) {
+        List<List<Integer>> chunks = new ArrayList<>();
+        List<Integer> current = new ArrayList<>(Math.min(ids.size(), COUNT_BATCH_SIZE));
+        for (Integer id : ids) {
+            if (id == null) {
+                continue;
+            }
+            current.add(id);
+            if (current.size() == COUNT_BATCH_SIZE) {
+                chunks.add(current);
+                current = new ArrayList<>(COUNT_BATCH_SIZE);
+            }
+        }
+        if (!current.isEmpty()) {
+            chunks.add(current);
+        }
+        return chunks;
+    }
 }
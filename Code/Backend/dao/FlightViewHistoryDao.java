@@ -2,9 +2,11 @@ package com.example.lowflightzone.dao;
 
 import com.example.lowflightzone.entity.FlightViewHistory;
 import com.example.lowflightzone.repositories.FlightViewHistoryRepository;
+import com.example.lowflightzone.repositories.projections.ViewHistoryRow;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -26,10 +28,9 @@ public class FlightViewHistoryDao {
         return viewHistoryRepository.findByUserIdAndFlightId(userId, flightId);
     }
 
-    public List<FlightViewHistory> getRecentViewsByUserId(Integer userId, int limit) {
-        return viewHistoryRepository
-                .findByUser_IdOrderByViewedAtDesc(userId, PageRequest.of(0, limit))
-                .getContent();
+    /** Последние просмотры проекцией, без count-запроса */
+    public List<ViewHistoryRow> getRecentViewsByUserId(Integer userId, int limit) {
+        return viewHistoryRepository.findFirstPageByUserId(userId, PageRequest.of(0, limit));
     }
 
     public List<FlightViewHistory> getMostViewedByUserId(Integer userId, int limit) {
@@ -42,6 +43,15 @@ public class FlightViewHistoryDao {
         return viewHistoryRepository.findByUserIdOrderByViewedAtDesc(userId);
     }
 
+    /** Keyset-страница истории: afterViewedAt/afterId == null — первая страница */
+    public List<ViewHistoryRow> getUserViewHistoryPage(Integer userId, LocalDateTime afterViewedAt,
+                                                       Integer afterId, int limit) {
+        if (afterViewedAt == null) {
+            return viewHistoryRepository.findFirstPageByUserId(userId, PageRequest.of(0, limit));
+        }
+        return viewHistoryRepository.findPageByUserIdAfter(userId, afterViewedAt, afterId, PageRequest.of(0, limit));
+    }
+
     public boolean existsByUserIdAndFlightId(Integer userId, Integer flightId) {
         return viewHistoryRepository.existsByUserIdAndFlightId(userId, flightId);
     }
@@ -3,6 +3,7 @@ package com.example.lowflightzone.dao;
 import com.example.lowflightzone.entity.User;
 import com.example.lowflightzone.repositories.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 import java.util.Optional;
@@ -21,6 +22,10 @@ public class UserDao {
         return userRepository.findAll();
     }
 
+    public List<User> findPage(Integer afterId, int limit) {
+        return userRepository.findByIdGreaterThanOrderByIdAsc(afterId != null ? afterId : 0, PageRequest.of(0, limit));
+    }
+
     public Optional<User> findById(Integer id) {
         return userRepository.findById(id);
     }
@@ -0,0 +1,27 @@
+package com.example.lowflightzone.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Табло вылетов/прилётов аэропорта.
+ * full == true — полный снимок (flights в порядке времени); иначе дельта после since:
+ * flights — новые/изменённые рейсы, removedFlightIds — рейсы, которые надо убрать с экрана.
+ * Следующий запрос передаёт epoch и version из ответа как epoch и since.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Getter
+@Setter
+public class AirportBoardDto {
+    private String iataCode;
+    private String direction;
+    private String terminal;
+    private String epoch;
+    private Long version;
+    private boolean full;
+    private List<FlightDto> flights;
+    private List<Integer> removedFlightIds;
+}
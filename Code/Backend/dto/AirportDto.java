@@ -1,19 +1,25 @@
 package com.example.lowflightzone.dto;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
-import lombok.Getter;
-import lombok.Setter;
+import lombok.Builder;
+import lombok.Value;
+import lombok.extern.jackson.Jacksonized;
 
+/**
+ * Неизменяемый: один экземпляр из AirportRegistry переиспользуется всеми рейсами и ответами.
+ * Из JSON собирается через builder (@Jacksonized).
+ */
 @JsonInclude(JsonInclude.Include.NON_NULL)
-@Getter
-@Setter
+@Value
+@Builder
+@Jacksonized
 public class AirportDto {
-    private String iataCode;
-    private String name;
-    private String city;
-    private String country;
-    private Double latitude;
-    private Double longitude;
-    private String timezone;
-    private Integer altitude;
+    String iataCode;
+    String name;
+    String city;
+    String country;
+    Double latitude;
+    Double longitude;
+    String timezone;
+    Integer altitude;
 }
@@ -0,0 +1,32 @@
+package com.example.lowflightzone.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Массовое изменение рейсов (POST /flights/bulk-update).
+ * Отбор: flightIds и/или фильтр (аэропорты, авиакомпания, текущий статус, окно вылета;
+ * withinHours — окно от текущего момента). Нужен хотя бы один критерий отбора.
+ * Изменение: новый status и/или задержка — абсолютная delayMinutes или прибавка addDelayMinutes.
+ * Пример «все вылеты из SVO в ближайшие 3 часа: DELAYED +60»:
+ * {"departureAirport": "SVO", "withinHours": 3, "status": "DELAYED", "addDelayMinutes": 60}
+ */
+@Getter
+@Setter
+public class BulkFlightUpdateRequest {
+    private List<Integer> flightIds;
+    private String departureAirport;
+    private String arrivalAirport;
+    private String airline;
+    private String currentStatus;
+    private LocalDateTime departureFrom;
+    private LocalDateTime departureTo;
+    private Integer withinHours;
+
+    private String status;
+    private Integer delayMinutes;
+    private Integer addDelayMinutes;
+}
@@ -0,0 +1,19 @@
+package com.example.lowflightzone.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Итог массового изменения: matched — рейсов под условием, updated — реально изменённых
+ * (остальные уже имели нужные значения).
+ */
+@Getter
+@Setter
+public class BulkFlightUpdateResultDto {
+    private int matched;
+    private int updated;
+    private List<Integer> updatedFlightIds;
+    private long durationMs;
+}
@@ -0,0 +1,34 @@
+package com.example.lowflightzone.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Счётчики кэша второго уровня с момента старта.
+ * size == null — провайдер не сообщает число элементов.
+ */
+@Getter
+@Setter
+public class CacheStatsDto {
+    private boolean statisticsEnabled;
+    private long secondLevelHits;
+    private long secondLevelMisses;
+    private long secondLevelPuts;
+    private long queryCacheHits;
+    private long queryCacheMisses;
+    private long queryCachePuts;
+    private List<RegionStats> regions;
+
+    @Getter
+    @Setter
+    public static class RegionStats {
+        private String region;
+        private long hits;
+        private long misses;
+        private long puts;
+        private Long size;
+        private double hitRatio;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.lowflightzone.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Страница списка с курсором на следующую страницу (nextCursor == null — страниц больше нет).
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Getter
+public class CursorPage<T> {
+
+    private final List<T> items;
+    private final String nextCursor;
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Собрать страницу из выборки размером до limit + 1:
+     * лишняя строка только сигнализирует, что есть продолжение.
+     * Если mapper вернул null (строка исчезла между выборками), строка пропускается.
+     */
+    public static <E, T> CursorPage<T> of(List<E> rows, int limit,
+                                          Function<E, T> mapper,
+                                          Function<E, PageCursor> cursorOf) {
+        boolean hasMore = rows.size() > limit;
+        int size = hasMore ? limit : rows.size();
+
+        List<T> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            T item = mapper.apply(rows.get(i));
+            if (item != null) {
+                items.add(item);
+            }
+        }
+
+        String nextCursor = hasMore ? cursorOf.apply(rows.get(size - 1)).encode() : null;
+        return new CursorPage<>(items, nextCursor);
+    }
+}
@@ -33,4 +33,40 @@ public class FlightDto {
 
     private int subscriptionCount;
     private boolean subscribed;
+
+    /** Копия с другим счётчиком подписок: опубликованные строки табло не меняются на месте */
+    public FlightDto withSubscriptionCount(int subscriptionCount) {
+        FlightDto copy = copy();
+        copy.subscriptionCount = subscriptionCount;
+        return copy;
+    }
+
+    /**
+     * Копия для ответа: строки табло и индексов общие для всех читателей, а ответ потом дополняют
+     * (subscribed и т.п.) — наружу отдаём копию. AirportDto неизменяемый и копируется ссылкой.
+     */
+    public FlightDto copy() {
+        FlightDto copy = new FlightDto();
+        copy.id = id;
+        copy.flightNumber = flightNumber;
+        copy.airline = airline;
+        copy.departureAirport = departureAirport;
+        copy.arrivalAirport = arrivalAirport;
+        copy.scheduledDeparture = scheduledDeparture;
+        copy.scheduledArrival = scheduledArrival;
+        copy.estimatedDeparture = estimatedDeparture;
+        copy.estimatedArrival = estimatedArrival;
+        copy.actualDeparture = actualDeparture;
+        copy.actualArrival = actualArrival;
+        copy.delayMinutes = delayMinutes;
+        copy.terminal = terminal;
+        copy.gate = gate;
+        copy.status = status;
+        copy.lastUpdated = lastUpdated;
+        copy.viewCount = viewCount;
+        copy.viewedAt = viewedAt;
+        copy.subscriptionCount = subscriptionCount;
+        copy.subscribed = subscribed;
+        return copy;
+    }
 }
@@ -0,0 +1,29 @@
+package com.example.lowflightzone.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.data.domain.Sort;
+
+import java.time.LocalDateTime;
+
+/**
+ * Параметры фильтрации списка рейсов (GET /flights).
+ */
+@Getter
+@Setter
+public class FlightFilter {
+    private String departureAirport;
+    private String arrivalAirport;
+    private String status;
+    private String airline;
+    private LocalDateTime departureFrom;
+    private LocalDateTime departureTo;
+    private String sortBy;
+    private Sort.Direction sortDirection = Sort.Direction.ASC;
+
+    /** Фильтр покрывается in-memory табло (только аэропорты и статус, порядок по времени вылета) */
+    public boolean isBoardQuery() {
+        return airline == null && departureFrom == null && departureTo == null
+                && sortBy == null && sortDirection == Sort.Direction.ASC;
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.lowflightzone.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Итог импорта рейсов: счётчики, скорость и ошибки по строкам
+ * (line — номер строки входного файла, считая заголовок CSV).
+ * errors ограничен; errorsTruncated == true — ошибок было больше.
+ */
+@Getter
+@Setter
+public class FlightImportResultDto {
+    private String format;
+    private int totalRows;
+    private int imported;
+    private int failed;
+    private long durationMs;
+    private long rowsPerSecond;
+    private boolean errorsTruncated;
+    private List<RowError> errors = new ArrayList<>();
+
+    @Getter
+    @Setter
+    public static class RowError {
+        private long line;
+        private String flightNumber;
+        private String message;
+
+        public RowError(long line, String flightNumber, String message) {
+            this.line = line;
+            this.flightNumber = flightNumber;
+            this.message = message;
+        }
+    }
+}
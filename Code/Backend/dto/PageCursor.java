@@ -0,0 +1,77 @@
+package com.example.lowflightzone.dto;
+
+import com.example.lowflightzone.exceptions.ValidationException;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Непрозрачный курсор keyset-пагинации: значение ключа сортировки + id последней строки страницы.
+ * Клиент получает его строкой (base64url) и передаёт обратно без изменений.
+ * Ключ может быть null (nullable-колонка сортировки): в строке он помечен явно, а не пустой строкой.
+ */
+@Getter
+public class PageCursor {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 500;
+
+    private static final char SEPARATOR = '|';
+    /** Первый символ ключа в строке курсора: значение или null */
+    private static final char VALUE_MARKER = '+';
+    private static final char NULL_MARKER = '-';
+
+    /** null — у последней строки страницы ключ сортировки не задан */
+    private final String key;
+    private final Integer id;
+
+    public PageCursor(String key, Integer id) {
+        this.key = key;
+        this.id = id;
+    }
+
+    public static PageCursor of(Object key, Integer id) {
+        return new PageCursor(key != null ? key.toString() : null, id);
+    }
+
+    public String encode() {
+        String raw = (key != null ? VALUE_MARKER + key : String.valueOf(NULL_MARKER)) + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** null/пустая строка — первая страница */
+    public static PageCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            return new PageCursor(decodeKey(raw.substring(0, separator)), Integer.valueOf(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new ValidationException("Некорректный курсор страницы");
+        }
+    }
+
+    private static String decodeKey(String raw) {
+        if (raw.equals(String.valueOf(NULL_MARKER))) {
+            return null;
+        }
+        if (!raw.isEmpty() && raw.charAt(0) == VALUE_MARKER) {
+            return raw.substring(1);
+        }
+        // курсор, выданный до появления маркеров: null записывался пустой строкой
+        return raw.isEmpty() ? null : raw;
+    }
+
+    public static int normalizeLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit < 1) {
+            throw new ValidationException("limit должен быть больше 0");
+        }
+        return Math.min(limit, MAX_LIMIT);
+    }
+}
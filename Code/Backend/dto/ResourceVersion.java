@@ -0,0 +1,42 @@
+package com.example.lowflightzone.dto;
+
+import lombok.Getter;
+import org.springframework.web.context.request.WebRequest;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Версия ресурса для условных GET: сильный ETag и (если известен) Last-Modified.
+ * Версии из памяти после рестарта начинаются заново, поэтому к ним подмешивается id запуска —
+ * ETag старого процесса не совпадёт с новым.
+ */
+@Getter
+public class ResourceVersion {
+
+    private static final String BOOT_ID = Long.toString(System.currentTimeMillis(), 36);
+
+    private final String etag;
+    private final LocalDateTime lastModified;
+
+    private ResourceVersion(String etag, LocalDateTime lastModified) {
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    /** Версия из in-memory структуры (счётчик изменений в рамках запуска) */
+    public static ResourceVersion inMemory(String kind, long version, LocalDateTime lastModified) {
+        return new ResourceVersion("\"" + kind + "-" + BOOT_ID + "-" + version + "\"", lastModified);
+    }
+
+    /**
+     * Проверка If-None-Match / If-Modified-Since. true — клиенту уже ушли 304 и заголовки,
+     * тело строить не нужно; false — ETag/Last-Modified выставлены, отдаём ответ как обычно.
+     */
+    public boolean isNotModified(WebRequest request) {
+        if (lastModified == null) {
+            return request.checkNotModified(etag);
+        }
+        return request.checkNotModified(etag, lastModified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+}
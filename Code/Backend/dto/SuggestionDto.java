@@ -0,0 +1,14 @@
+package com.example.lowflightzone.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Подсказка автодополнения: текст и тип значения (FLIGHT, IATA, CITY, AIRPORT).
+ */
+@Getter
+@AllArgsConstructor
+public class SuggestionDto {
+    private String text;
+    private String type;
+}
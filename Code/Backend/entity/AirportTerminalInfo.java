@@ -1,12 +1,16 @@
 package com.example.lowflightzone.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.Getter;
 import lombok.Setter;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "airport_terminal_info")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.AIRPORT_TERMINALS)
 @Getter
 @Setter
 public class AirportTerminalInfo {
@@ -0,0 +1,25 @@
+package com.example.lowflightzone.entity;
+
+import java.util.List;
+
+/**
+ * Регионы кэша второго уровня Hibernate. Имена общие для аннотаций сущностей,
+ * подсказок запросов и настройки JCache (размер и TTL задаются в SecondLevelCacheConfig).
+ */
+public final class CacheRegions {
+
+    public static final String AIRPORTS = "airports";
+    public static final String AIRPORT_TERMINALS = "airport-terminals";
+    public static final String FLIGHTS = "flights";
+
+    /** Результаты запросов по справочникам (аэропорты, терминалы) */
+    public static final String REFERENCE_QUERIES = "reference-queries";
+    /** Результаты запросов по рейсам: инвалидируются любой записью в flights */
+    public static final String FLIGHT_QUERIES = "flight-queries";
+
+    public static final List<String> ENTITY_REGIONS = List.of(AIRPORTS, AIRPORT_TERMINALS, FLIGHTS);
+    public static final List<String> QUERY_REGIONS = List.of(REFERENCE_QUERIES, FLIGHT_QUERIES);
+
+    private CacheRegions() {
+    }
+}
@@ -1,6 +1,8 @@
 package com.example.lowflightzone.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.Getter;
 import lombok.Setter;
 import java.time.LocalDateTime;
@@ -8,7 +10,13 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "flights")
+@Table(name = "flights", indexes = {
+        @Index(name = "idx_flights_dep_status_sched", columnList = "departure_airport, status, scheduled_departure"),
+        @Index(name = "idx_flights_arr_status_sched", columnList = "arrival_airport, status, scheduled_departure"),
+        @Index(name = "idx_flights_sched_id", columnList = "scheduled_departure, id")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegions.FLIGHTS)
 @Getter
 @Setter
 public class Flight {
@@ -82,8 +90,4 @@ public class Flight {
             delayMinutes = 0;
         }
     }
-
-    public int getSubscriptionCount() {
-        return subscriptions != null ? subscriptions.size() : 0;
-    }
 }
@@ -7,7 +7,8 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "flight_view_history",
-        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "flight_id"}))
+        uniqueConstraints = @UniqueConstraint(columnNames = {"user_id", "flight_id"}),
+        indexes = @Index(name = "idx_flight_view_history_user_viewed", columnList = "user_id, viewed_at, id"))
 @Getter
 @Setter
 public class FlightViewHistory {
@@ -35,7 +36,10 @@ public class FlightViewHistory {
 
     @PrePersist
     protected void onCreate() {
-        viewedAt = LocalDateTime.now();
+        // время из очереди просмотров не затираем
+        if (viewedAt == null) {
+            viewedAt = LocalDateTime.now();
+        }
         if (viewCount == null) {
             viewCount = 1;
         }
@@ -0,0 +1,357 @@
+package com.example.lowflightzone.index;
+
+import com.example.lowflightzone.dto.AirportBoardDto;
+import com.example.lowflightzone.dto.FlightDto;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Материализованные табло аэропортов: для каждого кода IATA — вылеты по scheduledDeparture
+ * и прилёты по scheduledArrival, упорядоченные по (время, id).
+ * Записи рейсов патчат только затронутые табло; рейс, не изменившийся с точки зрения экрана, версию не двигает.
+ * <p>
+ * У каждого табло есть версия последнего изменения и журнал последних изменений,
+ * поэтому экран может запросить дельту «после since» вместо полного снимка.
+ * Номера версий общие для всех табло и не сбрасываются при перезагрузке;
+ * epoch различает запуски процесса.
+ * Счётчик подписок на экранах не показывается и версию табло не меняет.
+ */
+@Slf4j
+@Component
+public class AirportBoards {
+
+    /** Сколько последних изменений хранится на табло; since старше журнала — полный снимок */
+    private static final int JOURNAL_LIMIT = 512;
+
+    public enum Direction {
+        DEPARTURES(FlightDto::getScheduledDeparture),
+        ARRIVALS(FlightDto::getScheduledArrival);
+
+        private final Function<FlightDto, LocalDateTime> time;
+
+        Direction(Function<FlightDto, LocalDateTime> time) {
+            this.time = time;
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Map<String, Board> departures = new HashMap<>();
+    private final Map<String, Board> arrivals = new HashMap<>();
+    private final Map<Integer, FlightDto> flights = new HashMap<>();
+    private long version;
+    private long rebuiltAt;
+
+    private volatile boolean loaded;
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /** Полная перезагрузка: журналы сбрасываются, дельты «до перезагрузки» превращаются в полные снимки */
+    public void rebuild(Collection<FlightDto> all) {
+        int departureBoards;
+        int arrivalBoards;
+        lock.writeLock().lock();
+        try {
+            departures.clear();
+            arrivals.clear();
+            flights.clear();
+            rebuiltAt = ++version;
+
+            for (FlightDto flight : all) {
+                if (flight.getId() == null) {
+                    continue;
+                }
+                flights.put(flight.getId(), flight);
+                String departure = departureCode(flight);
+                String arrival = arrivalCode(flight);
+                if (departure != null) {
+                    boardFor(departures, departure).insert(flight, Direction.DEPARTURES);
+                }
+                if (arrival != null) {
+                    boardFor(arrivals, arrival).insert(flight, Direction.ARRIVALS);
+                }
+            }
+            departureBoards = departures.size();
+            arrivalBoards = arrivals.size();
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("🛫 Табло аэропортов загружены: {} рейсов, {} аэропортов вылета, {} аэропортов прилёта",
+                all.size(), departureBoards, arrivalBoards);
+    }
+
+    /** Добавить или обновить рейс: он переезжает между табло, если сменился аэропорт */
+    public void put(FlightDto flight) {
+        if (flight == null || flight.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            FlightDto previous = flights.put(flight.getId(), flight);
+            if (previous != null && sameOnBoard(previous, flight)) {
+                // экран не изменится — только подменяем экземпляр, версию не трогаем
+                replaceInstance(departures, departureCode(flight), flight, Direction.DEPARTURES);
+                replaceInstance(arrivals, arrivalCode(flight), flight, Direction.ARRIVALS);
+                return;
+            }
+
+            long changeVersion = ++version;
+            move(departures, previous != null ? departureCode(previous) : null, departureCode(flight),
+                    flight, Direction.DEPARTURES, changeVersion);
+            move(arrivals, previous != null ? arrivalCode(previous) : null, arrivalCode(flight),
+                    flight, Direction.ARRIVALS, changeVersion);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Удалить рейс со всех табло */
+    public void remove(Integer flightId) {
+        if (flightId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            FlightDto previous = flights.remove(flightId);
+            if (previous == null) {
+                return;
+            }
+            long changeVersion = ++version;
+            Board departureBoard = departures.get(departureCode(previous));
+            if (departureBoard != null) {
+                departureBoard.delete(flightId, changeVersion);
+            }
+            Board arrivalBoard = arrivals.get(arrivalCode(previous));
+            if (arrivalBoard != null) {
+                arrivalBoard.delete(flightId, changeVersion);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Табло аэропорта. Если since из того же epoch и ещё покрыт журналом — дельта после since
+     * (без учёта окна from/limit: экран сам решает, что показывать), иначе полный снимок:
+     * до limit рейсов не раньше from в порядке времени. terminal == null — все терминалы.
+     * Рейсы в ответе — копии строк табло.
+     */
+    public AirportBoardDto view(String iataCode, Direction direction, String terminal,
+                                LocalDateTime from, int limit, Long since, String clientEpoch) {
+        String code = codeOf(iataCode);
+        lock.readLock().lock();
+        try {
+            Board board = (direction == Direction.DEPARTURES ? departures : arrivals).get(code);
+
+            AirportBoardDto dto = new AirportBoardDto();
+            dto.setIataCode(code);
+            dto.setDirection(direction.name());
+            dto.setTerminal(terminal);
+            dto.setEpoch(epoch);
+            dto.setVersion(board != null ? board.version : version);
+
+            boolean canDelta = since != null && epoch.equals(clientEpoch)
+                    && since >= (board != null ? board.floor : rebuiltAt) && since <= version;
+            if (canDelta) {
+                dto.setFull(false);
+                if (board != null) {
+                    board.fillDelta(dto, since, terminal);
+                } else {
+                    dto.setFlights(List.of());
+                    dto.setRemovedFlightIds(List.of());
+                }
+            } else {
+                dto.setFull(true);
+                dto.setFlights(board != null ? board.snapshot(from, terminal, limit) : List.of());
+            }
+            return dto;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ----- внутренняя кухня (вызывается под write lock) -----
+
+    private void move(Map<String, Board> boards, String previousCode, String code, FlightDto flight,
+                      Direction direction, long changeVersion) {
+        if (previousCode != null && !previousCode.equals(code)) {
+            Board previousBoard = boards.get(previousCode);
+            if (previousBoard != null) {
+                previousBoard.delete(flight.getId(), changeVersion);
+            }
+        }
+        if (code != null) {
+            boardFor(boards, code).upsert(flight, direction, changeVersion);
+        }
+    }
+
+    private void replaceInstance(Map<String, Board> boards, String code, FlightDto flight, Direction direction) {
+        Board board = code != null ? boards.get(code) : null;
+        if (board != null) {
+            board.insert(flight, direction);
+        }
+    }
+
+    private Board boardFor(Map<String, Board> boards, String code) {
+        // новое табло было пустым, поэтому дельты от любой версии после перезагрузки для него корректны
+        return boards.computeIfAbsent(code, c -> new Board(rebuiltAt));
+    }
+
+    private static String departureCode(FlightDto flight) {
+        return codeOf(flight.getDepartureAirport() != null ? flight.getDepartureAirport().getIataCode() : null);
+    }
+
+    private static String arrivalCode(FlightDto flight) {
+        return codeOf(flight.getArrivalAirport() != null ? flight.getArrivalAirport().getIataCode() : null);
+    }
+
+    private static String codeOf(String iataCode) {
+        return iataCode != null ? iataCode.toUpperCase() : null;
+    }
+
+    /** Всё, что видно на экране табло; счётчик подписок и просмотры сюда не входят */
+    private static boolean sameOnBoard(FlightDto a, FlightDto b) {
+        return Objects.equals(a.getFlightNumber(), b.getFlightNumber())
+                && Objects.equals(a.getAirline(), b.getAirline())
+                && Objects.equals(departureCode(a), departureCode(b))
+                && Objects.equals(arrivalCode(a), arrivalCode(b))
+                && Objects.equals(a.getScheduledDeparture(), b.getScheduledDeparture())
+                && Objects.equals(a.getScheduledArrival(), b.getScheduledArrival())
+                && Objects.equals(a.getEstimatedDeparture(), b.getEstimatedDeparture())
+                && Objects.equals(a.getEstimatedArrival(), b.getEstimatedArrival())
+                && Objects.equals(a.getActualDeparture(), b.getActualDeparture())
+                && Objects.equals(a.getActualArrival(), b.getActualArrival())
+                && Objects.equals(a.getDelayMinutes(), b.getDelayMinutes())
+                && Objects.equals(a.getTerminal(), b.getTerminal())
+                && Objects.equals(a.getGate(), b.getGate())
+                && Objects.equals(a.getStatus(), b.getStatus());
+    }
+
+    private static boolean onTerminal(FlightDto flight, String terminal) {
+        return terminal == null || terminal.equalsIgnoreCase(flight.getTerminal());
+    }
+
+    private record RowKey(LocalDateTime time, int flightId) implements Comparable<RowKey> {
+
+        private static final Comparator<RowKey> ORDER = Comparator
+                .comparing(RowKey::time, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparingInt(RowKey::flightId);
+
+        @Override
+        public int compareTo(RowKey other) {
+            return ORDER.compare(this, other);
+        }
+    }
+
+    /** Изменение табло: flight == null — рейс ушёл с табло */
+    private record Change(long version, int flightId, FlightDto flight) {
+    }
+
+    private static final class Board {
+        private final TreeMap<RowKey, FlightDto> rows = new TreeMap<>();
+        private final Map<Integer, RowKey> keys = new HashMap<>();
+        private final ArrayDeque<Change> journal = new ArrayDeque<>();
+        private long version;
+        /** Минимальный since, от которого журнал ещё даёт полную дельту */
+        private long floor;
+
+        Board(long createdAt) {
+            this.version = createdAt;
+            this.floor = createdAt;
+        }
+
+        /** Вставка без журнала (перезагрузка, подмена экземпляра без видимых изменений) */
+        void insert(FlightDto flight, Direction direction) {
+            RowKey key = new RowKey(direction.time.apply(flight), flight.getId());
+            RowKey previous = keys.put(flight.getId(), key);
+            if (previous != null && !previous.equals(key)) {
+                rows.remove(previous);
+            }
+            rows.put(key, flight);
+        }
+
+        void upsert(FlightDto flight, Direction direction, long changeVersion) {
+            insert(flight, direction);
+            record(new Change(changeVersion, flight.getId(), flight));
+        }
+
+        void delete(int flightId, long changeVersion) {
+            RowKey key = keys.remove(flightId);
+            if (key != null) {
+                rows.remove(key);
+                record(new Change(changeVersion, flightId, null));
+            }
+        }
+
+        private void record(Change change) {
+            journal.addLast(change);
+            version = change.version();
+            while (journal.size() > JOURNAL_LIMIT) {
+                floor = journal.removeFirst().version();
+            }
+        }
+
+        List<FlightDto> snapshot(LocalDateTime from, String terminal, int limit) {
+            Collection<FlightDto> candidates = from != null
+                    ? rows.tailMap(new RowKey(from, Integer.MIN_VALUE), true).values()
+                    : rows.values();
+            List<FlightDto> result = new ArrayList<>(Math.min(limit, candidates.size()));
+            for (FlightDto flight : candidates) {
+                if (result.size() >= limit) {
+                    break;
+                }
+                if (onTerminal(flight, terminal)) {
+                    result.add(flight.copy());
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Последнее состояние каждого рейса, изменившегося после since. Рейс, ушедший с табло
+         * или с выбранного терминала, попадает в removedFlightIds — даже если экран его ещё не видел.
+         */
+        void fillDelta(AirportBoardDto dto, long since, String terminal) {
+            Map<Integer, Change> latest = new LinkedHashMap<>();
+            Iterator<Change> newestFirst = journal.descendingIterator();
+            while (newestFirst.hasNext()) {
+                Change change = newestFirst.next();
+                if (change.version() <= since) {
+                    break;
+                }
+                latest.putIfAbsent(change.flightId(), change);
+            }
+
+            List<FlightDto> changed = new ArrayList<>();
+            List<Integer> removed = new ArrayList<>();
+            for (Change change : latest.values()) {
+                if (change.flight() != null && onTerminal(change.flight(), terminal)) {
+                    changed.add(change.flight().copy());
+                } else {
+                    removed.add(change.flightId());
+                }
+            }
+            dto.setFlights(changed);
+            dto.setRemovedFlightIds(removed);
+        }
+    }
+}
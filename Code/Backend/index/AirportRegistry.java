@@ -0,0 +1,113 @@
+package com.example.lowflightzone.index;
+
+import com.example.lowflightzone.dto.AirportDto;
+import com.example.lowflightzone.entity.Airport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Неизменяемый in-memory справочник аэропортов (copy-on-write).
+ * Аэропорты меняются только через AirportService.addAirport, поэтому читатели берут
+ * volatile-снимок без блокировок, а добавление собирает новый снимок и подменяет его целиком.
+ * <p>
+ * Хранит готовые общие AirportDto; для ссылок из Flight при записи достаточно проверить код
+ * здесь и взять JPA-ссылку по id (без SELECT). Пока справочник не загружен ({@link #isLoaded()}),
+ * вызывающие идут в БД.
+ */
+@Slf4j
+@Component
+public class AirportRegistry {
+
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+    private volatile boolean loaded;
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /** Полная загрузка справочника */
+    public synchronized void load(Collection<Airport> airports) {
+        Map<String, AirportDto> byCode = new HashMap<>();
+        for (Airport airport : airports) {
+            if (airport.getIataCode() != null) {
+                byCode.put(airport.getIataCode(), toDto(airport));
+            }
+        }
+        snapshot = Snapshot.of(byCode, snapshot.version + 1);
+        loaded = true;
+        log.info("🗺 Справочник аэропортов загружен: {} записей", byCode.size());
+    }
+
+    /** Добавить или заменить аэропорт: новый снимок подменяет старый атомарно */
+    public synchronized void put(Airport airport) {
+        if (airport == null || airport.getIataCode() == null) {
+            return;
+        }
+        Map<String, AirportDto> byCode = new HashMap<>(snapshot.dtos);
+        byCode.put(airport.getIataCode(), toDto(airport));
+        snapshot = Snapshot.of(byCode, snapshot.version + 1);
+    }
+
+    /** Общий неизменяемый AirportDto или null, если аэропорта нет */
+    public AirportDto findDto(String iataCode) {
+        return iataCode == null ? null : snapshot.dtos.get(iataCode);
+    }
+
+    public boolean contains(String iataCode) {
+        return iataCode != null && snapshot.dtos.containsKey(iataCode);
+    }
+
+    /** Номер снимка: меняется при каждой загрузке/добавлении */
+    public long version() {
+        return snapshot.version;
+    }
+
+    /** Все аэропорты по коду; список неизменяемый */
+    public List<AirportDto> all() {
+        return snapshot.all;
+    }
+
+    /** Аэропорты, чей город содержит строку (без учёта регистра) — как AirportRepository.findByCityContainingIgnoreCase */
+    public List<AirportDto> findByCity(String city) {
+        String needle = city == null ? "" : city.toLowerCase(Locale.ROOT);
+        List<AirportDto> result = new ArrayList<>();
+        for (AirportDto dto : snapshot.all) {
+            if (dto.getCity() != null && dto.getCity().toLowerCase(Locale.ROOT).contains(needle)) {
+                result.add(dto);
+            }
+        }
+        return result;
+    }
+
+    public static AirportDto toDto(Airport airport) {
+        return AirportDto.builder()
+                .iataCode(airport.getIataCode())
+                .name(airport.getName())
+                .city(airport.getCity())
+                .country(airport.getCountry())
+                .latitude(airport.getLatitude())
+                .longitude(airport.getLongitude())
+                .timezone(airport.getTimezone())
+                .altitude(airport.getAltitude())
+                .build();
+    }
+
+    private record Snapshot(Map<String, AirportDto> dtos, List<AirportDto> all, long version) {
+
+        static final Snapshot EMPTY = new Snapshot(Map.of(), List.of(), 0);
+
+        static Snapshot of(Map<String, AirportDto> byCode, long version) {
+            List<AirportDto> all = new ArrayList<>(byCode.values());
+            all.sort(Comparator.comparing(AirportDto::getIataCode));
+            return new Snapshot(Map.copyOf(byCode), List.copyOf(all), version);
+        }
+    }
+}
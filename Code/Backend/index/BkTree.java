@@ -0,0 +1,160 @@
+package com.example.lowflightzone.index;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BK-дерево по расстоянию Левенштейна: поиск всех слов на расстоянии ≤ d
+ * отсекает поддеревья по неравенству треугольника и не перебирает словарь целиком.
+ * Удалённое слово остаётся в дереве меткой (на нём держатся поддеревья) и в выдачу не попадает;
+ * когда меток становится больше живых слов, дерево перестраивается из живых.
+ * <p>
+ * Не потокобезопасен — синхронизация на стороне владельца.
+ */
+public class BkTree {
+
+    private Node root;
+    private int size;
+    private int removed;
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        root = null;
+        size = 0;
+        removed = 0;
+    }
+
+    public void add(String word) {
+        if (root == null) {
+            root = new Node(word);
+            size++;
+            return;
+        }
+        Node node = root;
+        while (true) {
+            int distance = distance(node.word, word);
+            if (distance == 0) {
+                if (node.removed) {
+                    node.removed = false;
+                    removed--;
+                    size++;
+                }
+                return;
+            }
+            Node child = node.children.get(distance);
+            if (child == null) {
+                node.children.put(distance, new Node(word));
+                size++;
+                return;
+            }
+            node = child;
+        }
+    }
+
+    /** Убрать слово из выдачи; при избытке меток — перестройка из живых слов */
+    public void remove(String word) {
+        Node node = root;
+        while (node != null) {
+            int distance = distance(node.word, word);
+            if (distance == 0) {
+                if (!node.removed) {
+                    node.removed = true;
+                    removed++;
+                    size--;
+                    if (removed > size) {
+                        compact();
+                    }
+                }
+                return;
+            }
+            node = node.children.get(distance);
+        }
+    }
+
+    /** Все слова на расстоянии ≤ maxDistance от запроса */
+    public List<Match> search(String query, int maxDistance) {
+        List<Match> result = new ArrayList<>();
+        if (root == null) {
+            return result;
+        }
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            int distance = distance(node.word, query);
+            if (distance <= maxDistance && !node.removed) {
+                result.add(new Match(node.word, distance));
+            }
+            for (Map.Entry<Integer, Node> entry : node.children.entrySet()) {
+                int edge = entry.getKey();
+                if (edge >= distance - maxDistance && edge <= distance + maxDistance) {
+                    stack.push(entry.getValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    private void compact() {
+        List<String> live = new ArrayList<>(size);
+        if (root != null) {
+            Deque<Node> stack = new ArrayDeque<>();
+            stack.push(root);
+            while (!stack.isEmpty()) {
+                Node node = stack.pop();
+                if (!node.removed) {
+                    live.add(node.word);
+                }
+                stack.addAll(node.children.values());
+            }
+        }
+        clear();
+        for (String word : live) {
+            add(word);
+        }
+    }
+
+    /** Расстояние Левенштейна (DP на двух строках) */
+    static int distance(String a, String b) {
+        if (a.equals(b)) {
+            return 0;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    public record Match(String word, int distance) {
+    }
+
+    private static final class Node {
+        private final String word;
+        private final Map<Integer, Node> children = new HashMap<>();
+        private boolean removed;
+
+        Node(String word) {
+            this.word = word;
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.example.lowflightzone.index;
+
+import com.example.lowflightzone.dto.FlightDto;
+import com.example.lowflightzone.entity.Flight;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Колоночное in-memory табло рейсов.
+ * Коды IATA и статусы хранятся словарно-закодированными в примитивных массивах,
+ * для каждого значения ведётся битовая карта строк, поэтому любая комбинация
+ * вылет × прилёт × статус считается пересечением битмапов без обращения к JPA.
+ * <p>
+ * Каждое изменение увеличивает номер версии табло; строка помнит версию своего последнего изменения.
+ * Все записи рейсов проходят через табло, поэтому версии годятся для ETag без запросов к БД.
+ */
+@Slf4j
+@Component
+public class FlightBoardIndex {
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int NO_CODE = -1;
+    private static final Comparator<FlightDto> BOARD_ORDER = Comparator
+            .comparing(FlightDto::getScheduledDeparture, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(FlightDto::getId);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // 📚 Словарь IATA-кодов: код → номер
+    private final Map<String, Integer> codeDictionary = new HashMap<>();
+    private final List<BitSet> departureBitmaps = new ArrayList<>();
+    private final List<BitSet> arrivalBitmaps = new ArrayList<>();
+    private final BitSet[] statusBitmaps = new BitSet[Flight.FlightStatus.values().length];
+
+    // 🧱 Колонки (индекс = номер строки)
+    private int[] flightIds = new int[INITIAL_CAPACITY];
+    private int[] departureCodes = new int[INITIAL_CAPACITY];
+    private int[] arrivalCodes = new int[INITIAL_CAPACITY];
+    private byte[] statuses = new byte[INITIAL_CAPACITY];
+    private FlightDto[] rows = new FlightDto[INITIAL_CAPACITY];
+    private long[] rowVersions = new long[INITIAL_CAPACITY];
+
+    private final Map<Integer, Integer> rowByFlightId = new HashMap<>();
+    private final BitSet liveRows = new BitSet();
+    private final BitSet freeRows = new BitSet();
+    private int rowCount;
+    private long version;
+
+    private volatile boolean loaded;
+
+    public FlightBoardIndex() {
+        for (int i = 0; i < statusBitmaps.length; i++) {
+            statusBitmaps[i] = new BitSet();
+        }
+    }
+
+    /** Табло заполнено и может обслуживать запросы */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /** Полная перезагрузка табло */
+    public void rebuild(Collection<FlightDto> flights) {
+        lock.writeLock().lock();
+        try {
+            codeDictionary.clear();
+            departureBitmaps.clear();
+            arrivalBitmaps.clear();
+            for (BitSet bitmap : statusBitmaps) {
+                bitmap.clear();
+            }
+            rowByFlightId.clear();
+            liveRows.clear();
+            freeRows.clear();
+            rowCount = 0;
+
+            int capacity = Math.max(INITIAL_CAPACITY, flights.size());
+            flightIds = new int[capacity];
+            departureCodes = new int[capacity];
+            arrivalCodes = new int[capacity];
+            statuses = new byte[capacity];
+            rows = new FlightDto[capacity];
+            rowVersions = new long[capacity];
+            version++;
+
+            for (FlightDto flight : flights) {
+                putLocked(flight);
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("📋 Табло рейсов загружено: {} строк", flights.size());
+    }
+
+    /** Добавить или обновить рейс */
+    public void put(FlightDto flight) {
+        if (flight == null || flight.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            putLocked(flight);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Удалить рейс */
+    public void remove(Integer flightId) {
+        if (flightId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Integer row = rowByFlightId.remove(flightId);
+            if (row != null) {
+                clearRow(row);
+                freeRows.set(row);
+                version++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Сдвинуть счётчик подписок рейса (подписка/отписка, после коммита), не перечитывая рейс.
+     * Строка заменяется копией: прежний экземпляр мог уже уйти в ответ и сериализоваться вне блокировки.
+     */
+    public void adjustSubscriptionCount(Integer flightId, int delta) {
+        if (flightId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Integer row = rowByFlightId.get(flightId);
+            if (row != null) {
+                setSubscriptionCountLocked(row, Math.max(0, rows[row].getSubscriptionCount() + delta));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Счётчик подписок рейса, перечитанный из БД (подписка во время загрузки табло: снимок мог её уже учесть) */
+    public void setSubscriptionCount(Integer flightId, int count) {
+        if (flightId == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Integer row = rowByFlightId.get(flightId);
+            if (row != null && rows[row].getSubscriptionCount() != count) {
+                setSubscriptionCountLocked(row, count);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Поиск по табло. null в параметре — фильтр не применяется.
+     * Неизвестный код или статус даёт пустой результат.
+     * Возвращает до limit рейсов в порядке (scheduledDeparture, id), строго после курсора
+     * (afterDeparture/afterId == null — с начала); отбор через ограниченную кучу, без сортировки всего результата.
+     * Строки — копии: вызывающий может их дополнять, не трогая табло.
+     */
+    public List<FlightDto> query(String departureAirport, String arrivalAirport, String status,
+                                 LocalDateTime afterDeparture, Integer afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            BitSet result = (BitSet) liveRows.clone();
+
+            if (departureAirport != null) {
+                BitSet bitmap = bitmapFor(departureBitmaps, departureAirport);
+                if (bitmap == null) {
+                    return List.of();
+                }
+                result.and(bitmap);
+            }
+            if (arrivalAirport != null) {
+                BitSet bitmap = bitmapFor(arrivalBitmaps, arrivalAirport);
+                if (bitmap == null) {
+                    return List.of();
+                }
+                result.and(bitmap);
+            }
+            if (status != null) {
+                Flight.FlightStatus flightStatus = parseStatus(status);
+                if (flightStatus == null) {
+                    return List.of();
+                }
+                result.and(statusBitmaps[flightStatus.ordinal()]);
+            }
+
+            // 🔝 Куча на limit элементов: в вершине — «самый поздний» из отобранных
+            PriorityQueue<FlightDto> top = new PriorityQueue<>(Math.min(limit, result.cardinality()) + 1,
+                    BOARD_ORDER.reversed());
+            for (int row = result.nextSetBit(0); row >= 0; row = result.nextSetBit(row + 1)) {
+                FlightDto flight = rows[row];
+                if (afterId != null && compare(flight, afterDeparture, afterId) <= 0) {
+                    continue;
+                }
+                if (top.size() < limit) {
+                    top.add(flight);
+                } else if (BOARD_ORDER.compare(flight, top.peek()) < 0) {
+                    top.poll();
+                    top.add(flight);
+                }
+            }
+
+            List<FlightDto> flights = new ArrayList<>(top);
+            flights.sort(BOARD_ORDER);
+            flights.replaceAll(FlightDto::copy);
+            return flights;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Номер последнего изменения табло (любого рейса) */
+    public long version() {
+        lock.readLock().lock();
+        try {
+            return version;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Копия строки рейса и версия её последнего изменения; null — рейса на табло нет */
+    public VersionedRow getVersioned(Integer flightId) {
+        lock.readLock().lock();
+        try {
+            Integer row = flightId != null ? rowByFlightId.get(flightId) : null;
+            return row != null ? new VersionedRow(rows[row].copy(), rowVersions[row]) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rowByFlightId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ----- внутренняя кухня (вызывается под write lock) -----
+
+    private void setSubscriptionCountLocked(int row, int count) {
+        rows[row] = rows[row].withSubscriptionCount(count);
+        rowVersions[row] = ++version;
+    }
+
+    private void putLocked(FlightDto flight) {
+        Integer row = rowByFlightId.get(flight.getId());
+        if (row != null) {
+            // между перезагрузками счётчик подписок ведёт само табло (adjustSubscriptionCount):
+            // строка, прочитанная из БД до или после чужой подписки, его не затирает
+            if (rows[row].getSubscriptionCount() != flight.getSubscriptionCount()) {
+                flight = flight.withSubscriptionCount(rows[row].getSubscriptionCount());
+            }
+            clearRow(row);
+        } else {
+            row = allocateRow();
+            rowByFlightId.put(flight.getId(), row);
+        }
+
+        int departure = encode(flight.getDepartureAirport() != null ? flight.getDepartureAirport().getIataCode() : null);
+        int arrival = encode(flight.getArrivalAirport() != null ? flight.getArrivalAirport().getIataCode() : null);
+        Flight.FlightStatus status = parseStatus(flight.getStatus());
+
+        flightIds[row] = flight.getId();
+        departureCodes[row] = departure;
+        arrivalCodes[row] = arrival;
+        statuses[row] = status != null ? (byte) status.ordinal() : -1;
+        rows[row] = flight;
+        rowVersions[row] = ++version;
+
+        if (departure != NO_CODE) departureBitmaps.get(departure).set(row);
+        if (arrival != NO_CODE) arrivalBitmaps.get(arrival).set(row);
+        if (status != null) statusBitmaps[status.ordinal()].set(row);
+        liveRows.set(row);
+    }
+
+    private void clearRow(int row) {
+        if (departureCodes[row] != NO_CODE) departureBitmaps.get(departureCodes[row]).clear(row);
+        if (arrivalCodes[row] != NO_CODE) arrivalBitmaps.get(arrivalCodes[row]).clear(row);
+        if (statuses[row] >= 0) statusBitmaps[statuses[row]].clear(row);
+        liveRows.clear(row);
+        rows[row] = null;
+    }
+
+    private int allocateRow() {
+        int free = freeRows.nextSetBit(0);
+        if (free >= 0) {
+            freeRows.clear(free);
+            return free;
+        }
+        if (rowCount == rows.length) {
+            int capacity = rows.length * 2;
+            flightIds = Arrays.copyOf(flightIds, capacity);
+            departureCodes = Arrays.copyOf(departureCodes, capacity);
+            arrivalCodes = Arrays.copyOf(arrivalCodes, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            rows = Arrays.copyOf(rows, capacity);
+            rowVersions = Arrays.copyOf(rowVersions, capacity);
+        }
+        return rowCount++;
+    }
+
+    private int encode(String iataCode) {
+        if (iataCode == null) {
+            return NO_CODE;
+        }
+        Integer code = codeDictionary.get(iataCode);
+        if (code == null) {
+            code = codeDictionary.size();
+            codeDictionary.put(iataCode, code);
+            departureBitmaps.add(new BitSet());
+            arrivalBitmaps.add(new BitSet());
+        }
+        return code;
+    }
+
+    private BitSet bitmapFor(List<BitSet> bitmaps, String iataCode) {
+        Integer code = codeDictionary.get(iataCode);
+        return code != null ? bitmaps.get(code) : null;
+    }
+
+    private static int compare(FlightDto flight, LocalDateTime departure, Integer id) {
+        int byDeparture = Comparator.nullsLast(Comparator.<LocalDateTime>naturalOrder())
+                .compare(flight.getScheduledDeparture(), departure);
+        return byDeparture != 0 ? byDeparture : Integer.compare(flight.getId(), id);
+    }
+
+    private static Flight.FlightStatus parseStatus(String status) {
+        if (status == null) {
+            return null;
+        }
+        try {
+            return Flight.FlightStatus.valueOf(status);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public record VersionedRow(FlightDto flight, long version) {
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.lowflightzone.index;
+
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Иерархическое колесо таймеров для пересчёта рейсов: рейс → ближайший момент, когда его
+ * состояние изменится само по себе (наступает расчётное время вылета или прилёта).
+ * Тик — секунда; 4 уровня по 64 слота покрывают ~194 суток, дальние сроки кладутся
+ * в последний слот и перекладываются при его обходе. Вставка и отмена — O(1),
+ * продвижение — O(число сработавших + переложенных), размер таблицы рейсов не важен.
+ * <p>
+ * Срок рейса хранится в отдельной карте; слоты содержат только id. Перепланирование
+ * не ищет старую запись: устаревшие копии отбрасываются, когда до них доходит колесо.
+ */
+@Component
+public class FlightRecalcWheel {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA = (1L << (BITS * LEVELS)) - 1;
+    private static final int INITIAL_SLOT_CAPACITY = 4;
+
+    private final int[][] slots = new int[LEVELS * SLOTS][];
+    private final int[] slotSizes = new int[LEVELS * SLOTS];
+    /** flightId → тик срабатывания */
+    private final Map<Integer, Long> deadlines = new HashMap<>();
+
+    private long currentTick = toTick(LocalDateTime.now());
+
+    /**
+     * Рейс всплывёт в первую секунду строго после dueAt (правила пересчёта срабатывают по now.isAfter).
+     * null — у рейса нет будущих событий, запись снимается.
+     */
+    public synchronized void schedule(int flightId, LocalDateTime dueAt) {
+        if (dueAt == null) {
+            deadlines.remove(flightId);
+            return;
+        }
+        long deadline = Math.max(toTick(dueAt) + 1, currentTick + 1);
+        Long previous = deadlines.put(flightId, deadline);
+        if (previous == null || previous != deadline) {
+            place(flightId, deadline);
+        }
+    }
+
+    public synchronized void cancel(int flightId) {
+        deadlines.remove(flightId);
+    }
+
+    /** Продвигает колесо до now и возвращает рейсы, чей срок наступил (каждый один раз) */
+    public synchronized List<Integer> pollDue(LocalDateTime now) {
+        long target = toTick(now);
+        List<Integer> due = new ArrayList<>();
+        while (currentTick < target) {
+            currentTick++;
+            // ⏬ на границе блока слот старшего уровня раскладывается по младшим
+            for (int level = 1; level < LEVELS; level++) {
+                if ((currentTick & ((1L << (BITS * level)) - 1)) != 0) {
+                    break;
+                }
+                cascade(level, (int) ((currentTick >>> (BITS * level)) & MASK));
+            }
+            fire((int) (currentTick & MASK), due);
+        }
+        return due;
+    }
+
+    public synchronized int size() {
+        return deadlines.size();
+    }
+
+    private void cascade(int level, int slot) {
+        int[] ids = take(level * SLOTS + slot);
+        for (int id : ids) {
+            Long deadline = deadlines.get(id);
+            if (deadline != null) {
+                place(id, deadline);
+            }
+        }
+    }
+
+    private void fire(int slot, List<Integer> due) {
+        int[] ids = take(slot);
+        for (int id : ids) {
+            Long deadline = deadlines.get(id);
+            if (deadline == null) {
+                continue; // отменён или уже сработал по другой копии
+            }
+            if (deadline <= currentTick) {
+                deadlines.remove(id);
+                due.add(id);
+            } else {
+                place(id, deadline); // устаревшая копия после перепланирования на более поздний срок
+            }
+        }
+    }
+
+    /** Уровень — по расстоянию до срока; срок не раньше текущего тика (при раскладке — в текущий слот) */
+    private void place(int id, long deadline) {
+        long delta = Math.min(Math.max(deadline - currentTick, 0), MAX_DELTA);
+        long tick = currentTick + delta;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (BITS * (level + 1)))) {
+            level++;
+        }
+        int index = level * SLOTS + (int) ((tick >>> (BITS * level)) & MASK);
+        int[] slot = slots[index];
+        if (slot == null) {
+            slot = slots[index] = new int[INITIAL_SLOT_CAPACITY];
+        } else if (slotSizes[index] == slot.length) {
+            slot = slots[index] = Arrays.copyOf(slot, slot.length * 2);
+        }
+        slot[slotSizes[index]++] = id;
+    }
+
+    private int[] take(int index) {
+        int size = slotSizes[index];
+        if (size == 0) {
+            return new int[0];
+        }
+        int[] ids = Arrays.copyOf(slots[index], size);
+        slotSizes[index] = 0;
+        // крупный слот после пика (старт, импорт) не держим
+        if (slots[index].length > INITIAL_SLOT_CAPACITY * 64) {
+            slots[index] = null;
+        }
+        return ids;
+    }
+
+    private static long toTick(LocalDateTime time) {
+        // LocalDateTime как есть: сравниваются только моменты одной и той же шкалы
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,463 @@
+package com.example.lowflightzone.index;
+
+import com.example.lowflightzone.entity.Airport;
+import com.example.lowflightzone.entity.Flight;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory n-граммный индекс для поиска рейсов по подстроке
+ * (номер рейса, авиакомпания, IATA-коды, город и название аэропорта).
+ * <p>
+ * Номера рейсов индексируются на уровне рейса, авиакомпании и аэропорты — на уровне
+ * своих значений (их единицы и сотни), поэтому изменение аэропорта не требует переиндексации рейсов.
+ * Для строки индексируются все 1-, 2- и 3-граммы: запрос до 3 символов — одна posting-list,
+ * длиннее — пересечение триграмм с проверкой подстроки на кандидатах.
+ * <p>
+ * Все строки хранятся в канонической форме {@link SearchNormalizer} (латиница, нижний регистр),
+ * номера рейсов — без разделителей. Если точных/подстрочных совпадений нет, запрос ищется
+ * с опечатками по BK-дереву словаря терминов (номера, авиакомпании, коды, города, названия).
+ */
+@Slf4j
+@Component
+public class FlightSearchIndex {
+
+    // 🏅 Веса ранжирования: точное совпадение номера/IATA выше всего
+    private static final int SCORE_EXACT_FLIGHT_NUMBER = 100;
+    private static final int SCORE_EXACT_IATA = 90;
+    private static final int SCORE_PREFIX_FLIGHT_NUMBER = 70;
+    private static final int SCORE_EXACT_CITY_OR_NAME = 60;
+    private static final int SCORE_EXACT_AIRLINE = 50;
+    private static final int SCORE_PREFIX = 40;
+    private static final int SCORE_SUBSTRING = 10;
+    private static final int SCORE_FUZZY = 5;
+
+    private static final int MAX_GRAM = 3;
+
+    /** Порядок выдачи: score ↓, время вылета ↑, id ↑ */
+    public static final Comparator<SearchHit> RANK_ORDER = Comparator
+            .comparingInt(SearchHit::getScore).reversed()
+            .thenComparing(SearchHit::getScheduledDeparture, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingInt(SearchHit::getFlightId);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Integer, FlightDoc> flights = new HashMap<>();
+    private final Map<String, Set<Integer>> flightNumberGrams = new HashMap<>();
+
+    private final Map<String, Set<String>> airlineGrams = new HashMap<>();
+    private final Map<String, Set<Integer>> flightsByAirline = new HashMap<>();
+
+    private final Map<String, AirportDoc> airports = new HashMap<>();
+    private final Map<String, Set<String>> airportGrams = new HashMap<>();
+    private final Map<String, Set<Integer>> flightsByAirport = new HashMap<>();
+
+    // 🔤 Словарь для нечёткого поиска: термин → владельцы
+    private final BkTree vocabulary = new BkTree();
+    private final Map<String, Set<Integer>> flightsByNumber = new HashMap<>();
+    private final Map<String, Set<String>> airportsByTerm = new HashMap<>();
+
+    private volatile boolean loaded;
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /** Полная перестройка индекса */
+    public void rebuild(Collection<Airport> airportList, Collection<Flight> flightList) {
+        lock.writeLock().lock();
+        try {
+            flights.clear();
+            flightNumberGrams.clear();
+            airlineGrams.clear();
+            flightsByAirline.clear();
+            airports.clear();
+            airportGrams.clear();
+            flightsByAirport.clear();
+            vocabulary.clear();
+            flightsByNumber.clear();
+            airportsByTerm.clear();
+
+            for (Airport airport : airportList) {
+                putAirportLocked(airport);
+            }
+            for (Flight flight : flightList) {
+                putFlightLocked(flight);
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("🔎 Поисковый индекс построен: {} рейсов, {} аэропортов", flightList.size(), airportList.size());
+    }
+
+    public void putFlight(Flight flight) {
+        if (flight == null || flight.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            putFlightLocked(flight);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFlight(Integer flightId) {
+        lock.writeLock().lock();
+        try {
+            removeFlightLocked(flightId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putAirport(Airport airport) {
+        if (airport == null || airport.getIataCode() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            putAirportLocked(airport);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ранжированный поиск: до limit попаданий строго после курсора (after == null — с начала).
+     */
+    public List<SearchHit> search(String query, SearchHit after, int limit) {
+        String q = SearchNormalizer.canonical(query);
+        String qCompact = SearchNormalizer.compact(q);
+        if (q.isEmpty()) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Map<Integer, Integer> scores = exactScores(q, qCompact);
+            if (scores.isEmpty()) {
+                scores = fuzzyScores(q, qCompact);
+            }
+
+            PriorityQueue<SearchHit> top = new PriorityQueue<>(Math.min(limit, scores.size()) + 1, RANK_ORDER.reversed());
+            for (Map.Entry<Integer, Integer> entry : scores.entrySet()) {
+                FlightDoc doc = flights.get(entry.getKey());
+                if (doc == null) {
+                    continue;
+                }
+                SearchHit hit = new SearchHit(doc.id, entry.getValue(), doc.scheduledDeparture);
+                if (after != null && RANK_ORDER.compare(hit, after) <= 0) {
+                    continue;
+                }
+                if (top.size() < limit) {
+                    top.add(hit);
+                } else if (RANK_ORDER.compare(hit, top.peek()) < 0) {
+                    top.poll();
+                    top.add(hit);
+                }
+            }
+
+            List<SearchHit> hits = new ArrayList<>(top);
+            hits.sort(RANK_ORDER);
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Точные и подстрочные совпадения с ранжированием */
+    private Map<Integer, Integer> exactScores(String q, String qCompact) {
+        Set<Integer> candidates = new HashSet<>();
+        if (!qCompact.isEmpty()) {
+            candidates.addAll(lookup(flightNumberGrams, qCompact));
+        }
+        for (String airline : lookup(airlineGrams, q)) {
+            if (airline.contains(q)) {
+                candidates.addAll(flightsByAirline.getOrDefault(airline, Set.of()));
+            }
+        }
+        for (String code : lookup(airportGrams, q)) {
+            if (airports.get(code).matches(q)) {
+                candidates.addAll(flightsByAirport.getOrDefault(code, Set.of()));
+            }
+        }
+
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (Integer flightId : candidates) {
+            FlightDoc doc = flights.get(flightId);
+            int score = doc != null ? score(doc, q, qCompact) : 0;
+            if (score > 0) {
+                scores.put(flightId, score);
+            }
+        }
+        return scores;
+    }
+
+    /** Совпадения с опечатками: термины словаря на расстоянии ≤ maxTypos, чем ближе — тем выше */
+    private Map<Integer, Integer> fuzzyScores(String q, String qCompact) {
+        Map<Integer, Integer> scores = new HashMap<>();
+        int maxTypos = SearchNormalizer.maxTypos(q);
+        if (maxTypos == 0) {
+            return scores;
+        }
+
+        List<BkTree.Match> matches = new ArrayList<>(vocabulary.search(q, maxTypos));
+        if (!qCompact.equals(q)) {
+            matches.addAll(vocabulary.search(qCompact, maxTypos));
+        }
+
+        for (BkTree.Match match : matches) {
+            int score = SCORE_FUZZY - match.distance();
+            Set<Integer> owners = new HashSet<>(flightsByNumber.getOrDefault(match.word(), Set.of()));
+            owners.addAll(flightsByAirline.getOrDefault(match.word(), Set.of()));
+            for (String code : airportsByTerm.getOrDefault(match.word(), Set.of())) {
+                owners.addAll(flightsByAirport.getOrDefault(code, Set.of()));
+            }
+            for (Integer flightId : owners) {
+                scores.merge(flightId, score, Math::max);
+            }
+        }
+        return scores;
+    }
+
+    // ----- внутренняя кухня (вызывается под write lock) -----
+
+    private void putFlightLocked(Flight flight) {
+        removeFlightLocked(flight.getId());
+
+        FlightDoc doc = new FlightDoc(
+                flight.getId(),
+                SearchNormalizer.compact(SearchNormalizer.canonical(flight.getFlightNumber())),
+                SearchNormalizer.canonical(flight.getAirline()),
+                flight.getDepartureAirport() != null ? flight.getDepartureAirport().getIataCode() : null,
+                flight.getArrivalAirport() != null ? flight.getArrivalAirport().getIataCode() : null,
+                flight.getScheduledDeparture());
+        flights.put(doc.id, doc);
+
+        for (String gram : grams(doc.flightNumber)) {
+            flightNumberGrams.computeIfAbsent(gram, k -> new HashSet<>()).add(doc.id);
+        }
+        if (!doc.flightNumber.isEmpty()) {
+            flightsByNumber.computeIfAbsent(doc.flightNumber, k -> new HashSet<>()).add(doc.id);
+            vocabulary.add(doc.flightNumber);
+        }
+        if (!doc.airline.isEmpty()) {
+            vocabulary.add(doc.airline);
+            if (!flightsByAirline.containsKey(doc.airline)) {
+                for (String gram : grams(doc.airline)) {
+                    airlineGrams.computeIfAbsent(gram, k -> new HashSet<>()).add(doc.airline);
+                }
+            }
+            flightsByAirline.computeIfAbsent(doc.airline, k -> new HashSet<>()).add(doc.id);
+        }
+        if (doc.departureCode != null) {
+            flightsByAirport.computeIfAbsent(doc.departureCode, k -> new HashSet<>()).add(doc.id);
+        }
+        if (doc.arrivalCode != null) {
+            flightsByAirport.computeIfAbsent(doc.arrivalCode, k -> new HashSet<>()).add(doc.id);
+        }
+    }
+
+    private void removeFlightLocked(Integer flightId) {
+        FlightDoc doc = flights.remove(flightId);
+        if (doc == null) {
+            return;
+        }
+        for (String gram : grams(doc.flightNumber)) {
+            removeFromPosting(flightNumberGrams, gram, doc.id);
+        }
+        removeFromPosting(flightsByNumber, doc.flightNumber, doc.id);
+        releaseTerm(doc.flightNumber);
+        Set<Integer> sameAirline = flightsByAirline.get(doc.airline);
+        if (sameAirline != null) {
+            sameAirline.remove(doc.id);
+            if (sameAirline.isEmpty()) {
+                flightsByAirline.remove(doc.airline);
+                for (String gram : grams(doc.airline)) {
+                    removeFromPosting(airlineGrams, gram, doc.airline);
+                }
+                releaseTerm(doc.airline);
+            }
+        }
+        if (doc.departureCode != null) {
+            removeFromPosting(flightsByAirport, doc.departureCode, doc.id);
+        }
+        if (doc.arrivalCode != null) {
+            removeFromPosting(flightsByAirport, doc.arrivalCode, doc.id);
+        }
+    }
+
+    private void putAirportLocked(Airport airport) {
+        String code = airport.getIataCode();
+        AirportDoc previous = airports.get(code);
+        if (previous != null) {
+            for (String gram : previous.grams()) {
+                removeFromPosting(airportGrams, gram, code);
+            }
+            for (String term : previous.terms()) {
+                removeFromPosting(airportsByTerm, term, code);
+                releaseTerm(term);
+            }
+        }
+
+        AirportDoc doc = new AirportDoc(SearchNormalizer.canonical(code),
+                SearchNormalizer.canonical(airport.getCity()), SearchNormalizer.canonical(airport.getName()));
+        airports.put(code, doc);
+        for (String gram : doc.grams()) {
+            airportGrams.computeIfAbsent(gram, k -> new HashSet<>()).add(code);
+        }
+        for (String term : doc.terms()) {
+            airportsByTerm.computeIfAbsent(term, k -> new HashSet<>()).add(code);
+            vocabulary.add(term);
+        }
+    }
+
+    /** Термин без владельцев (ни рейса, ни авиакомпании, ни аэропорта) уходит из словаря нечёткого поиска */
+    private void releaseTerm(String term) {
+        if (!term.isEmpty() && !flightsByNumber.containsKey(term) && !flightsByAirline.containsKey(term)
+                && !airportsByTerm.containsKey(term)) {
+            vocabulary.remove(term);
+        }
+    }
+
+    private int score(FlightDoc doc, String q, String qCompact) {
+        int score = 0;
+        if (qCompact.isEmpty()) {
+            // запрос без букв и цифр номеру рейса не соответствует
+        } else if (doc.flightNumber.equals(qCompact)) {
+            score = SCORE_EXACT_FLIGHT_NUMBER;
+        } else if (doc.flightNumber.startsWith(qCompact)) {
+            score = SCORE_PREFIX_FLIGHT_NUMBER;
+        } else if (doc.flightNumber.contains(qCompact)) {
+            score = SCORE_SUBSTRING;
+        }
+
+        score = Math.max(score, scoreAirport(airports.get(doc.departureCode), q));
+        score = Math.max(score, scoreAirport(airports.get(doc.arrivalCode), q));
+
+        if (doc.airline.equals(q)) {
+            score = Math.max(score, SCORE_EXACT_AIRLINE);
+        } else if (doc.airline.startsWith(q)) {
+            score = Math.max(score, SCORE_PREFIX);
+        } else if (doc.airline.contains(q)) {
+            score = Math.max(score, SCORE_SUBSTRING);
+        }
+        return score;
+    }
+
+    private static int scoreAirport(AirportDoc airport, String q) {
+        if (airport == null) {
+            return 0;
+        }
+        if (airport.code.equals(q)) {
+            return SCORE_EXACT_IATA;
+        }
+        if (airport.city.equals(q) || airport.name.equals(q)) {
+            return SCORE_EXACT_CITY_OR_NAME;
+        }
+        if (airport.code.startsWith(q) || airport.city.startsWith(q) || airport.name.startsWith(q)) {
+            return SCORE_PREFIX;
+        }
+        return airport.matches(q) ? SCORE_SUBSTRING : 0;
+    }
+
+    /** Кандидаты из posting-листов: точная n-грамма или пересечение триграмм запроса */
+    private static <T> Set<T> lookup(Map<String, Set<T>> postings, String q) {
+        if (q.length() <= MAX_GRAM) {
+            return postings.getOrDefault(q, Set.of());
+        }
+        Set<T> result = null;
+        for (int i = 0; i + MAX_GRAM <= q.length(); i++) {
+            Set<T> posting = postings.get(q.substring(i, i + MAX_GRAM));
+            if (posting == null) {
+                return Set.of();
+            }
+            if (result == null) {
+                result = new HashSet<>(posting);
+            } else {
+                result.retainAll(posting);
+            }
+            if (result.isEmpty()) {
+                return result;
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> grams(String value) {
+        Set<String> grams = new HashSet<>();
+        for (int n = 1; n <= MAX_GRAM; n++) {
+            for (int i = 0; i + n <= value.length(); i++) {
+                grams.add(value.substring(i, i + n));
+            }
+        }
+        return grams;
+    }
+
+    private static <T> void removeFromPosting(Map<String, Set<T>> postings, String key, T value) {
+        Set<T> posting = postings.get(key);
+        if (posting != null) {
+            posting.remove(value);
+            if (posting.isEmpty()) {
+                postings.remove(key);
+            }
+        }
+    }
+
+    /** Попадание поиска; одновременно служит курсором для следующей страницы */
+    @Getter
+    public static class SearchHit {
+        private final int flightId;
+        private final int score;
+        private final LocalDateTime scheduledDeparture;
+
+        public SearchHit(int flightId, int score, LocalDateTime scheduledDeparture) {
+            this.flightId = flightId;
+            this.score = score;
+            this.scheduledDeparture = scheduledDeparture;
+        }
+    }
+
+    private record FlightDoc(Integer id, String flightNumber, String airline,
+                             String departureCode, String arrivalCode, LocalDateTime scheduledDeparture) {
+    }
+
+    private record AirportDoc(String code, String city, String name) {
+
+        boolean matches(String q) {
+            return code.contains(q) || city.contains(q) || name.contains(q);
+        }
+
+        Set<String> grams() {
+            Set<String> grams = FlightSearchIndex.grams(code);
+            grams.addAll(FlightSearchIndex.grams(city));
+            grams.addAll(FlightSearchIndex.grams(name));
+            return grams;
+        }
+
+        Set<String> terms() {
+            Set<String> terms = new HashSet<>();
+            for (String term : new String[]{code, city, name}) {
+                if (!term.isEmpty()) {
+                    terms.add(term);
+                }
+            }
+            return terms;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.lowflightzone.index;
+
+import com.example.lowflightzone.dto.SuggestionDto;
+import com.example.lowflightzone.entity.Airport;
+import com.example.lowflightzone.entity.Flight;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Префиксные подсказки для строки поиска (/flights/suggest): номера рейсов, IATA-коды,
+ * города и названия аэропортов (кириллица и латиница) в одном radix trie.
+ * Обновляется точечно на каждой записи рейса или аэропорта, без похода в БД на чтении.
+ */
+@Slf4j
+@Component
+public class FlightSuggestIndex {
+
+    /** Тип подсказки; порядок объявления = приоритет при совпадении текста */
+    public enum SuggestionType {
+        IATA, FLIGHT, CITY, AIRPORT
+    }
+
+    private static final SuggestionType[] TYPES = SuggestionType.values();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final RadixTrie trie = new RadixTrie(TYPES.length);
+
+    // Что уже внесено в trie — чтобы при обновлении снять старые ключи
+    private final Map<Integer, String> flightNumbers = new HashMap<>();
+    private final Map<String, Airport> airports = new HashMap<>();
+
+    private volatile boolean loaded;
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public void rebuild(Collection<Airport> airportList, Collection<Flight> flightList) {
+        lock.writeLock().lock();
+        try {
+            trie.clear();
+            flightNumbers.clear();
+            airports.clear();
+            for (Airport airport : airportList) {
+                putAirportLocked(airport);
+            }
+            for (Flight flight : flightList) {
+                putFlightLocked(flight.getId(), flight.getFlightNumber());
+            }
+            loaded = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("💡 Индекс подсказок построен: {} ключей", trie.size());
+    }
+
+    public void putFlight(Flight flight) {
+        if (flight == null || flight.getId() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            putFlightLocked(flight.getId(), flight.getFlightNumber());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void removeFlight(Integer flightId) {
+        lock.writeLock().lock();
+        try {
+            String previous = flightNumbers.remove(flightId);
+            if (previous != null) {
+                trie.remove(normalize(previous), SuggestionType.FLIGHT.ordinal());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putAirport(Airport airport) {
+        if (airport == null || airport.getIataCode() == null) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            putAirportLocked(airport);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<SuggestionDto> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+
+        List<RadixTrie.Match> matches;
+        lock.readLock().lock();
+        try {
+            matches = trie.complete(key, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<SuggestionDto> suggestions = new ArrayList<>(matches.size());
+        for (RadixTrie.Match match : matches) {
+            for (SuggestionType type : TYPES) {
+                if (match.has(type.ordinal())) {
+                    suggestions.add(new SuggestionDto(match.display(), type.name()));
+                    break;
+                }
+            }
+        }
+        return suggestions;
+    }
+
+    // ----- внутренняя кухня (вызывается под write lock) -----
+
+    private void putFlightLocked(Integer flightId, String flightNumber) {
+        String previous = flightNumbers.put(flightId, flightNumber);
+        if (previous != null) {
+            trie.remove(normalize(previous), SuggestionType.FLIGHT.ordinal());
+        }
+        add(flightNumber, SuggestionType.FLIGHT);
+    }
+
+    private void putAirportLocked(Airport airport) {
+        Airport previous = airports.put(airport.getIataCode(), copyOf(airport));
+        if (previous != null) {
+            remove(previous.getIataCode(), SuggestionType.IATA);
+            remove(previous.getCity(), SuggestionType.CITY);
+            remove(previous.getName(), SuggestionType.AIRPORT);
+        }
+        add(airport.getIataCode(), SuggestionType.IATA);
+        add(airport.getCity(), SuggestionType.CITY);
+        add(airport.getName(), SuggestionType.AIRPORT);
+    }
+
+    private void add(String value, SuggestionType type) {
+        String key = normalize(value);
+        if (!key.isEmpty()) {
+            trie.add(key, value.trim(), type.ordinal());
+        }
+    }
+
+    private void remove(String value, SuggestionType type) {
+        String key = normalize(value);
+        if (!key.isEmpty()) {
+            trie.remove(key, type.ordinal());
+        }
+    }
+
+    /** Снимок полей, попавших в trie: сущность может быть изменена снаружи */
+    private static Airport copyOf(Airport airport) {
+        Airport copy = new Airport();
+        copy.setIataCode(airport.getIataCode());
+        copy.setCity(airport.getCity());
+        copy.setName(airport.getName());
+        return copy;
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+}
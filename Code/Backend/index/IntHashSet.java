@@ -0,0 +1,87 @@
+package com.example.lowflightzone.index;
+
+import java.util.Collection;
+
+/**
+ * Неизменяемое множество примитивных int на открытой адресации (линейное пробирование).
+ * Без боксинга и узлов HashSet: таблица — один int[], contains — O(1) без аллокаций.
+ */
+public final class IntHashSet {
+
+    public static final IntHashSet EMPTY = new IntHashSet(new int[1], 0, false);
+
+    // 0 — маркер пустой ячейки; сам 0 хранится флагом
+    private static final int FREE = 0;
+
+    private final int[] table;
+    private final int size;
+    private final boolean containsZero;
+
+    private IntHashSet(int[] table, int size, boolean containsZero) {
+        this.table = table;
+        this.size = size;
+        this.containsZero = containsZero;
+    }
+
+    public static IntHashSet of(Collection<Integer> values) {
+        if (values.isEmpty()) {
+            return EMPTY;
+        }
+        // заполненность ≤ 50%, размер — степень двойки
+        int capacity = Integer.highestOneBit(Math.max(values.size(), 1) * 2 - 1) << 1;
+        int[] table = new int[capacity];
+        int mask = capacity - 1;
+        int size = 0;
+        boolean containsZero = false;
+        for (Integer boxed : values) {
+            if (boxed == null) {
+                continue;
+            }
+            int value = boxed;
+            if (value == FREE) {
+                if (!containsZero) {
+                    containsZero = true;
+                    size++;
+                }
+                continue;
+            }
+            int slot = hash(value) & mask;
+            while (table[slot] != FREE && table[slot] != value) {
+                slot = (slot + 1) & mask;
+            }
+            if (table[slot] == FREE) {
+                table[slot] = value;
+                size++;
+            }
+        }
+        return new IntHashSet(table, size, containsZero);
+    }
+
+    public boolean contains(int value) {
+        if (value == FREE) {
+            return containsZero;
+        }
+        int mask = table.length - 1;
+        int slot = hash(value) & mask;
+        while (table[slot] != FREE) {
+            if (table[slot] == value) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private static int hash(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,275 @@
+package com.example.lowflightzone.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Сжатый префиксный (radix) trie: рёбра помечены строками, дети хранятся в отсортированных массивах.
+ * Каждый терминал хранит счётчики ссылок по типам значения, поэтому одно и то же слово
+ * (например, город и одноимённый аэропорт) может жить в trie несколько раз и удаляться независимо.
+ * <p>
+ * Не потокобезопасен — синхронизация на стороне владельца.
+ */
+public class RadixTrie {
+
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final int kinds;
+    private final Node root = new Node("");
+    private int size;
+
+    /**
+     * @param kinds количество типов значений (например, ordinal-ы enum)
+     */
+    public RadixTrie(int kinds) {
+        this.kinds = kinds;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        root.keys = NO_KEYS;
+        root.children = NO_CHILDREN;
+        root.terminal = null;
+        size = 0;
+    }
+
+    /** Добавить ссылку на ключ указанного типа */
+    public void add(String key, String display, int kind) {
+        Node node = root;
+        int pos = 0;
+        while (pos < key.length()) {
+            int idx = node.indexOf(key.charAt(pos));
+            if (idx < 0) {
+                node.insertChild(new Node(key.substring(pos)));
+                node = node.children[node.indexOf(key.charAt(pos))];
+                pos = key.length();
+                break;
+            }
+            Node child = node.children[idx];
+            int common = commonPrefix(child.label, key, pos);
+            if (common < child.label.length()) {
+                // ✂️ Делим ребро: общий префикс становится промежуточным узлом
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.insertChild(child);
+                node.children[idx] = middle;
+                child = middle;
+            }
+            node = child;
+            pos += common;
+        }
+
+        if (node.terminal == null) {
+            node.terminal = new Terminal(display, new int[kinds]);
+            size++;
+        }
+        node.terminal.refs[kind]++;
+    }
+
+    /** Снять ссылку на ключ указанного типа; узлы без терминалов подчищаются */
+    public void remove(String key, int kind) {
+        remove(root, key, 0, kind);
+    }
+
+    private boolean remove(Node node, String key, int pos, int kind) {
+        if (pos == key.length()) {
+            if (node.terminal == null || node.terminal.refs[kind] == 0) {
+                return false;
+            }
+            node.terminal.refs[kind]--;
+            if (node.terminal.isEmpty()) {
+                node.terminal = null;
+                size--;
+            }
+            return true;
+        }
+
+        int idx = node.indexOf(key.charAt(pos));
+        if (idx < 0) {
+            return false;
+        }
+        Node child = node.children[idx];
+        if (!key.startsWith(child.label, pos)) {
+            return false;
+        }
+        boolean removed = remove(child, key, pos + child.label.length(), kind);
+        if (removed && child.terminal == null) {
+            if (child.children.length == 0) {
+                node.removeChild(idx);
+            } else if (child.children.length == 1) {
+                // 🔗 Склеиваем цепочку из одного ребёнка обратно в одно ребро
+                Node only = child.children[0];
+                only.label = child.label + only.label;
+                node.children[idx] = only;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * До limit завершений префикса: сначала самые короткие, при равной длине — по алфавиту.
+     * Обход best-first по длине, поэтому стоимость зависит от limit, а не от размера поддерева.
+     */
+    public List<Match> complete(String prefix, int limit) {
+        List<Match> result = new ArrayList<>(limit);
+
+        Node node = root;
+        int pos = 0;
+        StringBuilder path = new StringBuilder();
+        while (pos < prefix.length()) {
+            int idx = node.indexOf(prefix.charAt(pos));
+            if (idx < 0) {
+                return result;
+            }
+            Node child = node.children[idx];
+            int common = commonPrefix(child.label, prefix, pos);
+            if (common < child.label.length() && pos + common < prefix.length()) {
+                return result;
+            }
+            path.append(child.label);
+            node = child;
+            pos += common;
+        }
+
+        PriorityQueue<Candidate> queue = new PriorityQueue<>();
+        queue.add(new Candidate(node, path.toString(), 0));
+        long order = 1;
+        while (!queue.isEmpty() && result.size() < limit) {
+            Candidate candidate = queue.poll();
+            if (candidate.node == null) {
+                result.add(candidate.match);
+                continue;
+            }
+            Node current = candidate.node;
+            if (current.terminal != null) {
+                queue.add(new Candidate(new Match(candidate.key, current.terminal.display, current.terminal.refs.clone()),
+                        candidate.key.length(), order++));
+            }
+            for (Node child : current.children) {
+                queue.add(new Candidate(child, candidate.key + child.label, order++));
+            }
+        }
+        return result;
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /** Завершение префикса: нормализованный ключ, исходное написание и счётчики по типам */
+    public record Match(String key, String display, int[] refs) {
+
+        public boolean has(int kind) {
+            return refs[kind] > 0;
+        }
+    }
+
+    private record Terminal(String display, int[] refs) {
+
+        boolean isEmpty() {
+            for (int ref : refs) {
+                if (ref > 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Элемент очереди обхода: либо узел (раскрываем детей), либо готовое совпадение.
+     * Узел встаёт в очередь по длине своей минимально возможной строки — её пути.
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+        private final Node node;
+        private final Match match;
+        private final String key;
+        private final int length;
+        private final long order;
+
+        Candidate(Node node, String key, long order) {
+            this.node = node;
+            this.match = null;
+            this.key = key;
+            this.length = key.length();
+            this.order = order;
+        }
+
+        Candidate(Match match, int length, long order) {
+            this.node = null;
+            this.match = match;
+            this.key = match.key();
+            this.length = length;
+            this.order = order;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            if (length != other.length) {
+                return Integer.compare(length, other.length);
+            }
+            int byKey = key.compareTo(other.key);
+            if (byKey != 0) {
+                return byKey;
+            }
+            // готовое совпадение раньше узла с тем же путём
+            if ((node == null) != (other.node == null)) {
+                return node == null ? -1 : 1;
+            }
+            return Long.compare(order, other.order);
+        }
+    }
+
+    private static final class Node {
+        private String label;
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private Terminal terminal;
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        int indexOf(char c) {
+            int idx = Arrays.binarySearch(keys, c);
+            return idx >= 0 ? idx : -1;
+        }
+
+        void insertChild(Node child) {
+            char c = child.label.charAt(0);
+            int insertAt = -(Arrays.binarySearch(keys, c) + 1);
+            char[] newKeys = new char[keys.length + 1];
+            Node[] newChildren = new Node[children.length + 1];
+            System.arraycopy(keys, 0, newKeys, 0, insertAt);
+            System.arraycopy(children, 0, newChildren, 0, insertAt);
+            newKeys[insertAt] = c;
+            newChildren[insertAt] = child;
+            System.arraycopy(keys, insertAt, newKeys, insertAt + 1, keys.length - insertAt);
+            System.arraycopy(children, insertAt, newChildren, insertAt + 1, children.length - insertAt);
+            keys = newKeys;
+            children = newChildren;
+        }
+
+        void removeChild(int idx) {
+            char[] newKeys = new char[keys.length - 1];
+            Node[] newChildren = new Node[children.length - 1];
+            System.arraycopy(keys, 0, newKeys, 0, idx);
+            System.arraycopy(children, 0, newChildren, 0, idx);
+            System.arraycopy(keys, idx + 1, newKeys, idx, keys.length - idx - 1);
+            System.arraycopy(children, idx + 1, newChildren, idx, children.length - idx - 1);
+            keys = newKeys;
+            children = newChildren;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.lowflightzone.index;
+
+import java.util.Locale;
+
+/**
+ * Каноническая форма строк для поиска: нижний регистр + транслитерация кириллицы в латиницу.
+ * Поэтому «Москва», «москва» и «Moskva» дают один и тот же ключ "moskva",
+ * а номер рейса дополнительно схлопывается без пробелов и дефисов ("SU 1234" → "su1234").
+ */
+public final class SearchNormalizer {
+
+    private static final String[] CYRILLIC_TO_LATIN = new String[64];
+
+    static {
+        String[] table = {
+                "a", "b", "v", "g", "d", "e", "zh", "z", "i", "y", "k", "l", "m", "n", "o", "p",
+                "r", "s", "t", "u", "f", "kh", "ts", "ch", "sh", "shch", "", "y", "", "e", "yu", "ya"
+        };
+        // 'а'..'я' идут подряд (U+0430..U+044F), 'ё' — отдельно
+        System.arraycopy(table, 0, CYRILLIC_TO_LATIN, 0, table.length);
+    }
+
+    private SearchNormalizer() {
+    }
+
+    /** Нижний регистр, обрезка пробелов, кириллица → латиница */
+    public static String canonical(String value) {
+        if (value == null) {
+            return "";
+        }
+        String lower = value.trim().toLowerCase(Locale.ROOT);
+        StringBuilder sb = null;
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            String replacement = null;
+            if (c >= 'а' && c <= 'я') {
+                replacement = CYRILLIC_TO_LATIN[c - 'а'];
+            } else if (c == 'ё') {
+                replacement = "e";
+            }
+            if (replacement != null && sb == null) {
+                sb = new StringBuilder(lower.length() + 8);
+                sb.append(lower, 0, i);
+            }
+            if (sb != null) {
+                if (replacement != null) {
+                    sb.append(replacement);
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+        return sb != null ? sb.toString() : lower;
+    }
+
+    /** Каноническая форма номера рейса: без пробелов, дефисов и прочих разделителей */
+    public static String compact(String canonical) {
+        StringBuilder sb = new StringBuilder(canonical.length());
+        for (int i = 0; i < canonical.length(); i++) {
+            char c = canonical.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    /** Допустимое число опечаток для запроса такой длины */
+    public static int maxTypos(String query) {
+        if (query.length() <= 3) {
+            return 0;
+        }
+        return query.length() <= 7 ? 1 : 2;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.lowflightzone.index;
+
+import com.example.lowflightzone.dao.FlightSubscriptionDao;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш «на какие рейсы подписан пользователь»: email → множество id рейсов с ACTIVE-подпиской.
+ * Флаг subscribed в списках ставится поиском в {@link IntHashSet} вместо запроса/обхода подписок на каждую строку.
+ * <p>
+ * Запись сбрасывается при подписке/отписке. Загрузка, начатая до сброса, в кэш не попадает
+ * (проверка поколения), а внутри транзакции сброс повторяется после коммита.
+ */
+@Component
+public class SubscribedFlightsCache {
+
+    private static final int MAX_USERS = 10_000;
+
+    private final FlightSubscriptionDao subscriptionDao;
+    private final Map<String, IntHashSet> flightIdsByUser = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    public SubscribedFlightsCache(FlightSubscriptionDao subscriptionDao) {
+        this.subscriptionDao = subscriptionDao;
+    }
+
+    /** id рейсов с активной подпиской пользователя; для анонимного — пустое множество */
+    public IntHashSet flightIdsOf(String userEmail) {
+        if (userEmail == null || userEmail.isBlank()) {
+            return IntHashSet.EMPTY;
+        }
+        String key = key(userEmail);
+        IntHashSet cached = flightIdsByUser.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        long loadedAt = generation.get();
+        IntHashSet loaded = IntHashSet.of(subscriptionDao.findActiveFlightIdsByUserEmail(key));
+        if (generation.get() == loadedAt) {
+            if (flightIdsByUser.size() >= MAX_USERS) {
+                // 🧹 Грубое вытеснение: кэш дешёво прогревается заново
+                flightIdsByUser.clear();
+            }
+            flightIdsByUser.put(key, loaded);
+        }
+        return loaded;
+    }
+
+    public boolean isSubscribed(String userEmail, Integer flightId) {
+        return flightId != null && flightIdsOf(userEmail).contains(flightId);
+    }
+
+    /** Сбросить запись пользователя (после подписки/отписки) */
+    public void invalidate(String userEmail) {
+        if (userEmail == null) {
+            return;
+        }
+        String key = key(userEmail);
+        evict(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(key);
+                }
+            });
+        }
+    }
+
+    private void evict(String key) {
+        generation.incrementAndGet();
+        flightIdsByUser.remove(key);
+    }
+
+    private static String key(String userEmail) {
+        return userEmail.trim().toLowerCase(Locale.ROOT);
+    }
+}
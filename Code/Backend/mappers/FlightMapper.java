@@ -0,0 +1,120 @@
+package com.example.lowflightzone.mappers;
+
+import com.example.lowflightzone.dto.AirportDto;
+import com.example.lowflightzone.dto.FlightDto;
+import com.example.lowflightzone.entity.Airport;
+import com.example.lowflightzone.entity.Flight;
+import com.example.lowflightzone.index.AirportRegistry;
+import com.example.lowflightzone.repositories.projections.FlightRow;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Единый маппинг Flight → FlightDto и Airport → AirportDto.
+ * <p>
+ * Аэропортов несколько десятков, поэтому AirportDto берётся готовым из {@link AirportRegistry}
+ * и переиспользуется всеми рейсами: на рейс аллоцируется только сам FlightDto.
+ * AirportDto неизменяемый, поэтому общий экземпляр безопасно отдавать в любой ответ.
+ */
+@Component
+public class FlightMapper {
+
+    private final AirportRegistry airportRegistry;
+
+    public FlightMapper(AirportRegistry airportRegistry) {
+        this.airportRegistry = airportRegistry;
+    }
+
+    public FlightDto toDto(Flight flight, int subscriptionCount) {
+        FlightDto dto = new FlightDto();
+        dto.setId(flight.getId());
+        dto.setFlightNumber(flight.getFlightNumber());
+        dto.setAirline(flight.getAirline());
+        dto.setDepartureAirport(toDto(flight.getDepartureAirport()));
+        dto.setArrivalAirport(toDto(flight.getArrivalAirport()));
+
+        dto.setScheduledDeparture(flight.getScheduledDeparture());
+        dto.setScheduledArrival(flight.getScheduledArrival());
+        dto.setEstimatedDeparture(flight.getEstimatedDeparture());
+        dto.setEstimatedArrival(flight.getEstimatedArrival());
+        dto.setActualDeparture(flight.getActualDeparture());
+        dto.setActualArrival(flight.getActualArrival());
+        dto.setStatus(flight.getStatus() != null ? flight.getStatus().name() : null);
+        dto.setDelayMinutes(flight.getDelayMinutes());
+        dto.setTerminal(flight.getTerminal());
+        dto.setGate(flight.getGate());
+        dto.setLastUpdated(flight.getLastUpdated());
+        dto.setSubscriptionCount(subscriptionCount);
+        return dto;
+    }
+
+    /** Пачка рейсов за один проход в заранее выделенный список; рейсов без подписок в карте может не быть */
+    public List<FlightDto> toDtos(List<Flight> flights, Map<Integer, Integer> subscriptionCounts) {
+        List<FlightDto> result = new ArrayList<>(flights.size());
+        for (Flight flight : flights) {
+            Integer count = subscriptionCounts.get(flight.getId());
+            result.add(toDto(flight, count != null ? count : 0));
+        }
+        return result;
+    }
+
+    /** Строка-проекция рейса → DTO; аэропорты по коду из справочника */
+    public FlightDto toDto(FlightRow row, int subscriptionCount) {
+        FlightDto dto = new FlightDto();
+        dto.setId(row.id());
+        dto.setFlightNumber(row.flightNumber());
+        dto.setAirline(row.airline());
+        dto.setDepartureAirport(airportDto(row.departureAirportCode()));
+        dto.setArrivalAirport(airportDto(row.arrivalAirportCode()));
+
+        dto.setScheduledDeparture(row.scheduledDeparture());
+        dto.setScheduledArrival(row.scheduledArrival());
+        dto.setEstimatedDeparture(row.estimatedDeparture());
+        dto.setEstimatedArrival(row.estimatedArrival());
+        dto.setActualDeparture(row.actualDeparture());
+        dto.setActualArrival(row.actualArrival());
+        dto.setStatus(row.status() != null ? row.status().name() : null);
+        dto.setDelayMinutes(row.delayMinutes());
+        dto.setTerminal(row.terminal());
+        dto.setGate(row.gate());
+        dto.setLastUpdated(row.lastUpdated());
+        dto.setSubscriptionCount(subscriptionCount);
+        return dto;
+    }
+
+    public List<FlightDto> rowsToDtos(List<FlightRow> rows, Map<Integer, Integer> subscriptionCounts) {
+        List<FlightDto> result = new ArrayList<>(rows.size());
+        for (FlightRow row : rows) {
+            Integer count = subscriptionCounts.get(row.id());
+            result.add(toDto(row, count != null ? count : 0));
+        }
+        return result;
+    }
+
+    /**
+     * AirportDto по коду из справочника. До загрузки справочника (короткое окно на старте)
+     * — DTO только с кодом: проекция аэропорт не читает.
+     */
+    public AirportDto airportDto(String iataCode) {
+        if (iataCode == null) {
+            return null;
+        }
+        AirportDto shared = airportRegistry.findDto(iataCode);
+        if (shared != null) {
+            return shared;
+        }
+        return AirportDto.builder().iataCode(iataCode).build();
+    }
+
+    /** Общий AirportDto из справочника; до его загрузки — свежий экземпляр */
+    public AirportDto toDto(Airport airport) {
+        if (airport == null || airport.getIataCode() == null) {
+            return null;
+        }
+        AirportDto shared = airportRegistry.findDto(airport.getIataCode());
+        return shared != null ? shared : AirportRegistry.toDto(airport);
+    }
+}
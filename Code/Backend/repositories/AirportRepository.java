@@ -1,13 +1,22 @@
 package com.example.lowflightzone.repositories;
 
 import com.example.lowflightzone.entity.Airport;
+import com.example.lowflightzone.entity.CacheRegions;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface AirportRepository extends JpaRepository<Airport, String> {
+    // Кэшируемый запрос по справочнику; аэропорт — из региона сущностей
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheRegions.REFERENCE_QUERIES)
+    })
     Optional<Airport> findByIataCode(String iataCode);
     List<Airport> findByCityContainingIgnoreCase(String city);
     List<Airport> findByCountryContainingIgnoreCase(String country);
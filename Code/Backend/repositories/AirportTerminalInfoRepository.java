@@ -1,7 +1,11 @@
 package com.example.lowflightzone.repositories;
 
 import com.example.lowflightzone.entity.AirportTerminalInfo;
+import com.example.lowflightzone.entity.CacheRegions;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,7 +13,17 @@ import java.util.Optional;
 
 @Repository
 public interface AirportTerminalInfoRepository extends JpaRepository<AirportTerminalInfo, Integer> {
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheRegions.REFERENCE_QUERIES)
+    })
     Optional<AirportTerminalInfo> findByAirport_IataCodeAndTerminal(String airportCode, String terminal);
+
+    // Кэшируемый запрос: терминалы аэропорта меняются редко
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheRegions.REFERENCE_QUERIES)
+    })
     List<AirportTerminalInfo> findByAirport_IataCode(String airportCode);
 
     // Добавляем метод для поиска по нескольким уровням загруженности
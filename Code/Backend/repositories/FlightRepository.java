@@ -1,39 +1,45 @@
 package com.example.lowflightzone.repositories;
 
+import com.example.lowflightzone.entity.CacheRegions;
 import com.example.lowflightzone.entity.Flight;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface FlightRepository extends JpaRepository<Flight, Integer> {
+public interface FlightRepository extends JpaRepository<Flight, Integer>, JpaSpecificationExecutor<Flight> {
 
+    // Кэшируемый запрос: в кэше только id, сам рейс — из региона сущностей
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = CacheRegions.FLIGHT_QUERIES)
+    })
     Optional<Flight> findByFlightNumber(String flightNumber);
 
     boolean existsByFlightNumber(String flightNumber);
 
-    List<Flight> findByFlightNumberContainingIgnoreCaseOrDepartureAirport_CityContainingIgnoreCaseOrArrivalAirport_CityContainingIgnoreCaseOrDepartureAirport_IataCodeContainingIgnoreCaseOrArrivalAirport_IataCodeContainingIgnoreCaseOrDepartureAirport_NameContainingIgnoreCaseOrArrivalAirport_NameContainingIgnoreCase(
-            String flightNumber,
-            String depCity,
-            String arrCity,
-            String depIata,
-            String arrIata,
-            String depName,
-            String arrName
-    );
-
-    @Query("""
-    SELECT f FROM Flight f
-    LEFT JOIN FETCH f.departureAirport
-    LEFT JOIN FETCH f.arrivalAirport
-    LEFT JOIN FETCH f.subscriptions s
-    LEFT JOIN FETCH s.user
-    WHERE f.id = :id
-""")
-    Optional<Flight> findByIdWithDetails(@Param("id") Integer id);
+    List<Flight> findByFlightNumberIn(Collection<String> flightNumbers);
+
+    // Все номера рейсов — для проверки дубликатов при импорте
+    @Query("SELECT f.flightNumber FROM Flight f")
+    List<String> findAllFlightNumbers();
+
+    // Номера рейсов по префиксу (шаблон уже в нижнем регистре и экранирован для LIKE) — подсказки до загрузки индекса
+    @Query("SELECT f.flightNumber FROM Flight f WHERE LOWER(f.flightNumber) LIKE :prefix ESCAPE '\\' ORDER BY f.flightNumber")
+    List<String> findFlightNumbersByPrefix(@Param("prefix") String prefix, Pageable pageable);
+
+    // Какие из id ещё существуют — без загрузки сущностей
+    @Query("SELECT f.id FROM Flight f WHERE f.id IN :ids")
+    List<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
 
 }
@@ -0,0 +1,198 @@
+package com.example.lowflightzone.repositories;
+
+import com.example.lowflightzone.dto.FlightFilter;
+import com.example.lowflightzone.dto.PageCursor;
+import com.example.lowflightzone.entity.Flight;
+import com.example.lowflightzone.repositories.projections.FlightRow;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Criteria-спецификации для выборки рейсов одним параметризованным запросом.
+ * Порядок предикатов (аэропорт, статус, время вылета) совпадает с составными индексами на flights.
+ */
+public final class FlightSpecifications {
+
+    /**
+     * Поля, по которым разрешена сортировка и keyset-пагинация.
+     * nullable — колонка в схеме допускает NULL: такие строки идут в конце (см. keysetSort и after).
+     */
+    public enum SortKey {
+        SCHEDULED_DEPARTURE("scheduledDeparture", true, LocalDateTime::parse, FlightRow::scheduledDeparture),
+        FLIGHT_NUMBER("flightNumber", false, value -> value, FlightRow::flightNumber),
+        AIRLINE("airline", false, value -> value, FlightRow::airline),
+        STATUS("status", true, Flight.FlightStatus::valueOf, FlightRow::status),
+        DELAY_MINUTES("delayMinutes", true, Integer::valueOf, FlightRow::delayMinutes);
+
+        private final String attribute;
+        private final boolean nullable;
+        private final Function<String, Comparable<?>> parser;
+        private final Function<FlightRow, Object> extractor;
+
+        SortKey(String attribute, boolean nullable, Function<String, Comparable<?>> parser,
+                Function<FlightRow, Object> extractor) {
+            this.attribute = attribute;
+            this.nullable = nullable;
+            this.parser = parser;
+            this.extractor = extractor;
+        }
+
+        public String getAttribute() {
+            return attribute;
+        }
+
+        /** null — ключ курсора не задан (строка без значения колонки) */
+        public Comparable<?> parse(String value) {
+            return value == null ? null : parser.apply(value);
+        }
+
+        public PageCursor cursorOf(FlightRow flight) {
+            return PageCursor.of(extractor.apply(flight), flight.id());
+        }
+
+        public static SortKey fromAttribute(String attribute) {
+            for (SortKey key : values()) {
+                if (key.attribute.equals(attribute)) {
+                    return key;
+                }
+            }
+            return null;
+        }
+    }
+
+    private FlightSpecifications() {
+    }
+
+    public static Specification<Flight> byFilter(FlightFilter filter) {
+        return (root, query, cb) -> {
+            // ✈️ Аэропорты подтягиваем тем же запросом, без N+1 на EAGER-связях
+            fetchAirports(root, query);
+
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (filter.getDepartureAirport() != null) {
+                predicates.add(cb.equal(root.get("departureAirport").get("iataCode"), filter.getDepartureAirport()));
+            }
+            if (filter.getArrivalAirport() != null) {
+                predicates.add(cb.equal(root.get("arrivalAirport").get("iataCode"), filter.getArrivalAirport()));
+            }
+            if (filter.getStatus() != null) {
+                Flight.FlightStatus status = parseStatus(filter.getStatus());
+                predicates.add(status != null ? cb.equal(root.get("status"), status) : cb.disjunction());
+            }
+            if (filter.getDepartureFrom() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("scheduledDeparture"), filter.getDepartureFrom()));
+            }
+            if (filter.getDepartureTo() != null) {
+                predicates.add(cb.lessThan(root.get("scheduledDeparture"), filter.getDepartureTo()));
+            }
+            if (filter.getAirline() != null) {
+                predicates.add(cb.equal(cb.lower(root.get("airline")), filter.getAirline().toLowerCase()));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /** Подстрока в номере рейса, IATA-кодах, городах или названиях аэропортов */
+    public static Specification<Flight> matchesText(String text) {
+        return (root, query, cb) -> {
+            fetchAirports(root, query);
+
+            String pattern = "%" + text.toLowerCase() + "%";
+            return cb.or(
+                    cb.like(cb.lower(root.get("flightNumber")), pattern),
+                    cb.like(cb.lower(root.get("departureAirport").get("city")), pattern),
+                    cb.like(cb.lower(root.get("arrivalAirport").get("city")), pattern),
+                    cb.like(cb.lower(root.get("departureAirport").get("iataCode")), pattern),
+                    cb.like(cb.lower(root.get("arrivalAirport").get("iataCode")), pattern),
+                    cb.like(cb.lower(root.get("departureAirport").get("name")), pattern),
+                    cb.like(cb.lower(root.get("arrivalAirport").get("name")), pattern)
+            );
+        };
+    }
+
+    /**
+     * Табло аэропорта: рейсы с вылетом/прилётом в аэропорту (airportAttribute) не раньше from
+     * по времени timeAttribute, опционально только заданного терминала.
+     */
+    public static Specification<Flight> board(String airportAttribute, String iataCode, String timeAttribute,
+                                              LocalDateTime from, String terminal) {
+        return (root, query, cb) -> {
+            fetchAirports(root, query);
+
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(cb.equal(root.get(airportAttribute).get("iataCode"), iataCode));
+            if (from != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get(timeAttribute), from));
+            }
+            if (terminal != null) {
+                predicates.add(cb.equal(root.get("terminal"), terminal));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Keyset-условие «строго после курсора» для сортировки (key, id) в заданном направлении, null-ключи — в конце
+     * (порядок {@link #keysetSort}, как у компаратора табло). null-курсор — первая страница, условие не добавляется.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Specification<Flight> after(SortKey key, PageCursor cursor, Sort.Direction direction) {
+        return (root, query, cb) -> {
+            if (cursor == null) {
+                return null;
+            }
+            Comparable value = key.parse(cursor.getKey());
+            Path<Comparable> keyPath = root.get(key.attribute);
+            Expression<Integer> idPath = root.get("id");
+
+            if (value == null) {
+                // дальше только строки без ключа, по id
+                return cb.and(cb.isNull(keyPath), direction.isAscending()
+                        ? cb.greaterThan(idPath, cursor.getId())
+                        : cb.lessThan(idPath, cursor.getId()));
+            }
+            Predicate beyond = direction.isAscending() ? cb.greaterThan(keyPath, value) : cb.lessThan(keyPath, value);
+            Predicate sameKey = cb.and(cb.equal(keyPath, value), direction.isAscending()
+                    ? cb.greaterThan(idPath, cursor.getId())
+                    : cb.lessThan(idPath, cursor.getId()));
+            return key.nullable
+                    ? cb.or(beyond, sameKey, cb.isNull(keyPath))
+                    : cb.or(beyond, sameKey);
+        };
+    }
+
+    /** Порядок keyset-пагинации: (key, id) в направлении direction, null-ключи — в конце (NULLS LAST) */
+    public static Sort keysetSort(SortKey key, Sort.Direction direction) {
+        Sort.Order byKey = new Sort.Order(direction, key.attribute);
+        return Sort.by(key.nullable ? byKey.nullsLast() : byKey, new Sort.Order(direction, "id"));
+    }
+
+    private static void fetchAirports(Root<Flight> root, CriteriaQuery<?> query) {
+        // fetch допустим только при выборке самих сущностей (не count и не проекции)
+        if (query.getResultType() == Flight.class && root.getFetches().isEmpty()) {
+            root.fetch("departureAirport", JoinType.INNER);
+            root.fetch("arrivalAirport", JoinType.INNER);
+        }
+    }
+
+    private static Flight.FlightStatus parseStatus(String status) {
+        try {
+            return Flight.FlightStatus.valueOf(status);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -1,11 +1,15 @@
 package com.example.lowflightzone.repositories;
 
 import com.example.lowflightzone.entity.FlightSubscription;
+import com.example.lowflightzone.repositories.projections.PushTargetRow;
+import com.example.lowflightzone.repositories.projections.SubscriptionRow;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,6 +23,26 @@ public interface FlightSubscriptionRepository extends JpaRepository<FlightSubscr
 
     List<FlightSubscription> findByStatus(FlightSubscription.SubscriptionStatus status);
 
+    // Keyset-страница подписок пользователя проекцией (по id; рейс — только id)
+    @Query(SubscriptionRow.SELECT +
+            "WHERE u.email = :userEmail AND fs.status = :status AND fs.id > :afterId ORDER BY fs.id")
+    List<SubscriptionRow> findPageByUserEmailAndStatus(
+            @Param("userEmail") String userEmail,
+            @Param("status") FlightSubscription.SubscriptionStatus status,
+            @Param("afterId") Integer afterId,
+            Pageable pageable
+    );
+
+    // Keyset-страница подписчиков рейса проекцией (по id; рейс — только id)
+    @Query(SubscriptionRow.SELECT + "JOIN fs.flight f " +
+            "WHERE f.flightNumber = :flightNumber AND fs.status = :status AND fs.id > :afterId ORDER BY fs.id")
+    List<SubscriptionRow> findPageByFlightNumberAndStatus(
+            @Param("flightNumber") String flightNumber,
+            @Param("status") FlightSubscription.SubscriptionStatus status,
+            @Param("afterId") Integer afterId,
+            Pageable pageable
+    );
+
     // Поиск подписок на конкретный рейс по его номеру и статусу
     @Query("SELECT fs FROM FlightSubscription fs " +
             "WHERE fs.flight.flightNumber = :flightNumber AND fs.status = :status")
@@ -55,9 +79,9 @@ public interface FlightSubscriptionRepository extends JpaRepository<FlightSubscr
 
 
 
-    // Активные подписки пользователя
-    @Query("SELECT fs FROM FlightSubscription fs WHERE fs.user.id = :userId AND fs.status = 'ACTIVE'")
-    List<FlightSubscription> findActiveSubscriptionsByUserId(Integer userId);
+    // Активные подписки пользователя проекцией
+    @Query(SubscriptionRow.SELECT + "WHERE u.id = :userId AND fs.status = 'ACTIVE' ORDER BY fs.id")
+    List<SubscriptionRow> findActiveRowsByUserId(@Param("userId") Integer userId);
 
     // 🔎 Найти активную подписку по email пользователя и номеру рейса
     Optional<FlightSubscription> findByUser_EmailAndFlight_FlightNumberAndStatus(
@@ -70,5 +94,48 @@ public interface FlightSubscriptionRepository extends JpaRepository<FlightSubscr
 
     List<FlightSubscription> findAllByFlightIdAndStatus(Integer flightId, FlightSubscription.SubscriptionStatus status);
 
+    // id рейсов с подпиской пользователя (email без учёта регистра)
+    @Query("SELECT fs.flight.id FROM FlightSubscription fs " +
+            "WHERE LOWER(fs.user.email) = :userEmail AND fs.status = :status")
+    List<Integer> findFlightIdsByUserEmailAndStatus(
+            @Param("userEmail") String userEmail,
+            @Param("status") FlightSubscription.SubscriptionStatus status
+    );
+
+    // Адресаты push для пачки рейсов — только endpoint и ключи, без сущностей
+    @Query("SELECT new com.example.lowflightzone.repositories.projections.PushTargetRow(" +
+            "fs.id, fs.flight.id, fs.endpoint, fs.p256dh, fs.auth) FROM FlightSubscription fs " +
+            "WHERE fs.flight.id IN :flightIds AND fs.status = :status")
+    List<PushTargetRow> findPushTargets(
+            @Param("flightIds") Collection<Integer> flightIds,
+            @Param("status") FlightSubscription.SubscriptionStatus status
+    );
+
+    // 📊 Счётчики подписок агрегатом в БД — сами подписки не загружаются
+    long countByFlight_IdAndStatus(Integer flightId, FlightSubscription.SubscriptionStatus status);
+
+    long countByUser_IdAndStatus(Integer userId, FlightSubscription.SubscriptionStatus status);
+
+    // Строки [flightId, count] для пачки рейсов
+    @Query("SELECT fs.flight.id, COUNT(fs) FROM FlightSubscription fs " +
+            "WHERE fs.flight.id IN :flightIds AND fs.status = :status GROUP BY fs.flight.id")
+    List<Object[]> countGroupedByFlight(
+            @Param("flightIds") Collection<Integer> flightIds,
+            @Param("status") FlightSubscription.SubscriptionStatus status
+    );
+
+    // Строки [flightId, count] по всем рейсам (для загрузки табло)
+    @Query("SELECT fs.flight.id, COUNT(fs) FROM FlightSubscription fs " +
+            "WHERE fs.status = :status GROUP BY fs.flight.id")
+    List<Object[]> countGroupedByFlight(@Param("status") FlightSubscription.SubscriptionStatus status);
+
+    // Строки [userId, count] для пачки пользователей
+    @Query("SELECT fs.user.id, COUNT(fs) FROM FlightSubscription fs " +
+            "WHERE fs.user.id IN :userIds AND fs.status = :status GROUP BY fs.user.id")
+    List<Object[]> countGroupedByUser(
+            @Param("userIds") Collection<Integer> userIds,
+            @Param("status") FlightSubscription.SubscriptionStatus status
+    );
+
 
 }
@@ -3,12 +3,15 @@ package com.example.lowflightzone.repositories;
 import com.example.lowflightzone.entity.Flight;
 import com.example.lowflightzone.entity.FlightViewHistory;
 import com.example.lowflightzone.entity.User;
+import com.example.lowflightzone.repositories.projections.ViewHistoryRow;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -24,10 +27,29 @@ public interface FlightViewHistoryRepository extends JpaRepository<FlightViewHis
 
     Page<FlightViewHistory> findByUser_IdOrderByViewedAtDesc(Integer userId, Pageable pageable);
 
+    // Keyset-пагинация истории проекцией по (viewedAt DESC, id DESC): первая страница и страница после курсора
+    @Query(ViewHistoryRow.SELECT + "WHERE fvh.user.id = :userId ORDER BY fvh.viewedAt DESC, fvh.id DESC")
+    List<ViewHistoryRow> findFirstPageByUserId(@Param("userId") Integer userId, Pageable pageable);
+
+    @Query(ViewHistoryRow.SELECT + "WHERE fvh.user.id = :userId " +
+            "AND (fvh.viewedAt < :viewedAt OR (fvh.viewedAt = :viewedAt AND fvh.id < :afterId)) " +
+            "ORDER BY fvh.viewedAt DESC, fvh.id DESC")
+    List<ViewHistoryRow> findPageByUserIdAfter(@Param("userId") Integer userId,
+                                               @Param("viewedAt") LocalDateTime viewedAt,
+                                               @Param("afterId") Integer afterId,
+                                               Pageable pageable);
+
     Optional<FlightViewHistory> findTopByFlight_IdAndUser_EmailOrderByViewedAtDesc(Integer flightId, String email);
 
     Optional<FlightViewHistory> findByUserAndFlight(User user, Flight flight);
 
+    // Добавить просмотры к существующей записи одним UPDATE; 0 — записи ещё нет
+    @Modifying
+    @Query("UPDATE FlightViewHistory fvh SET fvh.viewCount = COALESCE(fvh.viewCount, 0) + :views, fvh.viewedAt = :viewedAt " +
+            "WHERE fvh.user.id = :userId AND fvh.flight.id = :flightId")
+    int addViews(@Param("userId") Integer userId, @Param("flightId") Integer flightId,
+                 @Param("views") int views, @Param("viewedAt") LocalDateTime viewedAt);
+
     Page<FlightViewHistory> findByUser_IdOrderByViewCountDescViewedAtDesc(Integer userId, Pageable pageable);
     // Проверить, существует ли запись
     boolean existsByUserIdAndFlightId(Integer userId, Integer flightId);
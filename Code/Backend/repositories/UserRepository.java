@@ -1,10 +1,12 @@
 package com.example.lowflightzone.repositories;
 
 import com.example.lowflightzone.entity.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,6 +20,13 @@ public interface UserRepository extends JpaRepository<User, Integer> {
 
     boolean existsByLastName(String lastName);
 
+    // Keyset-страница пользователей по id
+    List<User> findByIdGreaterThanOrderByIdAsc(Integer afterId, Pageable pageable);
+
+    // Пары (id, email) для пачки email-ов — без загрузки сущностей
+    @Query("SELECT u.id, u.email FROM User u WHERE u.email IN :emails")
+    List<Object[]> findIdsByEmails(@Param("emails") Collection<String> emails);
+
     @Query("SELECT u FROM User u JOIN u.subscriptions s WHERE s.flight.flightNumber = :flightNumber")
     List<User> findUsersSubscribedToFlight(@Param("flightNumber") String flightNumber);
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package com.example.lowflightzone.repositories.projections;
+
+import com.example.lowflightzone.entity.Flight;
+import jakarta.persistence.criteria.CompoundSelection;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Root;
+
+import java.time.LocalDateTime;
+
+/**
+ * Рейс для списков: ровно те колонки, что уходят в FlightDto.
+ * Аэропорты — только коды из внешних ключей рейса (без JOIN), сами AirportDto берутся из справочника.
+ * Не управляется контекстом персистентности: ни снимков для dirty checking, ни прокси.
+ */
+public record FlightRow(
+        Integer id,
+        String flightNumber,
+        String airline,
+        String departureAirportCode,
+        String arrivalAirportCode,
+        LocalDateTime scheduledDeparture,
+        LocalDateTime scheduledArrival,
+        LocalDateTime estimatedDeparture,
+        LocalDateTime estimatedArrival,
+        LocalDateTime actualDeparture,
+        LocalDateTime actualArrival,
+        Integer delayMinutes,
+        String terminal,
+        String gate,
+        Flight.FlightStatus status,
+        LocalDateTime lastUpdated
+) {
+
+    /** Конструкторная выборка для Criteria-запросов по спецификациям */
+    public static CompoundSelection<FlightRow> selection(Root<Flight> root, CriteriaBuilder cb) {
+        return cb.construct(FlightRow.class,
+                root.get("id"),
+                root.get("flightNumber"),
+                root.get("airline"),
+                root.get("departureAirport").get("iataCode"),
+                root.get("arrivalAirport").get("iataCode"),
+                root.get("scheduledDeparture"),
+                root.get("scheduledArrival"),
+                root.get("estimatedDeparture"),
+                root.get("estimatedArrival"),
+                root.get("actualDeparture"),
+                root.get("actualArrival"),
+                root.get("delayMinutes"),
+                root.get("terminal"),
+                root.get("gate"),
+                root.get("status"),
+                root.get("lastUpdated"));
+    }
+}
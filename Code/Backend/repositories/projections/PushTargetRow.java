@@ -0,0 +1,13 @@
+package com.example.lowflightzone.repositories.projections;
+
+/**
+ * Адресат push-уведомления: браузерная подписка (endpoint + ключи) активной подписки на рейс.
+ */
+public record PushTargetRow(
+        Integer subscriptionId,
+        Integer flightId,
+        String endpoint,
+        String p256dh,
+        String auth
+) {
+}
@@ -0,0 +1,31 @@
+package com.example.lowflightzone.repositories.projections;
+
+import com.example.lowflightzone.entity.FlightSubscription;
+
+import java.time.LocalDateTime;
+
+/**
+ * Подписка для списков: поля подписки и краткие данные пользователя.
+ * Рейс — только id, строки рейсов догружаются одним запросом {@link FlightRow} на страницу.
+ */
+public record SubscriptionRow(
+        Integer id,
+        Integer flightId,
+        Integer userId,
+        String userEmail,
+        String userFirstName,
+        String userLastName,
+        FlightSubscription.SubscriptionStatus status,
+        String notificationTypes,
+        LocalDateTime createdAt,
+        LocalDateTime lastNotifiedAt,
+        Integer notifyBeforeHours,
+        Integer minDelayMinutes
+) {
+
+    /** Начало JPQL-запроса; алиасы: fs — подписка, u — пользователь */
+    public static final String SELECT = "SELECT new com.example.lowflightzone.repositories.projections.SubscriptionRow(" +
+            "fs.id, fs.flight.id, u.id, u.email, u.firstName, u.lastName, fs.status, fs.notificationTypes, " +
+            "fs.createdAt, fs.lastNotifiedAt, fs.notifyBeforeHours, fs.minDelayMinutes) " +
+            "FROM FlightSubscription fs JOIN fs.user u ";
+}
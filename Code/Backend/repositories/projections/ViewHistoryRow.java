@@ -0,0 +1,19 @@
+package com.example.lowflightzone.repositories.projections;
+
+import java.time.LocalDateTime;
+
+/**
+ * Запись истории просмотров для списков. Рейс — только id, строки рейсов догружаются
+ * одним запросом {@link FlightRow} на страницу.
+ */
+public record ViewHistoryRow(
+        Integer id,
+        Integer flightId,
+        LocalDateTime viewedAt,
+        Integer viewCount
+) {
+
+    /** Начало JPQL-запроса; алиас fvh — запись истории */
+    public static final String SELECT = "SELECT new com.example.lowflightzone.repositories.projections.ViewHistoryRow(" +
+            "fvh.id, fvh.flight.id, fvh.viewedAt, fvh.viewCount) FROM FlightViewHistory fvh ";
+}
@@ -39,6 +39,28 @@ public class SecurityUtils {
         return Optional.empty();
     }
 
+    /**
+     * 📌 Email текущего пользователя прямо из контекста безопасности — без запроса в БД
+     */
+    public Optional<String> getCurrentUserEmail() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+
+        if (authentication == null || !authentication.isAuthenticated() ||
+                authentication.getPrincipal().equals("anonymousUser")) {
+            return Optional.empty();
+        }
+
+        if (authentication.getPrincipal() instanceof UserDetails userDetails) {
+            return Optional.of(userDetails.getUsername());
+        }
+
+        if (authentication.getPrincipal() instanceof String username) {
+            return Optional.of(username);
+        }
+
+        return Optional.empty();
+    }
+
     /**
      * 📌 Получить ID текущего пользователя
      */
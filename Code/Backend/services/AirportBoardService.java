@@ -0,0 +1,90 @@
+package com.example.lowflightzone.services;
+
+import com.example.lowflightzone.dao.FlightDao;
+import com.example.lowflightzone.dao.FlightSubscriptionDao;
+import com.example.lowflightzone.dto.AirportBoardDto;
+import com.example.lowflightzone.exceptions.AirportException;
+import com.example.lowflightzone.index.AirportBoards;
+import com.example.lowflightzone.index.AirportRegistry;
+import com.example.lowflightzone.mappers.FlightMapper;
+import com.example.lowflightzone.repositories.FlightSpecifications;
+import com.example.lowflightzone.repositories.projections.FlightRow;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Service
+public class AirportBoardService {
+
+    private static final int DEFAULT_BOARD_SIZE = 50;
+    private static final int MAX_BOARD_SIZE = 500;
+    /** Без явного from экран показывает рейсы начиная с часа назад */
+    private static final int DEFAULT_LOOKBACK_HOURS = 1;
+
+    private final AirportBoards airportBoards;
+    private final AirportRegistry airportRegistry;
+    private final FlightDao flightDao;
+    private final FlightSubscriptionDao subscriptionDao;
+    private final FlightMapper flightMapper;
+
+    @Autowired
+    public AirportBoardService(AirportBoards airportBoards, AirportRegistry airportRegistry, FlightDao flightDao,
+                               FlightSubscriptionDao subscriptionDao, FlightMapper flightMapper) {
+        this.airportBoards = airportBoards;
+        this.airportRegistry = airportRegistry;
+        this.flightDao = flightDao;
+        this.subscriptionDao = subscriptionDao;
+        this.flightMapper = flightMapper;
+    }
+
+    /**
+     * Табло вылетов/прилётов аэропорта из памяти; since + epoch из прошлого ответа дают дельту.
+     * До загрузки табло — полный снимок из БД без версии.
+     */
+    @Transactional(readOnly = true)
+    public AirportBoardDto getBoard(String iataCode, AirportBoards.Direction direction, String terminal,
+                                    LocalDateTime from, Integer limit, Long since, String epoch) {
+        String code = iataCode.toUpperCase();
+        if (airportRegistry.isLoaded() && !airportRegistry.contains(code)) {
+            throw new AirportException("Аэропорт не найден: " + iataCode);
+        }
+        int size = limit == null ? DEFAULT_BOARD_SIZE : Math.min(Math.max(limit, 1), MAX_BOARD_SIZE);
+        LocalDateTime windowStart = from != null ? from : LocalDateTime.now().minusHours(DEFAULT_LOOKBACK_HOURS);
+        String terminalFilter = terminal == null || terminal.isBlank() ? null : terminal;
+
+        if (airportBoards.isLoaded()) {
+            return airportBoards.view(code, direction, terminalFilter, windowStart, size, since, epoch);
+        }
+        return loadBoard(code, direction, terminalFilter, windowStart, size);
+    }
+
+    private AirportBoardDto loadBoard(String code, AirportBoards.Direction direction, String terminal,
+                                      LocalDateTime from, int size) {
+        boolean departures = direction == AirportBoards.Direction.DEPARTURES;
+        String timeAttribute = departures ? "scheduledDeparture" : "scheduledArrival";
+        List<FlightRow> rows = flightDao.findRowSlice(
+                FlightSpecifications.board(departures ? "departureAirport" : "arrivalAirport", code,
+                        timeAttribute, from, terminal),
+                Sort.by(Sort.Direction.ASC, timeAttribute, "id"),
+                size);
+
+        List<Integer> ids = new ArrayList<>(rows.size());
+        for (FlightRow row : rows) {
+            ids.add(row.id());
+        }
+        Map<Integer, Integer> subscriptionCounts = subscriptionDao.countActiveByFlightIds(ids);
+
+        AirportBoardDto dto = new AirportBoardDto();
+        dto.setIataCode(code);
+        dto.setDirection(direction.name());
+        dto.setTerminal(terminal);
+        dto.setFull(true);
+        dto.setFlights(flightMapper.rowsToDtos(rows, subscriptionCounts));
+        return dto;
+    }
+}
@@ -2,10 +2,16 @@ package com.example.lowflightzone.services;
 
 import com.example.lowflightzone.dao.AirportDao;
 import com.example.lowflightzone.dto.AirportDto;
+import com.example.lowflightzone.dto.ResourceVersion;
 import com.example.lowflightzone.entity.Airport;
 import com.example.lowflightzone.exceptions.AirportException;
+import com.example.lowflightzone.index.AirportRegistry;
+import com.example.lowflightzone.index.FlightSearchIndex;
+import com.example.lowflightzone.index.FlightSuggestIndex;
+import com.example.lowflightzone.mappers.FlightMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -13,25 +19,60 @@ import java.util.stream.Collectors;
 public class AirportService {
 
     private final AirportDao airportDao;
+    private final FlightSearchIndex searchIndex;
+    private final FlightSuggestIndex suggestIndex;
+    private final FlightMapper flightMapper;
+    private final AirportRegistry airportRegistry;
+    private final EntityCacheService entityCache;
+    private final InMemoryIndexUpdates indexUpdates;
 
     @Autowired
-    public AirportService(AirportDao airportDao) {
+    public AirportService(AirportDao airportDao, FlightSearchIndex searchIndex, FlightSuggestIndex suggestIndex,
+                          FlightMapper flightMapper, AirportRegistry airportRegistry, EntityCacheService entityCache,
+                          InMemoryIndexUpdates indexUpdates) {
         this.airportDao = airportDao;
+        this.searchIndex = searchIndex;
+        this.suggestIndex = suggestIndex;
+        this.flightMapper = flightMapper;
+        this.airportRegistry = airportRegistry;
+        this.entityCache = entityCache;
+        this.indexUpdates = indexUpdates;
     }
 
+    /** Версия справочника аэропортов для ETag; null — справочник ещё не загружен */
+    public ResourceVersion getAirportsVersion() {
+        return airportRegistry.isLoaded() ? ResourceVersion.inMemory("airports", airportRegistry.version(), null) : null;
+    }
+
+    @Transactional(readOnly = true)
     public List<AirportDto> getAllAirports() {
+        if (airportRegistry.isLoaded()) {
+            return airportRegistry.all();
+        }
         return airportDao.findAll().stream()
                 .map(this::convertToDto)
                 .collect(Collectors.toList());
     }
 
+    @Transactional(readOnly = true)
     public AirportDto getAirportByCode(String iataCode) {
+        if (airportRegistry.isLoaded()) {
+            AirportDto airport = airportRegistry.findDto(iataCode);
+            if (airport == null) {
+                throw new AirportException("Аэропорт не найден: " + iataCode);
+            }
+            return airport;
+        }
         Airport airport = airportDao.findByIataCode(iataCode)
                 .orElseThrow(() -> new AirportException("Аэропорт не найден: " + iataCode));
         return convertToDto(airport);
     }
 
+    @Transactional(readOnly = true)
     public List<AirportDto> getAirportsByCity(String city) {
+        if (airportRegistry.isLoaded()) {
+            return airportRegistry.findByCity(city);
+        }
         // Убираем equalsIgnoreCase, используем обычный поиск
         return airportDao.findByCity(city).stream()
                 .map(this::convertToDto)
@@ -39,26 +80,27 @@ public class AirportService {
     }
 
     public AirportDto addAirport(AirportDto airportDto) {
-        if (airportDao.existsByIataCode(airportDto.getIataCode())) {
+        boolean exists = airportRegistry.isLoaded()
+                ? airportRegistry.contains(airportDto.getIataCode())
+                : airportDao.existsByIataCode(airportDto.getIataCode());
+        if (exists) {
             throw new AirportException("Аэропорт с кодом " + airportDto.getIataCode() + " уже существует");
         }
 
         Airport airport = convertToEntity(airportDto);
         Airport savedAirport = airportDao.save(airport);
+        entityCache.evictAirport(savedAirport.getIataCode());
+        // во время загрузки справочника и индексов — поверх снимка, после неё
+        indexUpdates.afterCommit(() -> {
+            airportRegistry.put(savedAirport);
+            searchIndex.putAirport(savedAirport);
+            suggestIndex.putAirport(savedAirport);
+        });
         return convertToDto(savedAirport);
     }
 
     private AirportDto convertToDto(Airport airport) {
-        AirportDto dto = new AirportDto();
-        dto.setIataCode(airport.getIataCode());
-        dto.setName(airport.getName());
-        dto.setCity(airport.getCity());
-        dto.setCountry(airport.getCountry());
-        dto.setLatitude(airport.getLatitude());
-        dto.setLongitude(airport.getLongitude());
-        dto.setTimezone(airport.getTimezone());
-        dto.setAltitude(airport.getAltitude());
-        return dto;
+        return flightMapper.toDto(airport);
     }
 
     private Airport convertToEntity(AirportDto dto) {
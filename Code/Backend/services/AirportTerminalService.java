@@ -16,11 +16,14 @@ public class AirportTerminalService {
 
     private final AirportTerminalInfoDao terminalInfoDao;
     private final AirportDao airportDao;
+    private final EntityCacheService entityCache;
 
     @Autowired
-    public AirportTerminalService(AirportTerminalInfoDao terminalInfoDao, AirportDao airportDao) {
+    public AirportTerminalService(AirportTerminalInfoDao terminalInfoDao, AirportDao airportDao,
+                                  EntityCacheService entityCache) {
         this.terminalInfoDao = terminalInfoDao;
         this.airportDao = airportDao;
+        this.entityCache = entityCache;
     }
 
     public TerminalInfoDto getTerminalInfo(String airportCode, String terminal) {
@@ -51,6 +54,7 @@ public class AirportTerminalService {
         terminalInfo.setWeatherConditions(infoDto.getWeatherConditions());
 
         AirportTerminalInfo savedInfo = terminalInfoDao.save(terminalInfo);
+        entityCache.evictTerminal(savedInfo.getId());
         return convertToDto(savedInfo);
     }
 
@@ -0,0 +1,147 @@
+package com.example.lowflightzone.services;
+
+import com.example.lowflightzone.dto.CacheStatsDto;
+import com.example.lowflightzone.entity.Airport;
+import com.example.lowflightzone.entity.AirportTerminalInfo;
+import com.example.lowflightzone.entity.CacheRegions;
+import com.example.lowflightzone.entity.Flight;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Явная инвалидация кэша второго уровня и его статистика.
+ * Записи через Hibernate сами обновляют регионы, но между коммитом и репликацией
+ * чтение с реплики может вернуть в кэш старую версию — поэтому после коммита записи
+ * соответствующие элементы дополнительно вытесняются. Массовые записи в обход
+ * Hibernate (JDBC, SQL) вызывают evictAllFlights / evictFlightQueries сами.
+ */
+@Slf4j
+@Service
+public class EntityCacheService {
+
+    private final SessionFactory sessionFactory;
+
+    @Autowired
+    public EntityCacheService(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    public void evictFlight(Integer flightId) {
+        if (flightId != null) {
+            afterCommit(() -> cache().evictEntityData(Flight.class, flightId));
+        }
+    }
+
+    public void evictFlights(Collection<Integer> flightIds) {
+        if (flightIds.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = new ArrayList<>(flightIds);
+        afterCommit(() -> {
+            Cache cache = cache();
+            for (Integer id : ids) {
+                cache.evictEntityData(Flight.class, id);
+            }
+        });
+    }
+
+    /** Все рейсы и запросы по ним — после массовых изменений в обход Hibernate */
+    public void evictAllFlights() {
+        afterCommit(() -> {
+            cache().evictEntityData(Flight.class);
+            cache().evictQueryRegion(CacheRegions.FLIGHT_QUERIES);
+            log.info("🧹 Кэш рейсов очищен");
+        });
+    }
+
+    /** Только запросы по рейсам — после вставок в обход Hibernate (сами рейсы в кэше не устарели) */
+    public void evictFlightQueries() {
+        afterCommit(() -> cache().evictQueryRegion(CacheRegions.FLIGHT_QUERIES));
+    }
+
+    public void evictAirport(String iataCode) {
+        if (iataCode != null) {
+            afterCommit(() -> {
+                cache().evictEntityData(Airport.class, iataCode.toUpperCase());
+                cache().evictQueryRegion(CacheRegions.REFERENCE_QUERIES);
+            });
+        }
+    }
+
+    public void evictTerminal(Integer terminalId) {
+        afterCommit(() -> {
+            if (terminalId != null) {
+                cache().evictEntityData(AirportTerminalInfo.class, terminalId);
+            }
+            cache().evictQueryRegion(CacheRegions.REFERENCE_QUERIES);
+        });
+    }
+
+    public CacheStatsDto getStatistics() {
+        Statistics statistics = sessionFactory.getStatistics();
+
+        CacheStatsDto dto = new CacheStatsDto();
+        dto.setStatisticsEnabled(statistics.isStatisticsEnabled());
+        dto.setSecondLevelHits(statistics.getSecondLevelCacheHitCount());
+        dto.setSecondLevelMisses(statistics.getSecondLevelCacheMissCount());
+        dto.setSecondLevelPuts(statistics.getSecondLevelCachePutCount());
+        dto.setQueryCacheHits(statistics.getQueryCacheHitCount());
+        dto.setQueryCacheMisses(statistics.getQueryCacheMissCount());
+        dto.setQueryCachePuts(statistics.getQueryCachePutCount());
+
+        List<CacheStatsDto.RegionStats> regions = new ArrayList<>();
+        addRegion(regions, statistics, CacheRegions.ENTITY_REGIONS);
+        addRegion(regions, statistics, CacheRegions.QUERY_REGIONS);
+        dto.setRegions(regions);
+        return dto;
+    }
+
+    private static void addRegion(List<CacheStatsDto.RegionStats> regions, Statistics statistics, List<String> names) {
+        for (String name : names) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(name);
+            if (region == null) {
+                continue;
+            }
+            CacheStatsDto.RegionStats stats = new CacheStatsDto.RegionStats();
+            stats.setRegion(name);
+            stats.setHits(region.getHitCount());
+            stats.setMisses(region.getMissCount());
+            stats.setPuts(region.getPutCount());
+            long size = region.getElementCountInMemory();
+            stats.setSize(size == CacheRegionStatistics.NO_EXTENDED_STAT_SUPPORT_RETURN ? null : size);
+            long lookups = region.getHitCount() + region.getMissCount();
+            stats.setHitRatio(lookups == 0 ? 0 : (double) region.getHitCount() / lookups);
+            regions.add(stats);
+        }
+    }
+
+    private Cache cache() {
+        return sessionFactory.getCache();
+    }
+
+    /** Вне транзакции — сразу, иначе после коммита (откат кэш не трогает) */
+    private static void afterCommit(Runnable eviction) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            eviction.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                eviction.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.lowflightzone.services;
+
+import com.example.lowflightzone.dao.FlightDao;
+import com.example.lowflightzone.dao.FlightSubscriptionDao;
+import com.example.lowflightzone.dto.BulkFlightUpdateRequest;
+import com.example.lowflightzone.dto.BulkFlightUpdateResultDto;
+import com.example.lowflightzone.dto.FlightDto;
+import com.example.lowflightzone.dto.FlightFilter;
+import com.example.lowflightzone.entity.Flight;
+import com.example.lowflightzone.exceptions.ValidationException;
+import com.example.lowflightzone.mappers.FlightMapper;
+import com.example.lowflightzone.repositories.FlightSpecifications;
+import com.example.lowflightzone.repositories.projections.FlightRow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Массовое изменение статуса и задержки рейсов по условию (например, закрытие аэропорта).
+ * Одна транзакция: выборка проекций FlightRow с блокировкой строк (FOR UPDATE), затем один HQL UPDATE
+ * по id изменяющихся строк — новые значения считает сама БД выражениями над столбцами. Блокировка держится
+ * до коммита: параллельная правка рейса ждёт её и не теряется, а addDelayMinutes и события считаются
+ * от тех значений, что перезаписываются. В той же транзакции к изменённым рейсам применяются правила
+ * пересчёта (FlightRecalcJob): фактическое время и прогноз не отстают от нового статуса и задержки.
+ * Подписчики уведомляются событиями FlightChangeEvent после коммита — в фоне,
+ * одним push на браузер по всем его затронутым рейсам (см. NotificationService).
+ */
+@Slf4j
+@Service
+public class FlightBulkUpdateService {
+
+    /** Больше — вероятно, ошибка в условии; такие изменения стоит разбить на части */
+    private static final int MAX_AFFECTED_FLIGHTS = 5_000;
+    private static final int MAX_DELAY_MINUTES = 24 * 60;
+    // Ограничение на размер IN-списка в одном запросе
+    private static final int ID_BATCH_SIZE = 1000;
+
+    private final FlightDao flightDao;
+    private final FlightSubscriptionDao subscriptionDao;
+    private final FlightMapper flightMapper;
+    private final FlightService flightService;
+    private final FlightRecalcJob recalcJob;
+    private final EntityCacheService entityCache;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public FlightBulkUpdateService(FlightDao flightDao, FlightSubscriptionDao subscriptionDao,
+                                   FlightMapper flightMapper, FlightService flightService,
+                                   FlightRecalcJob recalcJob, EntityCacheService entityCache,
+                                   ApplicationEventPublisher eventPublisher) {
+        this.flightDao = flightDao;
+        this.subscriptionDao = subscriptionDao;
+        this.flightMapper = flightMapper;
+        this.flightService = flightService;
+        this.recalcJob = recalcJob;
+        this.entityCache = entityCache;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Transactional
+    public BulkFlightUpdateResultDto bulkUpdate(BulkFlightUpdateRequest request) {
+        long startedAt = System.currentTimeMillis();
+        Flight.FlightStatus newStatus = validate(request);
+
+        List<FlightRow> matched = flightDao.findRowSliceForUpdate(
+                specification(request), Sort.by("scheduledDeparture", "id"), MAX_AFFECTED_FLIGHTS + 1);
+        if (matched.size() > MAX_AFFECTED_FLIGHTS) {
+            throw new ValidationException("Под условие попадает больше " + MAX_AFFECTED_FLIGHTS
+                    + " рейсов — сузьте фильтр");
+        }
+
+        // строки заблокированы: что изменится, известно заранее, UPDATE трогает только их
+        Map<Integer, FlightRow> before = new LinkedHashMap<>();
+        for (FlightRow row : matched) {
+            Flight.FlightStatus status = newStatus != null ? newStatus : row.status();
+            int oldDelay = row.delayMinutes() == null ? 0 : row.delayMinutes();
+            if (status != row.status() || newDelay(request, oldDelay) != oldDelay) {
+                before.put(row.id(), row);
+            }
+        }
+
+        List<Integer> updatedIds = new ArrayList<>(before.keySet());
+        if (!updatedIds.isEmpty()) {
+            LocalDateTime now = LocalDateTime.now();
+            String set = updateSet(request, newStatus);
+            Map<String, Object> parameters = updateParameters(request, newStatus, now);
+            for (int from = 0; from < updatedIds.size(); from += ID_BATCH_SIZE) {
+                parameters.put("ids", updatedIds.subList(from, Math.min(from + ID_BATCH_SIZE, updatedIds.size())));
+                flightDao.updateWhere(set, "f.id in :ids", parameters);
+            }
+
+            // ⏱ Правила пересчёта поверх новых статуса и задержки, сроки — в колесо после коммита
+            FlightRecalcJob.Result recalc = recalcJob.recalculate(updatedIds, now);
+            flightService.scheduleRecalc(recalc.getNextRecalc());
+            entityCache.evictFlights(updatedIds);
+            entityCache.evictFlightQueries();
+
+            List<FlightChangeEvent> changes = new ArrayList<>(updatedIds.size());
+            List<FlightDto> dtos = new ArrayList<>(updatedIds.size());
+            for (int from = 0; from < updatedIds.size(); from += ID_BATCH_SIZE) {
+                List<FlightRow> rows = flightDao.findRowsByIds(
+                        updatedIds.subList(from, Math.min(from + ID_BATCH_SIZE, updatedIds.size())));
+                Map<Integer, Integer> subscriptionCounts = subscriptionDao.countActiveByFlightIds(
+                        rows.stream().map(FlightRow::id).toList());
+                for (FlightRow row : rows) {
+                    changes.add(change(before.get(row.id()), row));
+                    dtos.add(flightMapper.toDto(row, subscriptionCounts.getOrDefault(row.id(), 0)));
+                }
+            }
+            flightService.updateBoards(dtos);
+
+            // 📢 Рассылка уйдёт после коммита, в фоне
+            eventPublisher.publishEvent(new FlightChangeEvent.Batch(changes));
+        }
+
+        BulkFlightUpdateResultDto result = new BulkFlightUpdateResultDto();
+        result.setMatched(matched.size());
+        result.setUpdated(updatedIds.size());
+        result.setUpdatedFlightIds(updatedIds);
+        result.setDurationMs(System.currentTimeMillis() - startedAt);
+
+        log.info("🛠 Массовое изменение рейсов: под условием {}, изменено {} за {} мс",
+                result.getMatched(), result.getUpdated(), result.getDurationMs());
+        return result;
+    }
+
+    /**
+     * SET для HQL UPDATE над f. Расчётное время — от расписания и новой задержки, у отменённых остаётся
+     * прежним. Оно стоит раньше delayMinutes и считается из того же выражения, а не из f.delayMinutes:
+     * так результат не зависит от того, видит ли СУБД в SET старые значения столбцов (стандарт) или уже
+     * присвоенные левее (MySQL).
+     */
+    private static String updateSet(BulkFlightUpdateRequest request, Flight.FlightStatus newStatus) {
+        String delay;
+        if (request.getDelayMinutes() != null) {
+            delay = ":delay";
+        } else if (request.getAddDelayMinutes() != null) {
+            delay = "least(greatest(coalesce(f.delayMinutes, 0) + :addDelay, 0), :maxDelay)";
+        } else {
+            delay = "coalesce(f.delayMinutes, 0)";
+        }
+
+        List<String> assignments = new ArrayList<>();
+        if (newStatus != Flight.FlightStatus.CANCELLED) {
+            for (String column : List.of("Departure", "Arrival")) {
+                String estimate = "f.scheduled" + column + " + (" + delay + ") minute";
+                assignments.add("f.estimated" + column + " = " + (newStatus != null ? estimate
+                        : "case when f.status = :cancelled then f.estimated" + column + " else " + estimate + " end"));
+            }
+        }
+        assignments.add("f.delayMinutes = " + delay);
+        if (newStatus != null) {
+            assignments.add("f.status = :status");
+        }
+        assignments.add("f.lastUpdated = :now");
+        return String.join(", ", assignments);
+    }
+
+    private static Map<String, Object> updateParameters(BulkFlightUpdateRequest request, Flight.FlightStatus newStatus,
+                                                       LocalDateTime now) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("now", now);
+        parameters.put("status", newStatus);
+        parameters.put("cancelled", Flight.FlightStatus.CANCELLED);
+        parameters.put("delay", request.getDelayMinutes());
+        parameters.put("addDelay", request.getAddDelayMinutes());
+        parameters.put("maxDelay", MAX_DELAY_MINUTES);
+        return parameters;
+    }
+
+    /** Событие от заблокированной строки до строки после UPDATE и пересчёта */
+    private static FlightChangeEvent change(FlightRow old, FlightRow row) {
+        return new FlightChangeEvent(row.id(), row.flightNumber(), old.status(), row.status(),
+                old.delayMinutes() == null ? 0 : old.delayMinutes(), row.delayMinutes(),
+                old.scheduledDeparture(), row.scheduledDeparture(),
+                old.estimatedDeparture(), row.estimatedDeparture(),
+                old.actualDeparture() == null ? row.actualDeparture() : null,
+                old.actualArrival() == null ? row.actualArrival() : null);
+    }
+
+    private Flight.FlightStatus validate(BulkFlightUpdateRequest request) {
+        boolean hasFilter = (request.getFlightIds() != null && !request.getFlightIds().isEmpty())
+                || request.getDepartureAirport() != null || request.getArrivalAirport() != null
+                || request.getAirline() != null || request.getCurrentStatus() != null
+                || request.getDepartureFrom() != null || request.getDepartureTo() != null
+                || request.getWithinHours() != null;
+        if (!hasFilter) {
+            throw new ValidationException("Укажите хотя бы одно условие отбора рейсов");
+        }
+        if (request.getStatus() == null && request.getDelayMinutes() == null && request.getAddDelayMinutes() == null) {
+            throw new ValidationException("Укажите status, delayMinutes или addDelayMinutes");
+        }
+        if (request.getDelayMinutes() != null && request.getAddDelayMinutes() != null) {
+            throw new ValidationException("delayMinutes и addDelayMinutes взаимоисключающие");
+        }
+        if (request.getDelayMinutes() != null
+                && (request.getDelayMinutes() < 0 || request.getDelayMinutes() > MAX_DELAY_MINUTES)) {
+            throw new ValidationException("delayMinutes должен быть от 0 до " + MAX_DELAY_MINUTES);
+        }
+        if (request.getAddDelayMinutes() != null && Math.abs(request.getAddDelayMinutes()) > MAX_DELAY_MINUTES) {
+            throw new ValidationException("addDelayMinutes по модулю не больше " + MAX_DELAY_MINUTES);
+        }
+        if (request.getWithinHours() != null && request.getWithinHours() <= 0) {
+            throw new ValidationException("withinHours должен быть положительным");
+        }
+        if (request.getCurrentStatus() != null) {
+            parseStatus(request.getCurrentStatus(), "currentStatus");
+        }
+        return request.getStatus() == null ? null : parseStatus(request.getStatus(), "status");
+    }
+
+    private static Specification<Flight> specification(BulkFlightUpdateRequest request) {
+        FlightFilter filter = new FlightFilter();
+        filter.setDepartureAirport(upper(request.getDepartureAirport()));
+        filter.setArrivalAirport(upper(request.getArrivalAirport()));
+        filter.setAirline(request.getAirline());
+        filter.setStatus(upper(request.getCurrentStatus()));
+        filter.setDepartureFrom(request.getDepartureFrom());
+        filter.setDepartureTo(request.getDepartureTo());
+
+        if (request.getWithinHours() != null) {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime until = now.plusHours(request.getWithinHours());
+            if (filter.getDepartureFrom() == null || filter.getDepartureFrom().isBefore(now)) {
+                filter.setDepartureFrom(now);
+            }
+            if (filter.getDepartureTo() == null || filter.getDepartureTo().isAfter(until)) {
+                filter.setDepartureTo(until);
+            }
+        }
+
+        Specification<Flight> specification = FlightSpecifications.byFilter(filter);
+        if (request.getFlightIds() != null && !request.getFlightIds().isEmpty()) {
+            List<Integer> ids = request.getFlightIds().stream().filter(Objects::nonNull).distinct().toList();
+            specification = specification.and((root, query, cb) -> root.get("id").in(ids));
+        }
+        return specification;
+    }
+
+    private static int newDelay(BulkFlightUpdateRequest request, int oldDelay) {
+        if (request.getDelayMinutes() != null) {
+            return request.getDelayMinutes();
+        }
+        if (request.getAddDelayMinutes() != null) {
+            return Math.min(MAX_DELAY_MINUTES, Math.max(0, oldDelay + request.getAddDelayMinutes()));
+        }
+        return oldDelay;
+    }
+
+    private static Flight.FlightStatus parseStatus(String value, String field) {
+        try {
+            return Flight.FlightStatus.valueOf(value.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Неизвестный " + field + ": " + value);
+        }
+    }
+
+    private static String upper(String value) {
+        return value == null ? null : value.toUpperCase();
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.lowflightzone.services;
+
+import com.example.lowflightzone.entity.Flight;
+
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Изменение рейса для конвейера уведомлений: значения до и после.
+ * Публикуется пачкой ({@link Batch}) после коммита записи и обрабатывается в фоне,
+ * поэтому запрос на изменение не ждёт отправки push.
+ * departedAt / arrivedAt заполнены, только если фактическое время проставлено этим изменением.
+ */
+public record FlightChangeEvent(
+        Integer flightId,
+        String flightNumber,
+        Flight.FlightStatus oldStatus,
+        Flight.FlightStatus newStatus,
+        Integer oldDelayMinutes,
+        Integer newDelayMinutes,
+        LocalDateTime oldScheduledDeparture,
+        LocalDateTime newScheduledDeparture,
+        LocalDateTime oldEstimatedDeparture,
+        LocalDateTime estimatedDeparture,
+        LocalDateTime departedAt,
+        LocalDateTime arrivedAt
+) {
+
+    public enum Type {
+        STATUS, DELAY, SCHEDULE, ETA, DEPARTED, ARRIVED
+    }
+
+    /**
+     * Пересчёт сдвинул расчётный вылет и/или проставил фактическое время (статус, задержка
+     * и расписание не менялись); departedAt / arrivedAt — только проставленные им
+     */
+    public static FlightChangeEvent recalculated(Integer flightId, String flightNumber, Flight.FlightStatus status,
+                                                 Integer delayMinutes, LocalDateTime scheduledDeparture,
+                                                 LocalDateTime oldEstimatedDeparture, LocalDateTime estimatedDeparture,
+                                                 LocalDateTime departedAt, LocalDateTime arrivedAt) {
+        return new FlightChangeEvent(flightId, flightNumber, status, status, delayMinutes, delayMinutes,
+                scheduledDeparture, scheduledDeparture, oldEstimatedDeparture, estimatedDeparture, departedAt, arrivedAt);
+    }
+
+    /** Что именно изменилось; пустое множество — изменение не касается подписчиков */
+    public EnumSet<Type> types() {
+        EnumSet<Type> types = EnumSet.noneOf(Type.class);
+        if (oldStatus != newStatus) {
+            types.add(Type.STATUS);
+        }
+        if (!Objects.equals(delayOrZero(oldDelayMinutes), delayOrZero(newDelayMinutes))) {
+            types.add(Type.DELAY);
+        }
+        if (!Objects.equals(oldScheduledDeparture, newScheduledDeparture)) {
+            types.add(Type.SCHEDULE);
+        }
+        // первый прогноз (null → расписание) новостью не считается
+        if (oldEstimatedDeparture != null && !oldEstimatedDeparture.equals(estimatedDeparture)) {
+            types.add(Type.ETA);
+        }
+        if (departedAt != null) {
+            types.add(Type.DEPARTED);
+        }
+        if (arrivedAt != null) {
+            types.add(Type.ARRIVED);
+        }
+        return types;
+    }
+
+    /** Это изменение, за которым последовало later (тот же рейс): «до» — отсюда, «после» — из later */
+    public FlightChangeEvent merge(FlightChangeEvent later) {
+        return new FlightChangeEvent(flightId, later.flightNumber,
+                oldStatus, later.newStatus,
+                oldDelayMinutes, later.newDelayMinutes,
+                oldScheduledDeparture, later.newScheduledDeparture,
+                oldEstimatedDeparture, later.estimatedDeparture,
+                later.departedAt != null ? later.departedAt : departedAt,
+                later.arrivedAt != null ? later.arrivedAt : arrivedAt);
+    }
+
+    private static int delayOrZero(Integer delay) {
+        return delay == null ? 0 : delay;
+    }
+
+    /** Изменения одной операции записи (одна транзакция) */
+    public record Batch(List<FlightChangeEvent> changes) {
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.lowflightzone.services;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Конвейер уведомлений: пачки изменений рейсов после коммита уходят в один фоновый поток
+ * (порядок пачек сохраняется), запрос на запись не ждёт push-сервиса.
+ * Пачка, не поместившаяся в очередь, теряется с предупреждением в логе.
+ */
+@Slf4j
+@Component
+public class FlightChangeNotifier {
+
+    private static final int QUEUE_CAPACITY = 1_000;
+    private static final long SHUTDOWN_TIMEOUT_MS = 10_000;
+
+    private final NotificationService notificationService;
+    private final AtomicLong dropped = new AtomicLong();
+    private final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+            task -> {
+                Thread thread = new Thread(task, "flight-change-notifier");
+                thread.setDaemon(true);
+                return thread;
+            },
+            (task, pool) -> log.warn("⚠️ Очередь уведомлений переполнена, отброшено пачек: {}", dropped.incrementAndGet()));
+
+    @Autowired
+    public FlightChangeNotifier(NotificationService notificationService) {
+        this.notificationService = notificationService;
+    }
+
+    /** После коммита; без транзакции (пересчёт при старте) — сразу */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFlightChanges(FlightChangeEvent.Batch batch) {
+        if (batch.changes().isEmpty()) {
+            return;
+        }
+        executor.execute(() -> {
+            try {
+                notificationService.notifySubscribersAboutFlightChanges(batch.changes());
+            } catch (Exception e) {
+                log.warn("⚠️ Не удалось разослать уведомления об изменениях {} рейсов: {}",
+                        batch.changes().size(), e.getMessage());
+            }
+        });
+    }
+
+    /** Дослать накопленное до закрытия пула соединений */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+            log.warn("⚠️ При остановке не разослано пачек уведомлений: {}", executor.getQueue().size());
+        }
+    }
+}
@@ -0,0 +1,450 @@
+package com.example.lowflightzone.services;
+
+import com.example.lowflightzone.dao.AirportDao;
+import com.example.lowflightzone.dao.FlightDao;
+import com.example.lowflightzone.dto.FlightImportResultDto;
+import com.example.lowflightzone.entity.Airport;
+import com.example.lowflightzone.entity.Flight;
+import com.example.lowflightzone.exceptions.ValidationException;
+import com.example.lowflightzone.index.AirportRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Массовый импорт рейсов из CSV (первая строка — заголовок) или NDJSON (объект на строку).
+ * Вход читается потоком построчно; строки проверяются по справочнику аэропортов и множеству
+ * номеров рейсов в памяти, без запросов в БД. Прошедшие проверку пишутся JDBC-пачками по
+ * CHUNK_SIZE строк, каждая пачка — отдельная транзакция. Если БД отклонила пачку,
+ * её строки вставляются по одной, чтобы ошибка досталась только виновной строке.
+ * <p>
+ * Колонки / поля: flightNumber, airline, departureAirport, arrivalAirport, scheduledDeparture
+ * (обязательные), scheduledArrival, status, delayMinutes, terminal, gate. Время — ISO-8601 без зоны.
+ * В NDJSON аэропорт может быть объектом с iataCode — формат выгрузки /flights/stream принимается как есть.
+ * Поля CSV в кавычках не могут содержать перевод строки.
+ * Для PostgreSQL пачки сворачиваются в многострочный INSERT при reWriteBatchedInserts=true в URL.
+ */
+@Slf4j
+@Service
+public class FlightImportService {
+
+    private static final int CHUNK_SIZE = 1_000;
+    private static final int MAX_REPORTED_ERRORS = 1_000;
+    private static final int PROGRESS_LOG_EVERY_CHUNKS = 10;
+
+    private static final int FLIGHT_NUMBER_LENGTH = 10;
+    private static final int AIRLINE_LENGTH = 50;
+    private static final int TERMINAL_LENGTH = 5;
+    private static final int GATE_LENGTH = 10;
+
+    private static final String INSERT_SQL = "INSERT INTO flights (flight_number, airline, departure_airport, " +
+            "arrival_airport, scheduled_departure, scheduled_arrival, delay_minutes, terminal, gate, status, last_updated) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final List<String> REQUIRED_COLUMNS =
+            List.of("flightNumber", "airline", "departureAirport", "arrivalAirport", "scheduledDeparture");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FlightDao flightDao;
+    private final AirportDao airportDao;
+    private final AirportRegistry airportRegistry;
+    private final FlightService flightService;
+    private final EntityCacheService entityCache;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transaction;
+
+    @Autowired
+    public FlightImportService(JdbcTemplate jdbcTemplate, FlightDao flightDao, AirportDao airportDao,
+                               AirportRegistry airportRegistry, FlightService flightService,
+                               EntityCacheService entityCache, ObjectMapper objectMapper,
+                               PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.flightDao = flightDao;
+        this.airportDao = airportDao;
+        this.airportRegistry = airportRegistry;
+        this.flightService = flightService;
+        this.entityCache = entityCache;
+        this.objectMapper = objectMapper;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    public enum Format {
+        CSV, NDJSON;
+
+        public static Format fromContentType(String contentType) {
+            String type = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+            if (type.contains("csv")) {
+                return CSV;
+            }
+            if (type.contains("ndjson") || type.contains("jsonl") || type.contains("json")) {
+                return NDJSON;
+            }
+            throw new ValidationException("Неподдерживаемый формат импорта: " + contentType);
+        }
+
+        public static Format fromFileName(String fileName) {
+            String name = fileName.toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            if (name.endsWith(".ndjson") || name.endsWith(".jsonl") || name.endsWith(".json")) {
+                return NDJSON;
+            }
+            throw new ValidationException("Формат импорта не определить по имени файла: " + fileName);
+        }
+    }
+
+    public FlightImportResultDto importFlights(InputStream input, Format format) {
+        long started = System.nanoTime();
+        ImportRun run = new ImportRun(format, new HashSet<>(flightDao.findAllFlightNumbers()), airportCheck());
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            if (format == Format.CSV) {
+                readCsv(reader, run);
+            } else {
+                readNdjson(reader, run);
+            }
+        } catch (IOException e) {
+            // уже записанные пачки остаются, отчёт возвращается как есть
+            log.warn("⚠️ Чтение файла импорта прервано: {}", e.getMessage());
+            run.reject(run.line, null, "Чтение прервано: " + e.getMessage());
+        }
+        run.flush();
+        if (run.result.getImported() > 0) {
+            // вставка шла в обход Hibernate: закэшированные «не найден» по номерам устарели
+            entityCache.evictFlightQueries();
+        }
+
+        FlightImportResultDto result = run.result;
+        result.setDurationMs((System.nanoTime() - started) / 1_000_000);
+        result.setRowsPerSecond(result.getTotalRows() * 1000L / Math.max(result.getDurationMs(), 1));
+        log.info("📥 Импорт рейсов ({}): строк {}, записано {}, ошибок {} за {} мс ({} строк/с)",
+                format, result.getTotalRows(), result.getImported(), result.getFailed(),
+                result.getDurationMs(), result.getRowsPerSecond());
+        return result;
+    }
+
+    private void readCsv(BufferedReader reader, ImportRun run) throws IOException {
+        String header = reader.readLine();
+        if (header == null) {
+            return;
+        }
+        run.line = 1;
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = splitCsv(header);
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String required : REQUIRED_COLUMNS) {
+            if (!columns.containsKey(required.toLowerCase(Locale.ROOT))) {
+                throw new ValidationException("В заголовке CSV нет колонки " + required);
+            }
+        }
+
+        String text;
+        while ((text = reader.readLine()) != null) {
+            run.line++;
+            if (text.isBlank()) {
+                continue;
+            }
+            List<String> values = splitCsv(text);
+            run.accept(name -> {
+                Integer index = columns.get(name.toLowerCase(Locale.ROOT));
+                return index != null && index < values.size() ? values.get(index) : null;
+            });
+        }
+    }
+
+    private void readNdjson(BufferedReader reader, ImportRun run) throws IOException {
+        String text;
+        while ((text = reader.readLine()) != null) {
+            run.line++;
+            if (text.isBlank()) {
+                continue;
+            }
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(text);
+            } catch (IOException e) {
+                run.result.setTotalRows(run.result.getTotalRows() + 1);
+                run.reject(run.line, null, "Некорректный JSON");
+                continue;
+            }
+            if (!node.isObject()) {
+                run.result.setTotalRows(run.result.getTotalRows() + 1);
+                run.reject(run.line, null, "Строка должна быть JSON-объектом");
+                continue;
+            }
+            run.accept(name -> {
+                JsonNode value = node.get(name);
+                if (value != null && value.isObject()) {
+                    value = value.get("iataCode");
+                }
+                return value == null || value.isNull() ? null : value.asText();
+            });
+        }
+    }
+
+    /** Проверка кода аэропорта: по справочнику в памяти, до его загрузки — по набору кодов из БД */
+    private Predicate<String> airportCheck() {
+        if (airportRegistry.isLoaded()) {
+            return airportRegistry::contains;
+        }
+        Set<String> codes = new HashSet<>();
+        for (Airport airport : airportDao.findAll()) {
+            codes.add(airport.getIataCode());
+        }
+        return codes::contains;
+    }
+
+    /** Вставка пачки одним batchUpdate; возвращает записанные рейсы для табло и индексов */
+    private List<Flight> insert(List<ImportRow> rows) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> args = new ArrayList<>(rows.size());
+        List<String> numbers = new ArrayList<>(rows.size());
+        for (ImportRow row : rows) {
+            args.add(new Object[]{
+                    row.flightNumber(), row.airline(), row.departureAirport(), row.arrivalAirport(),
+                    row.scheduledDeparture(), row.scheduledArrival(), row.delayMinutes(),
+                    row.terminal(), row.gate(), row.status().name(), now
+            });
+            numbers.add(row.flightNumber());
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, args);
+        // id выдаёт БД (IDENTITY) — перечитываем вставленное одним IN-запросом
+        return flightDao.findAllByFlightNumbers(numbers);
+    }
+
+    private static ImportRow parseRow(long line, Function<String, String> field) {
+        String flightNumber = required(field, "flightNumber", "Номер рейса не может быть пустым");
+        checkLength(flightNumber, FLIGHT_NUMBER_LENGTH, "Номер рейса");
+        String airline = required(field, "airline", "Авиакомпания не может быть пустой");
+        checkLength(airline, AIRLINE_LENGTH, "Авиакомпания");
+        String departure = required(field, "departureAirport", "Аэропорт вылета не может быть пустым")
+                .toUpperCase(Locale.ROOT);
+        String arrival = required(field, "arrivalAirport", "Аэропорт прибытия не может быть пустым")
+                .toUpperCase(Locale.ROOT);
+        if (departure.equals(arrival)) {
+            throw new ValidationException("Аэропорты вылета и прибытия совпадают");
+        }
+
+        LocalDateTime scheduledDeparture = parseTime(
+                required(field, "scheduledDeparture", "Время вылета не может быть пустым"), "scheduledDeparture");
+        String arrivalText = optional(field, "scheduledArrival");
+        LocalDateTime scheduledArrival = arrivalText == null ? null : parseTime(arrivalText, "scheduledArrival");
+        if (scheduledArrival != null && scheduledArrival.isBefore(scheduledDeparture)) {
+            throw new ValidationException("Время прилёта раньше времени вылета");
+        }
+
+        String statusText = optional(field, "status");
+        Flight.FlightStatus status;
+        try {
+            status = statusText == null ? Flight.FlightStatus.SCHEDULED
+                    : Flight.FlightStatus.valueOf(statusText.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Неизвестный статус: " + statusText);
+        }
+
+        String delayText = optional(field, "delayMinutes");
+        int delay;
+        try {
+            delay = delayText == null ? 0 : Integer.parseInt(delayText);
+        } catch (NumberFormatException e) {
+            throw new ValidationException("Задержка должна быть целым числом минут: " + delayText);
+        }
+        if (delay < 0) {
+            throw new ValidationException("Задержка не может быть отрицательной");
+        }
+
+        String terminal = optional(field, "terminal");
+        checkLength(terminal, TERMINAL_LENGTH, "Терминал");
+        String gate = optional(field, "gate");
+        checkLength(gate, GATE_LENGTH, "Выход");
+
+        return new ImportRow(line, flightNumber, airline, departure, arrival,
+                scheduledDeparture, scheduledArrival, delay, terminal, gate, status);
+    }
+
+    private static String required(Function<String, String> field, String name, String message) {
+        String value = optional(field, name);
+        if (value == null) {
+            throw new ValidationException(message);
+        }
+        return value;
+    }
+
+    private static String optional(Function<String, String> field, String name) {
+        String value = field.apply(name);
+        if (value == null) {
+            return null;
+        }
+        value = value.trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static void checkLength(String value, int max, String name) {
+        if (value != null && value.length() > max) {
+            throw new ValidationException(name + " длиннее " + max + " символов");
+        }
+    }
+
+    private static LocalDateTime parseTime(String value, String name) {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new ValidationException("Некорректное время " + name + ": " + value);
+        }
+    }
+
+    /** Разбор строки CSV: запятая-разделитель, поля в двойных кавычках, "" внутри кавычек */
+    private static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        current.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    private record ImportRow(long line, String flightNumber, String airline, String departureAirport,
+                             String arrivalAirport, LocalDateTime scheduledDeparture,
+                             LocalDateTime scheduledArrival, int delayMinutes, String terminal, String gate,
+                             Flight.FlightStatus status) {
+    }
+
+    /** Состояние одного импорта: номер строки, накопленная пачка, известные номера рейсов, отчёт */
+    private final class ImportRun {
+        private final Set<String> knownFlightNumbers;
+        private final Predicate<String> airportExists;
+        private final List<ImportRow> pending = new ArrayList<>(CHUNK_SIZE);
+        private final FlightImportResultDto result = new FlightImportResultDto();
+        private final long started = System.nanoTime();
+        private long line;
+        private int chunks;
+
+        ImportRun(Format format, Set<String> knownFlightNumbers, Predicate<String> airportExists) {
+            this.knownFlightNumbers = knownFlightNumbers;
+            this.airportExists = airportExists;
+            result.setFormat(format.name());
+        }
+
+        void accept(Function<String, String> field) {
+            result.setTotalRows(result.getTotalRows() + 1);
+            ImportRow row;
+            try {
+                row = parseRow(line, field);
+            } catch (ValidationException e) {
+                reject(line, optional(field, "flightNumber"), e.getMessage());
+                return;
+            }
+            if (!airportExists.test(row.departureAirport())) {
+                reject(line, row.flightNumber(), "Аэропорт вылета не найден: " + row.departureAirport());
+                return;
+            }
+            if (!airportExists.test(row.arrivalAirport())) {
+                reject(line, row.flightNumber(), "Аэропорт прибытия не найден: " + row.arrivalAirport());
+                return;
+            }
+            // номер занят в БД или встречался выше в этом файле
+            if (!knownFlightNumbers.add(row.flightNumber())) {
+                reject(line, row.flightNumber(), "Рейс с таким номером уже существует: " + row.flightNumber());
+                return;
+            }
+            pending.add(row);
+            if (pending.size() == CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            List<ImportRow> chunk = new ArrayList<>(pending);
+            pending.clear();
+            try {
+                written(chunk.size(), transaction.execute(status -> insert(chunk)));
+            } catch (DataAccessException e) {
+                log.warn("⚠️ БД отклонила пачку импорта ({} строк): {} — вставка по одной",
+                        chunk.size(), NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+                for (ImportRow row : chunk) {
+                    try {
+                        written(1, transaction.execute(status -> insert(List.of(row))));
+                    } catch (DataAccessException rowError) {
+                        reject(row.line(), row.flightNumber(),
+                                NestedExceptionUtils.getMostSpecificCause(rowError).getMessage());
+                    }
+                }
+            }
+
+            chunks++;
+            if (chunks % PROGRESS_LOG_EVERY_CHUNKS == 0) {
+                long elapsedMs = Math.max((System.nanoTime() - started) / 1_000_000, 1);
+                log.info("📥 Импорт: прочитано {}, записано {} ({} строк/с)",
+                        result.getTotalRows(), result.getImported(), result.getTotalRows() * 1000L / elapsedMs);
+            }
+        }
+
+        private void written(int count, List<Flight> flights) {
+            result.setImported(result.getImported() + count);
+            flightService.indexImportedFlights(flights);
+        }
+
+        void reject(long line, String flightNumber, String message) {
+            result.setFailed(result.getFailed() + 1);
+            if (result.getErrors().size() < MAX_REPORTED_ERRORS) {
+                result.getErrors().add(new FlightImportResultDto.RowError(line, flightNumber, message));
+            } else {
+                result.setErrorsTruncated(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.lowflightzone.services;
+
+import com.example.lowflightzone.index.FlightRecalcWheel;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Событийный пересчёт рейсов вместо периодического обхода всей таблицы.
+ * При старте (в фоне, см. StartupWarmup) — один полный проход, который раскладывает рейсы по колесу {@link FlightRecalcWheel};
+ * дальше раз в секунду пересчитываются только рейсы, чей срок наступил.
+ * Колесо планирует тот, кто пишет рейс, и только после коммита: запись через FlightService и массовое
+ * изменение сразу применяют правила и ставят рейс на его следующий срок, импорт — на ближайший тик.
+ */
+@Slf4j
+@Component
+public class FlightRecalcEngine {
+
+    private static final long TICK_MS = 1_000;
+    /** Повтор пачки, пересчёт которой упал (например, БД недоступна) */
+    private static final long RETRY_DELAY_SECONDS = 30;
+
+    private final FlightService flightService;
+    private final FlightRecalcWheel wheel;
+    private final AtomicBoolean ticking = new AtomicBoolean();
+    private final ScheduledExecutorService ticker = Executors.newSingleThreadScheduledExecutor(task -> {
+        Thread thread = new Thread(task, "flight-recalc");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Autowired
+    public FlightRecalcEngine(FlightService flightService, FlightRecalcWheel wheel) {
+        this.flightService = flightService;
+        this.wheel = wheel;
+    }
+
+    /**
+     * Полный пересчёт и запуск тиков; вызывается прогревом (StartupWarmup) в фоне, раньше загрузки табло.
+     * Если часть кусков не пересчиталась — исключение, прогрев повторит проход целиком (он идемпотентен).
+     */
+    public void start() {
+        log.info("🚀 Пересчёт рейсов при старте…");
+        FlightRecalcJob.Report report = flightService.recalculateDelayedFlights();
+        if (report.hasFailures()) {
+            throw new IllegalStateException("не пересчитаны куски рейсов: " + report.getFailedChunks());
+        }
+        if (ticking.compareAndSet(false, true)) {
+            ticker.scheduleWithFixedDelay(this::tick, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        ticker.shutdownNow();
+    }
+
+    private void tick() {
+        List<Integer> due = wheel.pollDue(LocalDateTime.now());
+        if (due.isEmpty()) {
+            return;
+        }
+        try {
+            flightService.recalculateFlights(due);
+        } catch (Exception e) {
+            log.warn("⚠️ Пересчёт {} рейсов не удался, повтор через {} с: {}",
+                    due.size(), RETRY_DELAY_SECONDS, e.getMessage());
+            LocalDateTime retryAt = LocalDateTime.now().plusSeconds(RETRY_DELAY_SECONDS);
+            for (Integer flightId : due) {
+                wheel.schedule(flightId, retryAt);
+            }
+        }
+    }
+}
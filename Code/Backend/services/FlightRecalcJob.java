@@ -0,0 +1,363 @@
+package com.example.lowflightzone.services;
+
+import com.example.lowflightzone.dao.FlightDao;
+import com.example.lowflightzone.entity.Flight;
+import com.example.lowflightzone.repositories.projections.FlightRow;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Пакетный пересчёт рейсов без загрузки сущностей: правила (FlightRecalcRules.Statement) — по одному
+ * HQL UPDATE … WHERE на правило, в порядке правил; условие каждого отбирает только строки, которые оно изменит.
+ * Изменённые id переносимо, без RETURNING: перед оператором его же условием выбираются id с блокировкой
+ * (SELECT … FOR UPDATE в синтаксисе диалекта), по ним до первого изменения читаются прежние строки,
+ * а после операторов — новые. Из разницы собираются события FlightChangeEvent (вылетел, прибыл,
+ * сдвинулся прогноз) и сроки следующего пересчёта. События публикует вызывающий.
+ * <p>
+ * Полный проход делится на куски фиксированной ширины по id (chunk-size), которые разбирает пул
+ * потоков: у каждого куска своя короткая транзакция, повтор и строка в отчёте, ошибка одного куска
+ * не откатывает остальные. Кусок не зависит от размера таблицы — транзакции и блокировки короткие,
+ * а неравномерно заполненные id не оставляют один поток с большей частью работы.
+ * <pre>
+ * app.recalc.chunk-size=5000  # id в куске (строк не больше)
+ * app.recalc.workers=0        # потоков; 0 — по числу ядер, не больше MAX_WORKERS (пул соединений)
+ * </pre>
+ */
+@Slf4j
+@Service
+public class FlightRecalcJob {
+
+    // Ограничение на размер IN-списка в одном запросе
+    private static final int ID_BATCH_SIZE = 1000;
+    private static final int MAX_WORKERS = 8;
+    private static final int CHUNK_ATTEMPTS = 2;
+
+    private static final String ID_BOUNDS_SQL = "SELECT MIN(id) AS min_id, MAX(id) AS max_id FROM flights";
+
+    private static final String RANGE_SCOPE = "f.id between :fromId and :toId";
+    private static final String IDS_SCOPE = "f.id in :ids";
+    private static final Sort BY_ID = Sort.by("id");
+
+    private final FlightDao flightDao;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transaction;
+    private final int chunkSize;
+    private final int workers;
+
+    @Autowired
+    public FlightRecalcJob(FlightDao flightDao, JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                           @Value("${app.recalc.chunk-size:5000}") int chunkSize,
+                           @Value("${app.recalc.workers:0}") int workers) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("app.recalc.chunk-size должен быть положительным");
+        }
+        this.flightDao = flightDao;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.workers = workers > 0
+                ? workers
+                : Math.min(Runtime.getRuntime().availableProcessors(), MAX_WORKERS);
+    }
+
+    /**
+     * Полный проход: куски id в пуле потоков, в каждом — пересчёт рейсов-кандидатов и сроки
+     * для колеса пересчёта (scheduler, после коммита куска). Вызывать вне транзакции.
+     */
+    public Report recalculateAll(LocalDateTime now, BiConsumer<Integer, LocalDateTime> scheduler) {
+        long startedAt = System.currentTimeMillis();
+        Report report = new Report();
+
+        Map<String, Object> bounds = jdbcTemplate.queryForMap(ID_BOUNDS_SQL);
+        if (bounds.get("min_id") == null) {
+            report.durationMs = System.currentTimeMillis() - startedAt;
+            return report;
+        }
+        List<long[]> ranges = split(((Number) bounds.get("min_id")).longValue(),
+                ((Number) bounds.get("max_id")).longValue());
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(workers, ranges.size()), task -> {
+            Thread thread = new Thread(task, "flight-recalc-part-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<Chunk>> futures = new ArrayList<>(ranges.size());
+            for (int i = 0; i < ranges.size(); i++) {
+                int index = i;
+                long[] range = ranges.get(i);
+                futures.add(pool.submit(() -> recalculateChunk(index, range[0], range[1], now, scheduler)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    report.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    long[] range = ranges.get(i);
+                    report.add(Chunk.failed(i, range[0], range[1], 0, e.getCause().toString()));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("⚠️ Полный пересчёт прерван");
+        } finally {
+            pool.shutdownNow();
+        }
+        report.durationMs = System.currentTimeMillis() - startedAt;
+        return report;
+    }
+
+    /**
+     * Те же правила для заданных рейсов (пачками по ID_BATCH_SIZE). В getNextRecalc — срок
+     * каждого найденного рейса, в том числе null; удалённые рейсы не попадут.
+     */
+    @Transactional
+    public Result recalculate(Collection<Integer> flightIds, LocalDateTime now) {
+        Result result = new Result();
+        List<Integer> ids = new ArrayList<>(flightIds);
+        for (int from = 0; from < ids.size(); from += ID_BATCH_SIZE) {
+            List<Integer> chunk = ids.subList(from, Math.min(from + ID_BATCH_SIZE, ids.size()));
+            Map<Integer, FlightRow> before = apply(result, IDS_SCOPE, Map.of("ids", chunk), now);
+            List<FlightRow> rows = flightDao.findRowsByIds(chunk);
+            collectChanges(result, before, rows);
+            for (FlightRow row : rows) {
+                result.nextRecalc.put(row.id(), FlightRecalcRules.nextRecalcAt(row));
+            }
+        }
+        return result;
+    }
+
+    /** Один кусок в своей транзакции; при ошибке — ещё одна попытка, потом кусок помечается сбойным */
+    private Chunk recalculateChunk(int index, long fromId, long toId, LocalDateTime now,
+                                   BiConsumer<Integer, LocalDateTime> scheduler) {
+        long startedAt = System.currentTimeMillis();
+        Map<String, Object> range = Map.of("fromId", (int) fromId, "toId", (int) toId);
+        Specification<Flight> pending = FlightRecalcRules.pendingEvents()
+                .and((root, query, cb) -> cb.between(root.<Integer>get("id"), (int) fromId, (int) toId));
+        int limit = (int) (toId - fromId + 1);
+        RuntimeException failure = null;
+        for (int attempt = 1; attempt <= CHUNK_ATTEMPTS; attempt++) {
+            try {
+                Result result = transaction.execute(status -> {
+                    Result partial = new Result();
+                    Map<Integer, FlightRow> before = apply(partial, RANGE_SCOPE, range, now);
+                    collectChanges(partial, before, findRows(before.keySet()));
+                    // сроки — только у рейсов с будущим событием, после своих UPDATE (с основной БД, не с реплики)
+                    for (FlightRow row : flightDao.findRowSlice(pending, BY_ID, limit)) {
+                        partial.nextRecalc.put(row.id(), FlightRecalcRules.nextRecalcAt(row));
+                    }
+                    return partial;
+                });
+                // в колесо — только закоммиченные сроки
+                result.nextRecalc.forEach(scheduler);
+                result.nextRecalc.clear();
+                return Chunk.ok(index, fromId, toId, System.currentTimeMillis() - startedAt, result);
+            } catch (RuntimeException e) {
+                failure = e;
+                log.warn("⚠️ Пересчёт рейсов id {}..{} (попытка {}): {}", fromId, toId, attempt, e.getMessage());
+            }
+        }
+        return Chunk.failed(index, fromId, toId, System.currentTimeMillis() - startedAt, failure.getMessage());
+    }
+
+    /**
+     * Операторы правил по очереди в пределах scope (условие HQL над f). Перед каждым — id строк, которые он
+     * изменит, тем же условием и с блокировкой (в порядке id: параллельные куски не ждут друг друга по кругу);
+     * прежние значения строки читаются до первого изменившего её оператора. Возвращает их по id.
+     */
+    private Map<Integer, FlightRow> apply(Result result, String scope, Map<String, Object> scopeParameters,
+                                          LocalDateTime now) {
+        Map<String, Object> parameters = new HashMap<>(FlightRecalcRules.Statement.parameters(now));
+        parameters.putAll(scopeParameters);
+        Map<Integer, FlightRow> before = new LinkedHashMap<>();
+        for (FlightRecalcRules.Statement statement : FlightRecalcRules.Statement.values()) {
+            String where = "(" + statement.where() + ") and " + scope;
+            List<Integer> ids = flightDao.lockIdsWhere(where, parameters);
+            if (ids.isEmpty()) {
+                continue;
+            }
+            List<Integer> unseen = ids.stream().filter(id -> !before.containsKey(id)).toList();
+            for (FlightRow row : findRows(unseen)) {
+                before.put(row.id(), row);
+            }
+            int updated = flightDao.updateWhere(statement.set() + ", f.lastUpdated = :now", where, parameters);
+            switch (statement) {
+                case DELAYED_ESTIMATES -> result.delayedEstimates += updated;
+                case DEFAULT_ESTIMATES -> result.defaultEstimates += updated;
+                case ACTUAL_DEPARTURES -> result.actualDepartures += updated;
+                case ACTUAL_ARRIVALS -> result.actualArrivals += updated;
+            }
+        }
+        return before;
+    }
+
+    /** События по разнице прежних и новых строк изменённых рейсов */
+    private static void collectChanges(Result result, Map<Integer, FlightRow> before, Collection<FlightRow> after) {
+        for (FlightRow row : after) {
+            FlightRow old = before.get(row.id());
+            if (old == null) {
+                continue;
+            }
+            result.updatedIds.add(row.id());
+            // первый прогноз (null → расписание) новостью не считается — такие события отбросит сам types()
+            FlightChangeEvent change = FlightChangeEvent.recalculated(row.id(), row.flightNumber(), row.status(),
+                    row.delayMinutes(), row.scheduledDeparture(), old.estimatedDeparture(), row.estimatedDeparture(),
+                    old.actualDeparture() == null ? row.actualDeparture() : null,
+                    old.actualArrival() == null ? row.actualArrival() : null);
+            if (!change.types().isEmpty()) {
+                result.changes.merge(row.id(), change, FlightChangeEvent::merge);
+            }
+        }
+    }
+
+    /** Строки по id пачками по ID_BATCH_SIZE */
+    private List<FlightRow> findRows(Collection<Integer> flightIds) {
+        List<Integer> ids = new ArrayList<>(flightIds);
+        List<FlightRow> rows = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += ID_BATCH_SIZE) {
+            rows.addAll(flightDao.findRowsByIds(ids.subList(from, Math.min(from + ID_BATCH_SIZE, ids.size()))));
+        }
+        return rows;
+    }
+
+    /** Куски id [from, to] шириной chunkSize (последний — короче) */
+    private List<long[]> split(long minId, long maxId) {
+        List<long[]> ranges = new ArrayList<>((int) ((maxId - minId) / chunkSize + 1));
+        for (long from = minId; from <= maxId; from += chunkSize) {
+            ranges.add(new long[]{from, Math.min(from + chunkSize - 1, maxId)});
+        }
+        return ranges;
+    }
+
+    /** Счётчики по правилам, id всех изменённых рейсов и изменения для уведомлений */
+    public static final class Result {
+        private int delayedEstimates;
+        private int defaultEstimates;
+        private int actualDepartures;
+        private int actualArrivals;
+        private final Set<Integer> updatedIds = new LinkedHashSet<>();
+        /** flightId → изменение для подписчиков (изменения одного рейса разными правилами слиты) */
+        private final Map<Integer, FlightChangeEvent> changes = new LinkedHashMap<>();
+        /** flightId → ближайшее событие после пересчёта (null — событий больше нет); в Report не сливается */
+        private final Map<Integer, LocalDateTime> nextRecalc = new HashMap<>();
+
+        public Set<Integer> getUpdatedIds() {
+            return updatedIds;
+        }
+
+        public Collection<FlightChangeEvent> getChanges() {
+            return changes.values();
+        }
+
+        public Map<Integer, LocalDateTime> getNextRecalc() {
+            return nextRecalc;
+        }
+
+        private void merge(Result other) {
+            delayedEstimates += other.delayedEstimates;
+            defaultEstimates += other.defaultEstimates;
+            actualDepartures += other.actualDepartures;
+            actualArrivals += other.actualArrivals;
+            updatedIds.addAll(other.updatedIds);
+            other.changes.forEach((id, change) -> changes.merge(id, change, FlightChangeEvent::merge));
+        }
+
+        @Override
+        public String toString() {
+            return "изменено рейсов " + updatedIds.size() + " (задержки " + delayedEstimates
+                    + ", прогнозы " + defaultEstimates + ", вылеты " + actualDepartures
+                    + ", прилёты " + actualArrivals + ")";
+        }
+    }
+
+    /** Итог одного куска id; error != null — кусок не пересчитан (его транзакция откатилась) */
+    public record Chunk(int index, long fromId, long toId, long durationMs, Result result, String error) {
+
+        static Chunk ok(int index, long fromId, long toId, long durationMs, Result result) {
+            return new Chunk(index, fromId, toId, durationMs, result, null);
+        }
+
+        static Chunk failed(int index, long fromId, long toId, long durationMs, String error) {
+            return new Chunk(index, fromId, toId, durationMs, null, error);
+        }
+
+        @Override
+        public String toString() {
+            String outcome = error == null ? "изменено " + result.getUpdatedIds().size() : "ОШИБКА: " + error;
+            return "#" + index + " [" + fromId + ".." + toId + "] " + durationMs + " мс, " + outcome;
+        }
+    }
+
+    /**
+     * Итог полного прохода: сумма по кускам и итог каждого. Кусков — тысячи на больших таблицах,
+     * поэтому в toString только сбойные и самый долгий.
+     */
+    public static final class Report {
+        private final Result total = new Result();
+        private final List<Chunk> chunks = new ArrayList<>();
+        private long durationMs;
+
+        private void add(Chunk chunk) {
+            chunks.add(chunk);
+            if (chunk.result() != null) {
+                total.merge(chunk.result());
+            }
+        }
+
+        public Result getTotal() {
+            return total;
+        }
+
+        public List<Chunk> getChunks() {
+            return chunks;
+        }
+
+        public List<Chunk> getFailedChunks() {
+            return chunks.stream().filter(chunk -> chunk.error() != null).toList();
+        }
+
+        public long getDurationMs() {
+            return durationMs;
+        }
+
+        public boolean hasFailures() {
+            return chunks.stream().anyMatch(chunk -> chunk.error() != null);
+        }
+
+        @Override
+        public String toString() {
+            String slowest = chunks.stream()
+                    .max(Comparator.comparingLong(Chunk::durationMs))
+                    .map(chunk -> ", самый долгий " + chunk)
+                    .orElse("");
+            List<Chunk> failed = getFailedChunks();
+            return total + " за " + durationMs + " мс; кусков " + chunks.size() + slowest
+                    + (failed.isEmpty() ? "" : "; сбойные: " + failed);
+        }
+    }
+}
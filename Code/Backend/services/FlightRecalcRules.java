@@ -0,0 +1,186 @@
+package com.example.lowflightzone.services;
+
+import com.example.lowflightzone.entity.Flight;
+import com.example.lowflightzone.repositories.projections.FlightRow;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Правила пересчёта расчётного и фактического времени рейса. Две формы рядом, менять вместе:
+ * {@link #apply} — для рейса в руках (запись через JPA, FlightService), {@link Statement} — те же правила
+ * набором HQL UPDATE по множеству строк (FlightRecalcJob). Условие каждого оператора отбирает ровно
+ * те строки, которые соответствующее правило изменит, поэтому повторный проход их уже не трогает.
+ */
+final class FlightRecalcRules {
+
+    private FlightRecalcRules() {
+    }
+
+    /** Применяет правила к рейсу; true — рейс изменён */
+    static boolean apply(Flight f, LocalDateTime now) {
+        boolean updated = false;
+
+        final boolean isDelayed   = f.getStatus() == Flight.FlightStatus.DELAYED;
+        final boolean isCancelled = f.getStatus() == Flight.FlightStatus.CANCELLED;
+        final boolean isDeparted  = f.getStatus() == Flight.FlightStatus.DEPARTED;
+        final boolean isArrived   = f.getStatus() == Flight.FlightStatus.ARRIVED;
+
+        Integer delay = f.getDelayMinutes() == null ? 0 : f.getDelayMinutes();
+
+        /* 1) Если рейс ЗАДЕРЖАН — считаем estimated = scheduled + delay */
+        if (isDelayed && delay > 0) {
+            if (f.getScheduledDeparture() != null) {
+                LocalDateTime newEstDep = f.getScheduledDeparture().plusMinutes(delay);
+                if (!newEstDep.equals(f.getEstimatedDeparture())) {
+                    f.setEstimatedDeparture(newEstDep);
+                    updated = true;
+                }
+            }
+            if (f.getScheduledArrival() != null) {
+                LocalDateTime newEstArr = f.getScheduledArrival().plusMinutes(delay);
+                if (!newEstArr.equals(f.getEstimatedArrival())) {
+                    f.setEstimatedArrival(newEstArr);
+                    updated = true;
+                }
+            }
+        }
+
+        /* 2) Для всех, кроме DELAYED/CANCELLED:
+              если estimated не задан — подставляем scheduled (бесплатный «прогноз») */
+        if (!isDelayed && !isCancelled) {
+            if (f.getEstimatedDeparture() == null && f.getScheduledDeparture() != null) {
+                f.setEstimatedDeparture(f.getScheduledDeparture());
+                updated = true;
+            }
+            if (f.getEstimatedArrival() == null && f.getScheduledArrival() != null) {
+                f.setEstimatedArrival(f.getScheduledArrival());
+                updated = true;
+            }
+        }
+
+        /* 3) Если сейчас уже ПОСЛЕ estimated — заполняем actual этим estimated */
+        if (f.getEstimatedDeparture() != null
+                && (f.getActualDeparture() == null)
+                && now.isAfter(f.getEstimatedDeparture())) {
+            f.setActualDeparture(f.getEstimatedDeparture());
+            updated = true;
+        }
+
+        if (f.getEstimatedArrival() != null
+                && (f.getActualArrival() == null)
+                && now.isAfter(f.getEstimatedArrival())) {
+            f.setActualArrival(f.getEstimatedArrival());
+            updated = true;
+        }
+
+        /* 4) Доп. правила статусов:
+              - Если статус DEPARTED и уже есть estimatedDeparture — гарантируем actualDeparture
+              - Если статус ARRIVED и есть оба estimated — проставим оба actual */
+        if (isDeparted && f.getEstimatedDeparture() != null && f.getActualDeparture() == null) {
+            f.setActualDeparture(f.getEstimatedDeparture());
+            updated = true;
+        }
+        if (isArrived && f.getEstimatedDeparture() != null && f.getEstimatedArrival() != null) {
+            if (f.getActualDeparture() == null) { f.setActualDeparture(f.getEstimatedDeparture()); updated = true; }
+            if (f.getActualArrival()   == null) { f.setActualArrival(f.getEstimatedArrival());     updated = true; }
+        }
+        return updated;
+    }
+
+    /**
+     * Ближайший момент, после которого правила снова что-то изменят без записи в рейс:
+     * наступление расчётного вылета или прилёта, пока фактическое время не заполнено.
+     * Остальные правила зависят только от полей рейса и применяются сразу при записи.
+     */
+    static LocalDateTime nextRecalcAt(Flight f) {
+        return nextRecalcAt(f.getEstimatedDeparture(), f.getActualDeparture(),
+                f.getEstimatedArrival(), f.getActualArrival());
+    }
+
+    /** То же для строки-проекции */
+    static LocalDateTime nextRecalcAt(FlightRow row) {
+        return nextRecalcAt(row.estimatedDeparture(), row.actualDeparture(),
+                row.estimatedArrival(), row.actualArrival());
+    }
+
+    private static LocalDateTime nextRecalcAt(LocalDateTime estimatedDeparture, LocalDateTime actualDeparture,
+                                              LocalDateTime estimatedArrival, LocalDateTime actualArrival) {
+        LocalDateTime next = null;
+        if (actualDeparture == null && estimatedDeparture != null) {
+            next = estimatedDeparture;
+        }
+        if (actualArrival == null && estimatedArrival != null
+                && (next == null || estimatedArrival.isBefore(next))) {
+            next = estimatedArrival;
+        }
+        return next;
+    }
+
+    /** Рейсы с будущим событием (nextRecalcAt != null) — их сроки уходят в колесо пересчёта */
+    static Specification<Flight> pendingEvents() {
+        return (root, query, cb) -> cb.or(
+                cb.and(cb.isNull(root.get("actualDeparture")), cb.isNotNull(root.get("estimatedDeparture"))),
+                cb.and(cb.isNull(root.get("actualArrival")), cb.isNotNull(root.get("estimatedArrival"))));
+    }
+
+    /**
+     * Правила apply как HQL UPDATE над псевдонимом f, в порядке правил: итог для строки тот же, что при обходе в Java.
+     * Даты считает диалект Hibernate (timestampadd и т.п.), поэтому SQL переносимый.
+     */
+    enum Statement {
+        /** 1) DELAYED с задержкой: estimated = scheduled + delay */
+        DELAYED_ESTIMATES(
+                "f.estimatedDeparture = coalesce(f.scheduledDeparture + f.delayMinutes minute, f.estimatedDeparture), "
+                        + "f.estimatedArrival = coalesce(f.scheduledArrival + f.delayMinutes minute, f.estimatedArrival)",
+                "f.status = :delayed and f.delayMinutes > 0 and ("
+                        + "f.estimatedDeparture is distinct from coalesce(f.scheduledDeparture + f.delayMinutes minute, f.estimatedDeparture) "
+                        + "or f.estimatedArrival is distinct from coalesce(f.scheduledArrival + f.delayMinutes minute, f.estimatedArrival))"),
+        /** 2) Кроме DELAYED/CANCELLED: пустой estimated = scheduled */
+        DEFAULT_ESTIMATES(
+                "f.estimatedDeparture = coalesce(f.estimatedDeparture, f.scheduledDeparture), "
+                        + "f.estimatedArrival = coalesce(f.estimatedArrival, f.scheduledArrival)",
+                "(f.status is null or f.status not in (:delayed, :cancelled)) "
+                        + "and ((f.estimatedDeparture is null and f.scheduledDeparture is not null) "
+                        + "or (f.estimatedArrival is null and f.scheduledArrival is not null))"),
+        /** 3) + 4) actual = estimated: время прошло, либо рейс уже DEPARTED / ARRIVED */
+        ACTUAL_DEPARTURES(
+                "f.actualDeparture = f.estimatedDeparture",
+                "f.actualDeparture is null and f.estimatedDeparture is not null "
+                        + "and (f.estimatedDeparture < :now or f.status = :departed "
+                        + "or (f.status = :arrived and f.estimatedArrival is not null))"),
+        ACTUAL_ARRIVALS(
+                "f.actualArrival = f.estimatedArrival",
+                "f.actualArrival is null and f.estimatedArrival is not null "
+                        + "and (f.estimatedArrival < :now or (f.status = :arrived and f.estimatedDeparture is not null))");
+
+        private final String set;
+        private final String where;
+
+        Statement(String set, String where) {
+            this.set = set;
+            this.where = where;
+        }
+
+        /** Присваивания HQL UPDATE (last_updated ставит вызывающий) */
+        String set() {
+            return set;
+        }
+
+        /** Условие: ровно строки, которые правило изменит */
+        String where() {
+            return where;
+        }
+
+        /** Параметры всех операторов; запрос связывает только объявленные в нём */
+        static Map<String, Object> parameters(LocalDateTime now) {
+            return Map.of(
+                    "now", now,
+                    "delayed", Flight.FlightStatus.DELAYED,
+                    "cancelled", Flight.FlightStatus.CANCELLED,
+                    "departed", Flight.FlightStatus.DEPARTED,
+                    "arrived", Flight.FlightStatus.ARRIVED);
+        }
+    }
+}
@@ -2,25 +2,50 @@ package com.example.lowflightzone.services;
 
 import com.example.lowflightzone.dao.AirportDao;
 import com.example.lowflightzone.dao.FlightDao;
-import com.example.lowflightzone.dto.AirportDto;
+import com.example.lowflightzone.dao.FlightSubscriptionDao;
+import com.example.lowflightzone.dto.CursorPage;
 import com.example.lowflightzone.dto.FlightDto;
+import com.example.lowflightzone.dto.FlightFilter;
+import com.example.lowflightzone.dto.PageCursor;
+import com.example.lowflightzone.dto.ResourceVersion;
+import com.example.lowflightzone.dto.SuggestionDto;
 import com.example.lowflightzone.entity.Airport;
 import com.example.lowflightzone.entity.Flight;
-import com.example.lowflightzone.entity.FlightSubscription;
 import com.example.lowflightzone.exceptions.AirportException;
 import com.example.lowflightzone.exceptions.FlightException;
 import com.example.lowflightzone.exceptions.ValidationException;
+import com.example.lowflightzone.index.AirportBoards;
+import com.example.lowflightzone.index.AirportRegistry;
+import com.example.lowflightzone.index.FlightBoardIndex;
+import com.example.lowflightzone.index.FlightRecalcWheel;
+import com.example.lowflightzone.index.FlightSearchIndex;
+import com.example.lowflightzone.index.FlightSuggestIndex;
+import com.example.lowflightzone.index.IntHashSet;
+import com.example.lowflightzone.index.SubscribedFlightsCache;
+import com.example.lowflightzone.mappers.FlightMapper;
 import com.example.lowflightzone.repositories.FlightRepository;
-import com.example.lowflightzone.services.NotificationService;
-import jakarta.annotation.PostConstruct;
-import jakarta.transaction.Transactional;
+import com.example.lowflightzone.repositories.FlightSpecifications;
+import com.example.lowflightzone.repositories.projections.FlightRow;
+import com.example.lowflightzone.security.SecurityUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import lombok.extern.slf4j.Slf4j;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -29,167 +54,440 @@ public class FlightService {
 
     private static final String FLIGHT_NOT_FOUND_MESSAGE = "Рейс не найден: ";
     private static final String FLIGHT_ALREADY_EXISTS_MESSAGE = "Рейс с таким номером уже существует: ";
+    private static final String SEARCH_CURSOR_SEPARATOR = ";";
+    private static final int DEFAULT_SUGGESTIONS = 10;
+    private static final int MAX_SUGGESTIONS = 50;
+    /** Предел пакетного запроса рейсов: один IN-запрос и один групповой COUNT */
+    private static final int MAX_BATCH_SIZE = 500;
+    /** Изменений пересчёта в одной пачке уведомлений (адресаты пачки — один запрос, push — по браузеру) */
+    private static final int RECALC_EVENTS_BATCH_SIZE = 1_000;
+    private static final Duration RECALC_NEWS_MAX_AGE = Duration.ofHours(1);
 
     private final FlightDao flightDao;
     private final AirportDao airportDao;
+    private final FlightSubscriptionDao subscriptionDao;
     private final FlightRepository flightRepository;
-    private final NotificationService notificationService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FlightBoardIndex flightBoard;
+    private final FlightSearchIndex searchIndex;
+    private final FlightSuggestIndex suggestIndex;
+    private final SubscribedFlightsCache subscribedFlights;
+    private final FlightMapper flightMapper;
+    private final AirportRegistry airportRegistry;
+    private final AirportBoards airportBoards;
+    private final FlightViewRecorder viewRecorder;
+    private final SecurityUtils securityUtils;
+    private final EntityCacheService entityCache;
+    private final FlightRecalcWheel recalcWheel;
+    private final FlightRecalcJob recalcJob;
+    private final InMemoryIndexUpdates indexUpdates;
 
     @Autowired
-    public FlightService(FlightDao flightDao, AirportDao airportDao, FlightRepository flightRepository, NotificationService notificationService) {
+    public FlightService(FlightDao flightDao, AirportDao airportDao, FlightSubscriptionDao subscriptionDao,
+                         FlightRepository flightRepository, ApplicationEventPublisher eventPublisher,
+                         FlightBoardIndex flightBoard, FlightSearchIndex searchIndex, FlightSuggestIndex suggestIndex,
+                         SubscribedFlightsCache subscribedFlights, FlightMapper flightMapper,
+                         AirportRegistry airportRegistry, AirportBoards airportBoards,
+                         FlightViewRecorder viewRecorder, SecurityUtils securityUtils,
+                         EntityCacheService entityCache, FlightRecalcWheel recalcWheel,
+                         FlightRecalcJob recalcJob, InMemoryIndexUpdates indexUpdates) {
         this.flightDao = flightDao;
         this.airportDao = airportDao;
+        this.subscriptionDao = subscriptionDao;
         this.flightRepository = flightRepository;
-        this.notificationService = notificationService;
+        this.eventPublisher = eventPublisher;
+        this.flightBoard = flightBoard;
+        this.searchIndex = searchIndex;
+        this.suggestIndex = suggestIndex;
+        this.subscribedFlights = subscribedFlights;
+        this.flightMapper = flightMapper;
+        this.airportRegistry = airportRegistry;
+        this.airportBoards = airportBoards;
+        this.viewRecorder = viewRecorder;
+        this.securityUtils = securityUtils;
+        this.entityCache = entityCache;
+        this.recalcWheel = recalcWheel;
+        this.recalcJob = recalcJob;
+        this.indexUpdates = indexUpdates;
     }
 
-    public List<FlightDto> getFlights(String departureAirport, String arrivalAirport, String status) {
-        List<FlightDto> flights = flightDao.findAll().stream()
-                .filter(flight -> departureAirport == null ||
-                        flight.getDepartureAirport().getIataCode().equals(departureAirport))
-                .filter(flight -> arrivalAirport == null ||
-                        flight.getArrivalAirport().getIataCode().equals(arrivalAirport))
-                .filter(flight -> status == null || flight.getStatus().toString().equals(status))
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+    /**
+     * Загрузка справочника аэропортов, табло (общего и по аэропортам), поискового индекса и подсказок — прогревом
+     * после старта (после пересчёта и инициализации данных). Вызывать через InMemoryIndexUpdates.reload:
+     * записи, закоммиченные во время чтения снимка, применяются поверх него.
+     */
+    @Transactional
+    public void loadInMemoryIndexes() {
+        List<Airport> airports = airportDao.findAll();
+        airportRegistry.load(airports);
+
+        List<Flight> flights = flightDao.findAll();
+        Map<Integer, Integer> subscriptionCounts = subscriptionDao.countActiveForAllFlights();
+        List<FlightDto> boardRows = flightMapper.toDtos(flights, subscriptionCounts);
+        flightBoard.rebuild(boardRows);
+        airportBoards.rebuild(boardRows);
+        searchIndex.rebuild(airports, flights);
+        suggestIndex.rebuild(airports, flights);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<FlightDto> getFlights(FlightFilter filter, String cursorToken, Integer limit) {
+        int pageSize = PageCursor.normalizeLimit(limit);
+        PageCursor cursor = PageCursor.decode(cursorToken);
+
+        CursorPage<FlightDto> page;
+        if (filter.isBoardQuery() && flightBoard.isLoaded()) {
+            List<FlightDto> rows = flightBoard.query(
+                    filter.getDepartureAirport(), filter.getArrivalAirport(), filter.getStatus(),
+                    cursor != null ? (LocalDateTime) parseCursorKey(FlightSpecifications.SortKey.SCHEDULED_DEPARTURE, cursor) : null,
+                    cursor != null ? cursor.getId() : null,
+                    pageSize + 1);
+            page = CursorPage.of(rows, pageSize, dto -> dto,
+                    dto -> PageCursor.of(dto.getScheduledDeparture(), dto.getId()));
+        } else {
+            FlightSpecifications.SortKey sortKey = resolveSortKey(filter.getSortBy());
+            if (cursor != null) {
+                parseCursorKey(sortKey, cursor);
+            }
+            List<FlightRow> rows = flightDao.findRowSlice(
+                    FlightSpecifications.byFilter(filter)
+                            .and(FlightSpecifications.after(sortKey, cursor, filter.getSortDirection())),
+                    FlightSpecifications.keysetSort(sortKey, filter.getSortDirection()),
+                    pageSize + 1);
+            Map<Integer, Integer> subscriptionCounts = countActiveSubscriptionsOfRows(rows);
+            page = CursorPage.of(rows, pageSize,
+                    row -> flightMapper.toDto(row, subscriptionCounts.getOrDefault(row.id(), 0)), sortKey::cursorOf);
+        }
 
-        if (flights.isEmpty()) {
+        if (cursor == null && page.getItems().isEmpty()) {
             throw new FlightException("Рейсы с такими параметрами не найдены");
         }
-        return flights;
+        return page;
     }
 
-    public FlightDto getFlightByNumber(String flightNumber) {
-        Flight flight = flightDao.findByFlightNumber(flightNumber)
-                .orElseThrow(() -> new FlightException(FLIGHT_NOT_FOUND_MESSAGE + flightNumber));
-        return convertToDto(flight);
+    /**
+     * Версия списка рейсов: любая запись рейса меняет версию табло.
+     * Только для запросов, которые обслуживает само табло: тело читается после версии и не старше её.
+     * Остальные запросы идут в реплику / кэш второго уровня — их ETag не подтвердил бы свежесть; для них null.
+     */
+    public ResourceVersion getFlightsVersion(FlightFilter filter) {
+        return filter.isBoardQuery() && flightBoard.isLoaded()
+                ? ResourceVersion.inMemory("flights", flightBoard.version(), null)
+                : null;
     }
 
-    public List<FlightDto> searchFlights(String query, String userEmail) {
-        return flightRepository
-                .findByFlightNumberContainingIgnoreCaseOrDepartureAirport_CityContainingIgnoreCaseOrArrivalAirport_CityContainingIgnoreCaseOrDepartureAirport_IataCodeContainingIgnoreCaseOrArrivalAirport_IataCodeContainingIgnoreCaseOrDepartureAirport_NameContainingIgnoreCaseOrArrivalAirport_NameContainingIgnoreCase(
-                        query, query, query, query, query, query, query
-                )
-                .stream()
-                .map(flight -> convertToDtoWithSubscription(flight, userEmail))
-                .collect(Collectors.toList());
+    /**
+     * Рейс для условного GET: строка табло и версия её последнего изменения — тело и ETag из одного снимка.
+     * Last-Modified не выставляется: счётчик подписок меняет строку, но не lastUpdated.
+     * null — табло не загружено или рейса на нём нет: ответ без ETag через getFlightById.
+     */
+    public VersionedFlight getVersionedFlight(Integer id) {
+        if (!flightBoard.isLoaded()) {
+            return null;
+        }
+        FlightBoardIndex.VersionedRow row = flightBoard.getVersioned(id);
+        return row != null
+                ? new VersionedFlight(row.flight(), ResourceVersion.inMemory("flight-" + id, row.version(), null))
+                : null;
     }
 
-    private FlightDto convertToDtoWithSubscription(Flight flight, String userEmail) {
-        FlightDto dto = convertToDto(flight);
+    /** Просмотр рейса текущим пользователем — в фоновую очередь */
+    public void recordView(Integer flightId) {
+        securityUtils.getCurrentUserEmail().ifPresent(email -> viewRecorder.record(email, flightId));
+    }
 
-        if (userEmail != null && flight.getSubscriptions() != null) {
-            boolean isSubscribed = flight.getSubscriptions().stream()
-                    .anyMatch(sub -> sub.getUser() != null
-                            && sub.getUser().getEmail().equalsIgnoreCase(userEmail)
-                            && sub.getStatus() == FlightSubscription.SubscriptionStatus.ACTIVE);
+    public record VersionedFlight(FlightDto flight, ResourceVersion version) {
+    }
 
-            dto.setSubscribed(isSubscribed);
-        } else {
-            dto.setSubscribed(false);
+    static FlightSpecifications.SortKey resolveSortKey(String sortBy) {
+        if (sortBy == null) {
+            return FlightSpecifications.SortKey.SCHEDULED_DEPARTURE;
+        }
+        FlightSpecifications.SortKey sortKey = FlightSpecifications.SortKey.fromAttribute(sortBy);
+        if (sortKey == null) {
+            throw new ValidationException("Недопустимое поле сортировки: " + sortBy);
         }
+        return sortKey;
+    }
 
-        return dto;
+    /** Курсор должен соответствовать текущей сортировке, иначе это чужой/испорченный курсор */
+    private Comparable<?> parseCursorKey(FlightSpecifications.SortKey sortKey, PageCursor cursor) {
+        try {
+            return sortKey.parse(cursor.getKey());
+        } catch (RuntimeException e) {
+            throw new ValidationException("Курсор не соответствует сортировке " + sortKey.getAttribute());
+        }
     }
 
-    @Transactional
-    public void recalculateDelayedFlights() {
-        final LocalDateTime now = LocalDateTime.now();
-        List<Flight> flights = flightRepository.findAll();
-
-        for (Flight f : flights) {
-            boolean updated = false;
-
-            final boolean isDelayed   = f.getStatus() == Flight.FlightStatus.DELAYED;
-            final boolean isCancelled = f.getStatus() == Flight.FlightStatus.CANCELLED;
-            final boolean isDeparted  = f.getStatus() == Flight.FlightStatus.DEPARTED;
-            final boolean isArrived   = f.getStatus() == Flight.FlightStatus.ARRIVED;
-
-            Integer delay = f.getDelayMinutes() == null ? 0 : f.getDelayMinutes();
-
-            /* 1) Если рейс ЗАДЕРЖАН — считаем estimated = scheduled + delay */
-            if (isDelayed && delay > 0) {
-                if (f.getScheduledDeparture() != null) {
-                    LocalDateTime newEstDep = f.getScheduledDeparture().plusMinutes(delay);
-                    if (!newEstDep.equals(f.getEstimatedDeparture())) {
-                        f.setEstimatedDeparture(newEstDep);
-                        updated = true;
-                    }
-                }
-                if (f.getScheduledArrival() != null) {
-                    LocalDateTime newEstArr = f.getScheduledArrival().plusMinutes(delay);
-                    if (!newEstArr.equals(f.getEstimatedArrival())) {
-                        f.setEstimatedArrival(newEstArr);
-                        updated = true;
-                    }
-                }
-            }
+    @Transactional(readOnly = true)
+    public FlightDto getFlightByNumber(String flightNumber) {
+        Flight flight = flightDao.findByFlightNumber(flightNumber)
+                .orElseThrow(() -> new FlightException(FLIGHT_NOT_FOUND_MESSAGE + flightNumber));
+        return flightMapper.toDto(flight, subscriptionDao.countActiveByFlightId(flight.getId()));
+    }
 
-        /* 2) Для всех, кроме DELAYED/CANCELLED:
-              если estimated не задан — подставляем scheduled (бесплатный «прогноз») */
-            if (!isDelayed && !isCancelled) {
-                if (f.getEstimatedDeparture() == null && f.getScheduledDeparture() != null) {
-                    f.setEstimatedDeparture(f.getScheduledDeparture());
-                    updated = true;
-                }
-                if (f.getEstimatedArrival() == null && f.getScheduledArrival() != null) {
-                    f.setEstimatedArrival(f.getScheduledArrival());
-                    updated = true;
+    /**
+     * Пакетное чтение рейсов по id или по номерам (ровно один из списков) в порядке запроса.
+     * Одна проекция IN, аэропорты из справочника, подписки одним групповым COUNT;
+     * ненайденные и повторные значения пропускаются, просмотры не записываются.
+     */
+    @Transactional(readOnly = true)
+    public List<FlightDto> getFlightsBatch(List<Integer> ids, List<String> flightNumbers) {
+        boolean byIds = ids != null && !ids.isEmpty();
+        boolean byNumbers = flightNumbers != null && !flightNumbers.isEmpty();
+        if (byIds == byNumbers) {
+            throw new ValidationException("Укажите либо ids, либо numbers");
+        }
+
+        List<FlightRow> found;
+        List<Object> requested = new ArrayList<>();
+        if (byIds) {
+            Set<Integer> unique = new LinkedHashSet<>(ids);
+            unique.remove(null);
+            checkBatchSize(unique.size());
+            requested.addAll(unique);
+            found = flightDao.findRowsByIds(unique);
+        } else {
+            Set<String> unique = new LinkedHashSet<>();
+            for (String number : flightNumbers) {
+                if (number != null && !number.isBlank()) {
+                    unique.add(number.trim());
                 }
             }
+            checkBatchSize(unique.size());
+            requested.addAll(unique);
+            found = flightDao.findRowsByFlightNumbers(unique);
+        }
 
-            /* 3) Если сейчас уже ПОСЛЕ estimated — заполняем actual этим estimated */
-            if (f.getEstimatedDeparture() != null
-                    && (f.getActualDeparture() == null)
-                    && now.isAfter(f.getEstimatedDeparture())) {
-                f.setActualDeparture(f.getEstimatedDeparture());
-                updated = true;
+        Map<Object, FlightRow> rowsByKey = new HashMap<>(found.size() * 2);
+        for (FlightRow row : found) {
+            rowsByKey.put(byIds ? row.id() : row.flightNumber(), row);
+        }
+        Map<Integer, Integer> subscriptionCounts = countActiveSubscriptionsOfRows(found);
+        IntHashSet subscribed = securityUtils.getCurrentUserEmail()
+                .map(subscribedFlights::flightIdsOf)
+                .orElse(IntHashSet.EMPTY);
+
+        List<FlightDto> result = new ArrayList<>(found.size());
+        for (Object key : requested) {
+            FlightRow row = rowsByKey.get(key);
+            if (row != null) {
+                result.add(convertToDtoWithSubscription(row, subscribed, subscriptionCounts.getOrDefault(row.id(), 0)));
             }
+        }
+        return result;
+    }
 
-            if (f.getEstimatedArrival() != null
-                    && (f.getActualArrival() == null)
-                    && now.isAfter(f.getEstimatedArrival())) {
-                f.setActualArrival(f.getEstimatedArrival());
-                updated = true;
-            }
+    private static void checkBatchSize(int size) {
+        if (size > MAX_BATCH_SIZE) {
+            throw new ValidationException("Слишком много рейсов в запросе: " + size + " (максимум " + MAX_BATCH_SIZE + ")");
+        }
+    }
 
-        /* 4) Доп. правила статусов:
-              - Если статус DEPARTED и уже есть estimatedDeparture — гарантируем actualDeparture
-              - Если статус ARRIVED и есть оба estimated — проставим оба actual */
-            if (isDeparted && f.getEstimatedDeparture() != null && f.getActualDeparture() == null) {
-                f.setActualDeparture(f.getEstimatedDeparture());
-                updated = true;
-            }
-            if (isArrived && f.getEstimatedDeparture() != null && f.getEstimatedArrival() != null) {
-                if (f.getActualDeparture() == null) { f.setActualDeparture(f.getEstimatedDeparture()); updated = true; }
-                if (f.getActualArrival()   == null) { f.setActualArrival(f.getEstimatedArrival());     updated = true; }
-            }
+    @Transactional(readOnly = true)
+    public CursorPage<FlightDto> searchFlights(String query, String userEmail, String cursorToken, Integer limit) {
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("Поисковый запрос не может быть пустым");
+        }
+        int pageSize = PageCursor.normalizeLimit(limit);
+        PageCursor cursor = PageCursor.decode(cursorToken);
+        IntHashSet subscribed = subscribedFlights.flightIdsOf(userEmail);
+
+        if (searchIndex.isLoaded()) {
+            List<FlightSearchIndex.SearchHit> hits = searchIndex.search(query, parseSearchCursor(cursor), pageSize + 1);
+
+            // 📦 Строки только для найденных рейсов — одним IN-запросом проекции
+            List<FlightRow> found = flightDao.findRowsByIds(hits.stream()
+                    .map(FlightSearchIndex.SearchHit::getFlightId)
+                    .collect(Collectors.toList()));
+            Map<Integer, FlightRow> flightsById = found.stream()
+                    .collect(Collectors.toMap(FlightRow::id, Function.identity()));
+            Map<Integer, Integer> subscriptionCounts = countActiveSubscriptionsOfRows(found);
+
+            return CursorPage.of(hits, pageSize,
+                    hit -> flightsById.containsKey(hit.getFlightId())
+                            ? convertToDtoWithSubscription(flightsById.get(hit.getFlightId()), subscribed,
+                                    subscriptionCounts.getOrDefault(hit.getFlightId(), 0))
+                            : null,
+                    hit -> PageCursor.of(hit.getScore() + SEARCH_CURSOR_SEPARATOR + hit.getScheduledDeparture(),
+                            hit.getFlightId()));
+        }
 
-            /* 5) Финализация */
-            if (updated) {
-                f.setLastUpdated(now);
-                flightRepository.save(f);
-                log.info("✈️ Recalc: {} | status={} | delay={} | estDep={} estArr={} | actDep={} actArr={}",
-                        f.getFlightNumber(), f.getStatus(), f.getDelayMinutes(),
-                        f.getEstimatedDeparture(), f.getEstimatedArrival(),
-                        f.getActualDeparture(), f.getActualArrival());
-            }
+        FlightSpecifications.SortKey sortKey = FlightSpecifications.SortKey.SCHEDULED_DEPARTURE;
+        if (cursor != null) {
+            parseCursorKey(sortKey, cursor);
+        }
+        List<FlightRow> rows = flightDao.findRowSlice(
+                FlightSpecifications.matchesText(query)
+                        .and(FlightSpecifications.after(sortKey, cursor, Sort.Direction.ASC)),
+                FlightSpecifications.keysetSort(sortKey, Sort.Direction.ASC),
+                pageSize + 1);
+        Map<Integer, Integer> subscriptionCounts = countActiveSubscriptionsOfRows(rows);
+        return CursorPage.of(rows, pageSize,
+                row -> convertToDtoWithSubscription(row, subscribed, subscriptionCounts.getOrDefault(row.id(), 0)),
+                sortKey::cursorOf);
+    }
+
+    /** Курсор поиска по индексу: "score;scheduledDeparture" + id */
+    private FlightSearchIndex.SearchHit parseSearchCursor(PageCursor cursor) {
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            int separator = cursor.getKey().indexOf(SEARCH_CURSOR_SEPARATOR);
+            int score = Integer.parseInt(cursor.getKey().substring(0, separator));
+            String departure = cursor.getKey().substring(separator + 1);
+            return new FlightSearchIndex.SearchHit(cursor.getId(), score,
+                    "null".equals(departure) ? null : LocalDateTime.parse(departure));
+        } catch (RuntimeException e) {
+            throw new ValidationException("Некорректный курсор поиска");
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public List<SuggestionDto> suggest(String prefix, Integer limit) {
+        int size = limit == null ? DEFAULT_SUGGESTIONS : Math.min(Math.max(limit, 1), MAX_SUGGESTIONS);
+        if (suggestIndex.isLoaded()) {
+            return suggestIndex.suggest(prefix, size);
+        }
+        return suggestFromDatabase(prefix, size);
+    }
+
+    /**
+     * Подсказки до загрузки индекса (прогрев): номера рейсов — префиксным LIKE, аэропорты — из небольшого
+     * справочника. Как в индексе: по алфавиту, одинаковый текст — один раз, с типом по приоритету SuggestionType.
+     */
+    private List<SuggestionDto> suggestFromDatabase(String prefix, int size) {
+        String key = prefix == null ? "" : prefix.trim().toLowerCase(Locale.ROOT);
+        if (key.isEmpty()) {
+            return List.of();
+        }
+        List<Airport> airports = airportDao.findAll();
+        List<String> flightNumbers = flightDao.findFlightNumbersByPrefix(key, size);
+
+        TreeMap<String, SuggestionDto> byText = new TreeMap<>();
+        for (Airport airport : airports) {
+            addSuggestion(byText, key, airport.getIataCode(), FlightSuggestIndex.SuggestionType.IATA);
+        }
+        for (String flightNumber : flightNumbers) {
+            addSuggestion(byText, key, flightNumber, FlightSuggestIndex.SuggestionType.FLIGHT);
+        }
+        for (Airport airport : airports) {
+            addSuggestion(byText, key, airport.getCity(), FlightSuggestIndex.SuggestionType.CITY);
+        }
+        for (Airport airport : airports) {
+            addSuggestion(byText, key, airport.getName(), FlightSuggestIndex.SuggestionType.AIRPORT);
         }
+        return byText.values().stream().limit(size).toList();
     }
 
-    /** Запуск при старте */
-    @PostConstruct
-    public void runRecalculationOnStartup() {
-        log.info("🚀 Пересчёт рейсов при старте…");
-        recalculateDelayedFlights();
+    private static void addSuggestion(Map<String, SuggestionDto> byText, String key, String value,
+                                      FlightSuggestIndex.SuggestionType type) {
+        if (value == null) {
+            return;
+        }
+        String text = value.trim();
+        String normalized = text.toLowerCase(Locale.ROOT);
+        if (normalized.startsWith(key)) {
+            byText.putIfAbsent(normalized, new SuggestionDto(text, type.name()));
+        }
+    }
+
+    /** Табло рейсов и табло аэропортов получают один экземпляр DTO; после публикации он не меняется */
+    private void putOnBoards(FlightDto flight) {
+        flightBoard.put(flight);
+        airportBoards.put(flight);
     }
 
-    /** (опционально) Периодический пересчёт каждые 5 минут */
-    @Scheduled(fixedDelay = 5 * 60 * 1000)
-    public void recalcScheduler() {
-        recalculateDelayedFlights();
+    private FlightDto convertToDtoWithSubscription(FlightRow flight, IntHashSet subscribed, int subscriptionCount) {
+        FlightDto dto = flightMapper.toDto(flight, subscriptionCount);
+        dto.setSubscribed(subscribed.contains(flight.id()));
+        return dto;
+    }
+
+    /**
+     * Полный пересчёт всех рейсов пакетами (см. FlightRecalcJob): при старте, чтобы заполнить колесо пересчёта.
+     * Без общей транзакции — куски id идут в пуле потоков, каждый в своей.
+     */
+    public FlightRecalcJob.Report recalculateDelayedFlights() {
+        FlightRecalcJob.Report report = recalcJob.recalculateAll(LocalDateTime.now(), recalcWheel::schedule);
+
+        // при старте табло ещё не загружено — его соберёт loadInMemoryIndexes уже с пересчитанными строками
+        if (flightBoard.isLoaded()) {
+            refreshBoards(report.getTotal().getUpdatedIds());
+        }
+        entityCache.evictAllFlights();
+        // все куски уже закоммичены: пачки сразу уходят в очередь уведомлений
+        publishRecalcChanges(report.getTotal().getChanges());
+        if (report.hasFailures()) {
+            log.warn("⚠️ Полный пересчёт с ошибками: {}", report);
+        } else {
+            log.info("🔁 Полный пересчёт: {}", report);
+        }
+        log.info("⏱ В колесе пересчёта рейсов: {}", recalcWheel.size());
+        return report;
+    }
+
+    /** Пересчёт рейсов, чей срок наступил (см. FlightRecalcEngine); удалённые просто не найдутся */
+    @Transactional
+    public void recalculateFlights(Collection<Integer> flightIds) {
+        FlightRecalcJob.Result result = recalcJob.recalculate(flightIds, LocalDateTime.now());
+        scheduleRecalc(result.getNextRecalc());
+
+        refreshBoards(result.getUpdatedIds());
+        entityCache.evictFlights(result.getUpdatedIds());
+        publishRecalcChanges(result.getChanges());
+        if (!result.getUpdatedIds().isEmpty()) {
+            log.info("✈️ Recalc: {}", result);
+        }
     }
 
+    /**
+     * События пересчёта (вылетел, прибыл, сдвинулся прогноз) — пачками в конвейер уведомлений;
+     * рассылка идёт после коммита в потоке FlightChangeNotifier, не в транзакции пересчёта.
+     * Давние вылеты и прилёты (догоняющий пересчёт после простоя) новостью не считаются.
+     */
+    private void publishRecalcChanges(Collection<FlightChangeEvent> changes) {
+        LocalDateTime oldNewsBefore = LocalDateTime.now().minus(RECALC_NEWS_MAX_AGE);
+        List<FlightChangeEvent> batch = new ArrayList<>();
+        for (FlightChangeEvent change : changes) {
+            LocalDateTime happenedAt = change.arrivedAt() != null ? change.arrivedAt() : change.departedAt();
+            if (happenedAt != null && happenedAt.isBefore(oldNewsBefore)) {
+                continue;
+            }
+            batch.add(change);
+            if (batch.size() == RECALC_EVENTS_BATCH_SIZE) {
+                eventPublisher.publishEvent(new FlightChangeEvent.Batch(batch));
+                batch = new ArrayList<>();
+            }
+        }
+        if (!batch.isEmpty()) {
+            eventPublisher.publishEvent(new FlightChangeEvent.Batch(batch));
+        }
+    }
+
+    /**
+     * Изменённые пакетным пересчётом рейсы — на табло проекциями.
+     * Строки читаются в транзакции пересчёта, на табло попадают после её коммита. Без проверки
+     * flightBoard.isLoaded(): во время загрузки табло изменение должно встать в очередь InMemoryIndexUpdates.
+     */
+    private void refreshBoards(Collection<Integer> flightIds) {
+        if (flightIds.isEmpty()) {
+            return;
+        }
+        List<Integer> ids = new ArrayList<>(flightIds);
+        List<FlightDto> dtos = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += MAX_BATCH_SIZE) {
+            List<FlightRow> rows = flightDao.findRowsByIds(ids.subList(from, Math.min(from + MAX_BATCH_SIZE, ids.size())));
+            Map<Integer, Integer> subscriptionCounts = countActiveSubscriptionsOfRows(rows);
+            for (FlightRow row : rows) {
+                dtos.add(flightMapper.toDto(row, subscriptionCounts.getOrDefault(row.id(), 0)));
+            }
+        }
+        updateBoards(dtos);
+    }
+
+    @Transactional
     public FlightDto addFlight(FlightDto flightDto) {
         validateFlightDto(flightDto);
 
@@ -198,9 +496,58 @@ public class FlightService {
         }
 
         Flight flight = convertToEntity(flightDto);
+        FlightRecalcRules.apply(flight, LocalDateTime.now());
         Flight savedFlight = flightDao.save(flight);
 
-        return convertToDto(savedFlight);
+        FlightDto savedDto = flightMapper.toDto(savedFlight, 0);
+        indexFlightAfterCommit(savedFlight, savedDto);
+        return savedDto;
+    }
+
+    /** Сроки пересчёта (null — событий больше нет) — в колесо после коммита */
+    public void scheduleRecalc(Map<Integer, LocalDateTime> nextRecalc) {
+        Map<Integer, LocalDateTime> schedule = new HashMap<>(nextRecalc);
+        indexUpdates.afterCommit(() -> schedule.forEach(recalcWheel::schedule));
+    }
+
+    /** Рейсы, изменённые в обход JPA (массовое обновление): общее табло и табло аэропортов — после коммита */
+    public void updateBoards(Collection<FlightDto> flights) {
+        List<FlightDto> rows = List.copyOf(flights);
+        indexUpdates.afterCommit(() -> {
+            for (FlightDto flight : rows) {
+                putOnBoards(flight);
+            }
+        });
+    }
+
+    /** Записанный через JPA рейс — в колесо пересчёта, на табло, в поиск и подсказки, когда запись закоммичена */
+    private void indexFlightAfterCommit(Flight flight, FlightDto dto) {
+        LocalDateTime nextRecalc = FlightRecalcRules.nextRecalcAt(flight);
+        indexUpdates.afterCommit(() -> {
+            recalcWheel.schedule(flight.getId(), nextRecalc);
+            putOnBoards(dto);
+            searchIndex.putFlight(flight);
+            suggestIndex.putFlight(flight);
+        });
+    }
+
+    /**
+     * Рейсы, вставленные импортом в обход JPA: табло, поиск и подсказки (подписок у новых рейсов нет).
+     * Правила пересчёта к ним ещё не применялись — ставим в колесо на ближайший тик.
+     */
+    public void indexImportedFlights(Collection<Flight> flights) {
+        List<Flight> imported = List.copyOf(flights);
+        List<FlightDto> dtos = flightMapper.toDtos(imported, Map.of());
+        indexUpdates.afterCommit(() -> {
+            LocalDateTime now = LocalDateTime.now();
+            for (int i = 0; i < imported.size(); i++) {
+                Flight flight = imported.get(i);
+                recalcWheel.schedule(flight.getId(), now);
+                putOnBoards(dtos.get(i));
+                searchIndex.putFlight(flight);
+                suggestIndex.putFlight(flight);
+            }
+        });
     }
 
     public void deleteFlightById(Integer id) {
@@ -208,6 +555,14 @@ public class FlightService {
                 .orElseThrow(() -> new FlightException(FLIGHT_NOT_FOUND_MESSAGE + id));
 
         flightDao.deleteById(id);
+        entityCache.evictFlight(id);
+        indexUpdates.afterCommit(() -> {
+            recalcWheel.cancel(id);
+            flightBoard.remove(id);
+            airportBoards.remove(id);
+            searchIndex.removeFlight(id);
+            suggestIndex.removeFlight(id);
+        });
     }
 
     @Transactional
@@ -220,20 +575,20 @@ public class FlightService {
         // 🔎 Сохраняем старые значения, чтобы потом сравнить
         Flight.FlightStatus oldStatus = flight.getStatus();
         LocalDateTime oldDeparture = flight.getScheduledDeparture();
+        Integer oldDelay = flight.getDelayMinutes();
+        LocalDateTime oldEstimated = flight.getEstimatedDeparture();
+        boolean wasDeparted = flight.getActualDeparture() != null;
+        boolean wasArrived = flight.getActualArrival() != null;
 
         // ✈️ Обновляем аэропорты через их коды
         if (updatedFlightDto.getDepartureAirport() != null) {
-            Airport departureAirport = airportDao.findByIataCode(
-                    updatedFlightDto.getDepartureAirport().getIataCode()
-            ).orElseThrow(() -> new AirportException("Аэропорт вылета не найден"));
-            flight.setDepartureAirport(departureAirport);
+            flight.setDepartureAirport(resolveAirport(
+                    updatedFlightDto.getDepartureAirport().getIataCode(), "Аэропорт вылета не найден"));
         }
 
         if (updatedFlightDto.getArrivalAirport() != null) {
-            Airport arrivalAirport = airportDao.findByIataCode(
-                    updatedFlightDto.getArrivalAirport().getIataCode()
-            ).orElseThrow(() -> new AirportException("Аэропорт прибытия не найден"));
-            flight.setArrivalAirport(arrivalAirport);
+            flight.setArrivalAirport(resolveAirport(
+                    updatedFlightDto.getArrivalAirport().getIataCode(), "Аэропорт прибытия не найден"));
         }
 
         // ✏️ Обновляем остальные поля
@@ -242,6 +597,8 @@ public class FlightService {
         flight.setScheduledDeparture(updatedFlightDto.getScheduledDeparture());
         flight.setStatus(Flight.FlightStatus.valueOf(updatedFlightDto.getStatus()));
         flight.setDelayMinutes(updatedFlightDto.getDelayMinutes());
+        // ⏱ Пересчёт сразу, не дожидаясь колеса
+        FlightRecalcRules.apply(flight, LocalDateTime.now());
 
         Flight updatedFlight = flightDao.save(flight);
 
@@ -250,12 +607,22 @@ public class FlightService {
         boolean departureChanged = !Objects.equals(oldDeparture, updatedFlight.getScheduledDeparture());
 
         if (statusChanged || departureChanged) {
-            notificationService.notifySubscribersAboutFlightUpdate(updatedFlight);
+            // рассылка в фоне после коммита
+            eventPublisher.publishEvent(new FlightChangeEvent.Batch(List.of(new FlightChangeEvent(
+                    updatedFlight.getId(), updatedFlight.getFlightNumber(),
+                    oldStatus, updatedFlight.getStatus(), oldDelay, updatedFlight.getDelayMinutes(),
+                    oldDeparture, updatedFlight.getScheduledDeparture(), oldEstimated, updatedFlight.getEstimatedDeparture(),
+                    wasDeparted ? null : updatedFlight.getActualDeparture(),
+                    wasArrived ? null : updatedFlight.getActualArrival()))));
         }
+        entityCache.evictFlight(id);
 
-        return convertToDto(updatedFlight);
+        FlightDto updatedDto = flightMapper.toDto(updatedFlight, subscriptionDao.countActiveByFlightId(id));
+        indexFlightAfterCommit(updatedFlight, updatedDto);
+        return updatedDto;
     }
 
+    @Transactional
     public FlightDto patchFlight(Integer id, FlightDto partialFlightDto) {
         Flight flight = flightDao.findById(id)
                 .orElseThrow(() -> new FlightException(FLIGHT_NOT_FOUND_MESSAGE + id));
@@ -267,14 +634,12 @@ public class FlightService {
             flight.setAirline(partialFlightDto.getAirline());
         }
         if (partialFlightDto.getDepartureAirport() != null) {
-            Airport departureAirport = airportDao.findByIataCode(partialFlightDto.getDepartureAirport().getIataCode())
-                    .orElseThrow(() -> new AirportException("Аэропорт вылета не найден"));
-            flight.setDepartureAirport(departureAirport);
+            flight.setDepartureAirport(resolveAirport(
+                    partialFlightDto.getDepartureAirport().getIataCode(), "Аэропорт вылета не найден"));
         }
         if (partialFlightDto.getArrivalAirport() != null) {
-            Airport arrivalAirport = airportDao.findByIataCode(partialFlightDto.getArrivalAirport().getIataCode())
-                    .orElseThrow(() -> new AirportException("Аэропорт прибытия не найден"));
-            flight.setArrivalAirport(arrivalAirport);
+            flight.setArrivalAirport(resolveAirport(
+                    partialFlightDto.getArrivalAirport().getIataCode(), "Аэропорт прибытия не найден"));
         }
         if (partialFlightDto.getScheduledDeparture() != null) {
             flight.setScheduledDeparture(partialFlightDto.getScheduledDeparture());
@@ -285,9 +650,28 @@ public class FlightService {
         if (partialFlightDto.getDelayMinutes() != null) {
             flight.setDelayMinutes(partialFlightDto.getDelayMinutes());
         }
+        FlightRecalcRules.apply(flight, LocalDateTime.now());
 
         Flight updatedFlight = flightDao.save(flight);
-        return convertToDto(updatedFlight);
+        entityCache.evictFlight(id);
+        FlightDto updatedDto = flightMapper.toDto(updatedFlight, subscriptionDao.countActiveByFlightId(id));
+        indexFlightAfterCommit(updatedFlight, updatedDto);
+        return updatedDto;
+    }
+
+    /**
+     * Аэропорт для записи рейса: код проверяется по справочнику в памяти,
+     * в рейс кладётся JPA-ссылка по id — без SELECT на горячем пути записи.
+     */
+    private Airport resolveAirport(String iataCode, String notFoundMessage) {
+        if (!airportRegistry.isLoaded()) {
+            return airportDao.findByIataCode(iataCode)
+                    .orElseThrow(() -> new AirportException(notFoundMessage));
+        }
+        if (!airportRegistry.contains(iataCode)) {
+            throw new AirportException(notFoundMessage);
+        }
+        return airportDao.getReference(iataCode);
     }
 
     private void validateFlightDto(FlightDto flightDto) {
@@ -308,156 +692,47 @@ public class FlightService {
         }
     }
 
-    private FlightDto convertToDto(Flight flight) {
-        FlightDto flightDto = new FlightDto();
-        flightDto.setId(flight.getId());
-        flightDto.setFlightNumber(flight.getFlightNumber());
-        flightDto.setAirline(flight.getAirline());
-
-        // ✈️ Конвертируем Airport entity в AirportDto
-        if (flight.getDepartureAirport() != null) {
-            AirportDto departureDto = new AirportDto();
-            departureDto.setIataCode(flight.getDepartureAirport().getIataCode());
-            departureDto.setName(flight.getDepartureAirport().getName());
-            departureDto.setCity(flight.getDepartureAirport().getCity());
-            departureDto.setCountry(flight.getDepartureAirport().getCountry());
-            departureDto.setAltitude(flight.getDepartureAirport().getAltitude());
-            departureDto.setLatitude(flight.getDepartureAirport().getLatitude());
-            departureDto.setLongitude(flight.getDepartureAirport().getLongitude());
-            flightDto.setDepartureAirport(departureDto);
-        }
-
-        if (flight.getArrivalAirport() != null) {
-            AirportDto arrivalDto = new AirportDto();
-            arrivalDto.setIataCode(flight.getArrivalAirport().getIataCode());
-            arrivalDto.setName(flight.getArrivalAirport().getName());
-            arrivalDto.setCity(flight.getArrivalAirport().getCity());
-            arrivalDto.setCountry(flight.getArrivalAirport().getCountry());
-            arrivalDto.setAltitude(flight.getDepartureAirport().getAltitude());
-            arrivalDto.setLatitude(flight.getArrivalAirport().getLatitude());
-            arrivalDto.setLongitude(flight.getArrivalAirport().getLongitude());
-            flightDto.setArrivalAirport(arrivalDto);
-        }
-
-        flightDto.setScheduledDeparture(flight.getScheduledDeparture());
-        flightDto.setScheduledArrival(flight.getScheduledArrival());
-        flightDto.setEstimatedDeparture(flight.getEstimatedDeparture());
-        flightDto.setEstimatedArrival(flight.getEstimatedArrival());
-        flightDto.setActualDeparture(flight.getActualDeparture());
-        flightDto.setActualArrival(flight.getActualArrival());
-        flightDto.setStatus(flight.getStatus() != null ? flight.getStatus().toString() : null);
-        flightDto.setDelayMinutes(flight.getDelayMinutes());
-        flightDto.setTerminal(flight.getTerminal());
-        flightDto.setGate(flight.getGate());
-        flightDto.setLastUpdated(flight.getLastUpdated());
-
-        // ✅ Считаем только активные подписки
-        if (flight.getSubscriptions() != null) {
-            long activeSubscriptions = flight.getSubscriptions().stream()
-                    .filter(sub -> sub.getStatus() == FlightSubscription.SubscriptionStatus.ACTIVE)
-                    .count();
-            flightDto.setSubscriptionCount((int) activeSubscriptions);
-        } else {
-            flightDto.setSubscriptionCount(0);
+    private Map<Integer, Integer> countActiveSubscriptionsOfRows(List<FlightRow> rows) {
+        if (rows.isEmpty()) {
+            return Map.of();
         }
-
-        return flightDto;
+        List<Integer> ids = new ArrayList<>(rows.size());
+        for (FlightRow row : rows) {
+            ids.add(row.id());
+        }
+        return subscriptionDao.countActiveByFlightIds(ids);
     }
 
-    @Transactional
+    /**
+     * Только чтение: просмотр уходит в фоновую очередь и не влияет на задержку ответа.
+     * Рейс по id и его аэропорты берутся из кэша второго уровня, при промахе — из БД.
+     */
+    @Transactional(readOnly = true)
     public FlightDto getFlightById(Integer id) {
-        Flight flight = flightRepository.findByIdWithDetails(id)
+        Flight flight = flightDao.findById(id)
                 .orElseThrow(() -> new FlightException("Рейс не найден: " + id));
 
-        // 🛠 Безопасная запись просмотра (не прерывает выполнение)
-        try {
-            viewHistoryService.recordFlightView(id);
-        } catch (Exception e) {
-            log.warn("⚠️ Не удалось записать просмотр рейса {}: {}", id, e.getMessage());
-        }
-
-        return convertToDtoSafe(flight);
-    }
-
-    private FlightDto convertToDtoSafe(Flight flight) {
-        FlightDto dto = new FlightDto();
-        dto.setId(flight.getId());
-        dto.setFlightNumber(flight.getFlightNumber());
-        dto.setAirline(flight.getAirline());
-        dto.setStatus(flight.getStatus() != null ? flight.getStatus().toString() : "UNKNOWN");
-        dto.setDelayMinutes(flight.getDelayMinutes());
-        dto.setTerminal(flight.getTerminal());
-        dto.setGate(flight.getGate());
-        dto.setLastUpdated(flight.getLastUpdated());
-
-        // ✈️ Аэропорты
-        if (flight.getDepartureAirport() != null) {
-            AirportDto dep = new AirportDto();
-            dep.setIataCode(flight.getDepartureAirport().getIataCode());
-            dep.setName(flight.getDepartureAirport().getName());
-            dep.setCity(flight.getDepartureAirport().getCity());
-            dep.setCountry(flight.getDepartureAirport().getCountry());
-            dep.setAltitude(flight.getDepartureAirport().getAltitude());
-            dep.setLongitude(flight.getDepartureAirport().getLongitude());
-            dep.setLatitude(flight.getDepartureAirport().getLatitude());
-            dto.setDepartureAirport(dep);
-        }
-
-        if (flight.getArrivalAirport() != null) {
-            AirportDto arr = new AirportDto();
-            arr.setIataCode(flight.getArrivalAirport().getIataCode());
-            arr.setName(flight.getArrivalAirport().getName());
-            arr.setCity(flight.getArrivalAirport().getCity());
-            arr.setCountry(flight.getArrivalAirport().getCountry());
-            arr.setAltitude(flight.getDepartureAirport().getAltitude());
-            arr.setLatitude(flight.getArrivalAirport().getLatitude());
-            arr.setLongitude(flight.getArrivalAirport().getLongitude());
-            dto.setArrivalAirport(arr);
-        }
-
-        dto.setScheduledDeparture(flight.getScheduledDeparture());
-        dto.setScheduledArrival(flight.getScheduledArrival());
-        dto.setEstimatedDeparture(flight.getEstimatedDeparture());
-        dto.setEstimatedArrival(flight.getEstimatedArrival());
-        dto.setActualDeparture(flight.getActualDeparture());
-        dto.setActualArrival(flight.getActualArrival());
+        recordView(id);
 
         // 📊 Подписки
         int activeSubs = 0;
         try {
-            if (flight.getSubscriptions() != null) {
-                activeSubs = (int) flight.getSubscriptions().stream()
-                        .filter(sub -> sub.getStatus() == FlightSubscription.SubscriptionStatus.ACTIVE)
-                        .count();
-            }
+            activeSubs = subscriptionDao.countActiveByFlightId(flight.getId());
         } catch (Exception e) {
             log.warn("⚠️ Ошибка при подсчёте подписок для рейса {}: {}", flight.getId(), e.getMessage());
         }
-        dto.setSubscriptionCount(activeSubs);
-
-        return dto;
+        return flightMapper.toDto(flight, activeSubs);
     }
 
-
-
-    @Autowired
-    private FlightViewHistoryService viewHistoryService;
-
+    @Transactional(readOnly = true)
     public FlightDto getFlightById(Integer id, Integer userId) {
         Flight flight = flightDao.findById(id)
                 .orElseThrow(() -> new FlightException(FLIGHT_NOT_FOUND_MESSAGE + id));
 
-        // Записываем просмотр
-        if (userId != null) {
-            try {
-                viewHistoryService.recordFlightView(userId, id);
-            } catch (Exception e) {
-                // Логируем ошибку, но не прерываем выполнение
-                log.warn("Failed to record flight view for user {} and flight {}", userId, id, e);
-            }
-        }
+        // Просмотр пишется в фоне
+        viewRecorder.record(userId, id);
 
-        return convertToDto(flight);
+        return flightMapper.toDto(flight, subscriptionDao.countActiveByFlightId(id));
     }
 
     private Flight convertToEntity(FlightDto flightDto) {
@@ -468,15 +743,13 @@ public class FlightService {
 
         // Находим аэропорты по их кодам
         if (flightDto.getDepartureAirport() != null) {
-            Airport departureAirport = airportDao.findByIataCode(flightDto.getDepartureAirport().getIataCode())
-                    .orElseThrow(() -> new AirportException("Аэропорт вылета не найден: " + flightDto.getDepartureAirport().getIataCode()));
-            flight.setDepartureAirport(departureAirport);
+            String code = flightDto.getDepartureAirport().getIataCode();
+            flight.setDepartureAirport(resolveAirport(code, "Аэропорт вылета не найден: " + code));
         }
 
         if (flightDto.getArrivalAirport() != null) {
-            Airport arrivalAirport = airportDao.findByIataCode(flightDto.getArrivalAirport().getIataCode())
-                    .orElseThrow(() -> new AirportException("Аэропорт прибытия не найден: " + flightDto.getArrivalAirport().getIataCode()));
-            flight.setArrivalAirport(arrivalAirport);
+            String code = flightDto.getArrivalAirport().getIataCode();
+            flight.setArrivalAirport(resolveAirport(code, "Аэропорт прибытия не найден: " + code));
         }
 
         flight.setScheduledDeparture(flightDto.getScheduledDeparture());
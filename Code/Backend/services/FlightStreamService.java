@@ -0,0 +1,202 @@
+package com.example.lowflightzone.services;
+
+import com.example.lowflightzone.dao.FlightDao;
+import com.example.lowflightzone.dao.FlightSubscriptionDao;
+import com.example.lowflightzone.dto.FlightDto;
+import com.example.lowflightzone.dto.FlightFilter;
+import com.example.lowflightzone.entity.Flight;
+import com.example.lowflightzone.exceptions.ValidationException;
+import com.example.lowflightzone.index.FlightSearchIndex;
+import com.example.lowflightzone.index.IntHashSet;
+import com.example.lowflightzone.index.SubscribedFlightsCache;
+import com.example.lowflightzone.mappers.FlightMapper;
+import com.example.lowflightzone.repositories.FlightSpecifications;
+import com.example.lowflightzone.repositories.projections.FlightRow;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Потоковая выгрузка рейсов в NDJSON (один FlightDto на строку).
+ * Рейсы читаются курсором БД проекцией (без сущностей и контекста персистентности), маппятся и пишутся порциями: память не растёт с размером табло,
+ * а первые строки уходят клиенту сразу после первой порции.
+ */
+@Slf4j
+@Service
+public class FlightStreamService {
+
+    public static final String NDJSON = "application/x-ndjson";
+
+    private static final int FETCH_SIZE = 500;
+    /** Строк на порцию: один групповой COUNT подписок и один flush на порцию */
+    private static final int CHUNK_SIZE = 500;
+    private static final int GZIP_BUFFER_SIZE = 8192;
+
+    private final FlightDao flightDao;
+    private final FlightSubscriptionDao subscriptionDao;
+    private final FlightSearchIndex searchIndex;
+    private final SubscribedFlightsCache subscribedFlights;
+    private final FlightMapper flightMapper;
+    private final ObjectWriter objectWriter;
+    private final TransactionTemplate readOnlyTransaction;
+
+    @Autowired
+    public FlightStreamService(FlightDao flightDao, FlightSubscriptionDao subscriptionDao, FlightSearchIndex searchIndex,
+                               SubscribedFlightsCache subscribedFlights, FlightMapper flightMapper,
+                               ObjectMapper objectMapper, PlatformTransactionManager transactionManager) {
+        this.flightDao = flightDao;
+        this.subscriptionDao = subscriptionDao;
+        this.searchIndex = searchIndex;
+        this.subscribedFlights = subscribedFlights;
+        this.flightMapper = flightMapper;
+        // flush делаем сами раз в порцию, а не после каждого объекта — иначе gzip сжимает по строке
+        this.objectWriter = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Все рейсы по фильтру в порядке сортировки. Параметры проверяются сразу,
+     * чтобы ошибка ушла обычным ответом 4xx, а не обрывом уже начатого потока.
+     */
+    public StreamingResponseBody streamFlights(FlightFilter filter, boolean gzip) {
+        FlightSpecifications.SortKey sortKey = FlightService.resolveSortKey(filter.getSortBy());
+        Specification<Flight> specification = FlightSpecifications.byFilter(filter);
+        Sort sort = FlightSpecifications.keysetSort(sortKey, filter.getSortDirection());
+        return out -> write(out, gzip, json -> writeFromDatabase(specification, sort, IntHashSet.EMPTY, json));
+    }
+
+    /** Все результаты поиска: в порядке ранжирования индекса, до его загрузки — по времени вылета из БД */
+    public StreamingResponseBody streamSearch(String query, String userEmail, boolean gzip) {
+        if (query == null || query.isBlank()) {
+            throw new ValidationException("Поисковый запрос не может быть пустым");
+        }
+        IntHashSet subscribed = subscribedFlights.flightIdsOf(userEmail);
+
+        if (searchIndex.isLoaded()) {
+            // 🔎 Попадания — только id и ключи ранжирования, строки рейсов догружаются порциями
+            List<FlightSearchIndex.SearchHit> hits = searchIndex.search(query, null, Integer.MAX_VALUE);
+            return out -> write(out, gzip, json -> writeHits(hits, subscribed, json));
+        }
+
+        Specification<Flight> specification = FlightSpecifications.matchesText(query);
+        Sort sort = FlightSpecifications.keysetSort(FlightSpecifications.SortKey.SCHEDULED_DEPARTURE, Sort.Direction.ASC);
+        return out -> write(out, gzip, json -> writeFromDatabase(specification, sort, subscribed, json));
+    }
+
+    private void write(OutputStream out, boolean gzip, BodyWriter body) throws IOException {
+        long started = System.currentTimeMillis();
+        GZIPOutputStream compressed = gzip ? new GZIPOutputStream(out, GZIP_BUFFER_SIZE, true) : null;
+        try (JsonGenerator json = objectWriter.createGenerator(compressed != null ? compressed : out)) {
+            // поток ответа закрывает контейнер; строки NDJSON разделяем сами
+            json.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+            json.setRootValueSeparator(null);
+
+            int[] written = new int[1];
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try {
+                    written[0] = body.write(json);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            json.flush();
+            if (compressed != null) {
+                compressed.finish();
+            }
+            log.info("📤 Выгружено рейсов потоком: {} за {} мс (gzip={})",
+                    written[0], System.currentTimeMillis() - started, gzip);
+        } catch (UncheckedIOException e) {
+            // 🔌 Обычно клиент закрыл соединение посреди выгрузки
+            log.warn("⚠️ Потоковая выгрузка рейсов прервана: {}", e.getCause().getMessage());
+            throw e.getCause();
+        }
+    }
+
+    private int writeFromDatabase(Specification<Flight> specification, Sort sort, IntHashSet subscribed,
+                                  JsonGenerator json) throws IOException {
+        int written = 0;
+        try (Stream<FlightRow> rows = flightDao.streamRows(specification, sort, FETCH_SIZE)) {
+            Iterator<FlightRow> iterator = rows.iterator();
+            List<FlightRow> chunk = new ArrayList<>(CHUNK_SIZE);
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == CHUNK_SIZE || !iterator.hasNext()) {
+                    written += writeChunk(chunk, subscribed, json);
+                    chunk.clear();
+                }
+            }
+        }
+        return written;
+    }
+
+    private int writeHits(List<FlightSearchIndex.SearchHit> hits, IntHashSet subscribed,
+                          JsonGenerator json) throws IOException {
+        int written = 0;
+        for (int from = 0; from < hits.size(); from += CHUNK_SIZE) {
+            List<FlightSearchIndex.SearchHit> slice = hits.subList(from, Math.min(from + CHUNK_SIZE, hits.size()));
+            List<Integer> ids = new ArrayList<>(slice.size());
+            for (FlightSearchIndex.SearchHit hit : slice) {
+                ids.add(hit.getFlightId());
+            }
+
+            Map<Integer, FlightRow> rowsById = new HashMap<>(ids.size() * 2);
+            for (FlightRow row : flightDao.findRowsByIds(ids)) {
+                rowsById.put(row.id(), row);
+            }
+            // порядок ранжирования; рейс, удалённый после поиска, просто пропускаем
+            List<FlightRow> chunk = new ArrayList<>(slice.size());
+            for (Integer id : ids) {
+                FlightRow row = rowsById.get(id);
+                if (row != null) {
+                    chunk.add(row);
+                }
+            }
+            written += writeChunk(chunk, subscribed, json);
+        }
+        return written;
+    }
+
+    /** Порция: групповой COUNT подписок, запись строк и flush клиенту */
+    private int writeChunk(List<FlightRow> chunk, IntHashSet subscribed, JsonGenerator json) throws IOException {
+        List<Integer> ids = new ArrayList<>(chunk.size());
+        for (FlightRow row : chunk) {
+            ids.add(row.id());
+        }
+        Map<Integer, Integer> subscriptionCounts = subscriptionDao.countActiveByFlightIds(ids);
+
+        for (FlightRow row : chunk) {
+            FlightDto dto = flightMapper.toDto(row, subscriptionCounts.getOrDefault(row.id(), 0));
+            dto.setSubscribed(subscribed.contains(row.id()));
+            objectWriter.writeValue(json, dto);
+            json.writeRaw('\n');
+        }
+        json.flush();
+        return chunk.size();
+    }
+
+    @FunctionalInterface
+    private interface BodyWriter {
+        int write(JsonGenerator json) throws IOException;
+    }
+}
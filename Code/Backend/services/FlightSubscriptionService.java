@@ -3,23 +3,34 @@ package com.example.lowflightzone.services;
 import com.example.lowflightzone.dao.FlightDao;
 import com.example.lowflightzone.dao.FlightSubscriptionDao;
 import com.example.lowflightzone.dao.UserDao;
+import com.example.lowflightzone.dto.CursorPage;
 import com.example.lowflightzone.dto.FlightDto;
 import com.example.lowflightzone.dto.FlightSubscriptionDto;
+import com.example.lowflightzone.dto.PageCursor;
 import com.example.lowflightzone.dto.UserDto;
 import com.example.lowflightzone.entity.Flight;
 import com.example.lowflightzone.entity.FlightSubscription;
 import com.example.lowflightzone.entity.User;
 import com.example.lowflightzone.exceptions.FlightException;
 import com.example.lowflightzone.exceptions.SubscriptionException;
+import com.example.lowflightzone.index.FlightBoardIndex;
+import com.example.lowflightzone.index.SubscribedFlightsCache;
+import com.example.lowflightzone.mappers.FlightMapper;
 import com.example.lowflightzone.repositories.FlightSubscriptionRepository;
+import com.example.lowflightzone.repositories.projections.FlightRow;
+import com.example.lowflightzone.repositories.projections.SubscriptionRow;
 import com.example.lowflightzone.security.SecurityUtils;
-import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @Service
 public class FlightSubscriptionService {
@@ -30,19 +41,29 @@ public class FlightSubscriptionService {
     private final UserDao userDao;
     private final SecurityUtils securityUtils;
     private final FlightSubscriptionRepository flightSubscriptionRepository;
+    private final FlightBoardIndex flightBoard;
+    private final SubscribedFlightsCache subscribedFlights;
+    private final FlightMapper flightMapper;
+    private final InMemoryIndexUpdates indexUpdates;
 
     @Autowired
     public FlightSubscriptionService(FlightSubscriptionDao subscriptionDao,
                                      FlightDao flightDao,
                                      NotificationService notificationService,
                                      UserDao userDao,
-                                     SecurityUtils securityUtils, FlightSubscriptionRepository flightSubscriptionRepository) {
+                                     SecurityUtils securityUtils, FlightSubscriptionRepository flightSubscriptionRepository,
+                                     FlightBoardIndex flightBoard, SubscribedFlightsCache subscribedFlights,
+                                     FlightMapper flightMapper, InMemoryIndexUpdates indexUpdates) {
         this.subscriptionDao = subscriptionDao;
         this.flightDao = flightDao;
         this.notificationService = notificationService;
         this.userDao = userDao;
         this.securityUtils = securityUtils;
         this.flightSubscriptionRepository = flightSubscriptionRepository;
+        this.flightBoard = flightBoard;
+        this.subscribedFlights = subscribedFlights;
+        this.flightMapper = flightMapper;
+        this.indexUpdates = indexUpdates;
     }
 
     /**
@@ -120,6 +141,9 @@ public class FlightSubscriptionService {
             saved = subscriptionDao.save(sub);
         }
 
+        // 📋 Счётчик на табло сдвигаем без пересчёта подписок рейса
+        subscriptionChanged(flight.getId(), userEmail, 1);
+
         // 📬 Отправляем подтверждение подписки
         notificationService.sendSubscriptionConfirmation(saved);
 
@@ -157,8 +181,12 @@ public class FlightSubscriptionService {
                     .filter(s -> s.getId().equals(subscriptionId))
                     .findFirst()
                     .orElseThrow(() -> new SubscriptionException("Подписка не найдена: id=" + subscriptionId));
+            boolean wasActive = sub.getStatus() == FlightSubscription.SubscriptionStatus.ACTIVE;
             sub.setStatus(FlightSubscription.SubscriptionStatus.CANCELLED);
             subscriptionDao.save(sub);
+            if (wasActive) {
+                subscriptionChanged(sub.getFlight().getId(), sub.getUser().getEmail(), -1);
+            }
             return;
         }
 
@@ -178,46 +206,112 @@ public class FlightSubscriptionService {
 
         sub.setStatus(FlightSubscription.SubscriptionStatus.CANCELLED);
         subscriptionDao.save(sub);
+        subscriptionChanged(sub.getFlight().getId(), userEmail, -1);
+    }
+
+    /**
+     * Счётчик на табло и кэш подписок пользователя — после коммита: откат их не трогает.
+     * Во время загрузки табло сдвиг мог бы учесться дважды (и в снимке, и поверх) — тогда счётчик перечитывается.
+     */
+    private void subscriptionChanged(Integer flightId, String userEmail, int delta) {
+        indexUpdates.afterCommit(() -> {
+            flightBoard.adjustSubscriptionCount(flightId, delta);
+            subscribedFlights.invalidate(userEmail);
+        }, () -> {
+            flightBoard.setSubscriptionCount(flightId,
+                    subscriptionDao.countActiveByFlightIds(List.of(flightId)).getOrDefault(flightId, 0));
+            subscribedFlights.invalidate(userEmail);
+        });
     }
 
 
 
     // ----- Прочие методы (без изменений по сути) -----
 
-    public List<FlightSubscriptionDto> getUserSubscriptions(String userEmail) {
-        return subscriptionDao.findByUserEmail(userEmail).stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+    @Transactional(readOnly = true)
+    public CursorPage<FlightSubscriptionDto> getUserSubscriptions(String userEmail, String cursorToken, Integer limit) {
+        int pageSize = PageCursor.normalizeLimit(limit);
+        PageCursor cursor = PageCursor.decode(cursorToken);
+
+        List<SubscriptionRow> rows = subscriptionDao.findActivePageByUserEmail(
+                userEmail, cursor != null ? cursor.getId() : null, pageSize + 1);
+        Map<Integer, FlightRow> flights = loadFlights(rows);
+        return CursorPage.of(rows, pageSize, row -> convertToDto(row, flights), row -> PageCursor.of(null, row.id()));
     }
 
+    @Transactional(readOnly = true)
     public List<FlightSubscriptionDto> getSubscriptionsByUserId(Integer userId) {
-        return subscriptionDao.findActiveByUserId(userId).stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        List<SubscriptionRow> rows = subscriptionDao.findActiveRowsByUserId(userId);
+        Map<Integer, FlightRow> flights = loadFlights(rows);
+        List<FlightSubscriptionDto> result = new ArrayList<>(rows.size());
+        for (SubscriptionRow row : rows) {
+            FlightSubscriptionDto dto = convertToDto(row, flights);
+            if (dto != null) {
+                result.add(dto);
+            }
+        }
+        return result;
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPage<FlightSubscriptionDto> getSubscriptionsForFlight(String flightNumber, String cursorToken, Integer limit) {
+        int pageSize = PageCursor.normalizeLimit(limit);
+        PageCursor cursor = PageCursor.decode(cursorToken);
+
+        List<SubscriptionRow> rows = subscriptionDao.findActivePageByFlightNumber(
+                flightNumber, cursor != null ? cursor.getId() : null, pageSize + 1);
+        Map<Integer, FlightRow> flights = loadFlights(rows);
+        return CursorPage.of(rows, pageSize, row -> convertToDto(row, flights), row -> PageCursor.of(null, row.id()));
     }
 
-    public List<FlightSubscriptionDto> getSubscriptionsForFlight(String flightNumber) {
-        return subscriptionDao.findByFlightNumberAndStatus(
-                        flightNumber, FlightSubscription.SubscriptionStatus.ACTIVE)
-                .stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+    /** Рейсы страницы подписок одним IN-запросом проекции */
+    private Map<Integer, FlightRow> loadFlights(List<SubscriptionRow> rows) {
+        Set<Integer> flightIds = new HashSet<>(rows.size() * 2);
+        for (SubscriptionRow row : rows) {
+            flightIds.add(row.flightId());
+        }
+        Map<Integer, FlightRow> flights = new HashMap<>(flightIds.size() * 2);
+        for (FlightRow flight : flightDao.findRowsByIds(flightIds)) {
+            flights.put(flight.id(), flight);
+        }
+        return flights;
+    }
+
+    /** null, если рейс удалён между выборками — строка пропускается */
+    private FlightSubscriptionDto convertToDto(SubscriptionRow row, Map<Integer, FlightRow> flights) {
+        FlightRow flight = flights.get(row.flightId());
+        if (flight == null) {
+            return null;
+        }
+        FlightSubscriptionDto dto = new FlightSubscriptionDto();
+        dto.setId(row.id());
+
+        FlightDto flightDto = flightMapper.toDto(flight, 0);
+        flightDto.setSubscribed(row.status() == FlightSubscription.SubscriptionStatus.ACTIVE);
+        dto.setFlight(flightDto);
+
+        UserDto userDto = new UserDto();
+        userDto.setId(row.userId());
+        userDto.setEmail(row.userEmail());
+        userDto.setFirstName(row.userFirstName());
+        userDto.setLastName(row.userLastName());
+        dto.setUser(userDto);
+
+        dto.setStatus(row.status() != null ? row.status().toString() : null);
+        dto.setNotificationTypes(row.notificationTypes());
+        dto.setCreatedAt(row.createdAt());
+        dto.setLastNotifiedAt(row.lastNotifiedAt());
+        dto.setNotifyBeforeHours(row.notifyBeforeHours());
+        dto.setMinDelayMinutes(row.minDelayMinutes());
+        return dto;
     }
 
     private FlightSubscriptionDto convertToDto(FlightSubscription subscription) {
         FlightSubscriptionDto dto = new FlightSubscriptionDto();
         dto.setId(subscription.getId());
 
-        Flight flight = subscription.getFlight();
-        FlightDto flightDto = new FlightDto();
-        flightDto.setId(flight.getId());
-        flightDto.setFlightNumber(flight.getFlightNumber());
-        flightDto.setAirline(flight.getAirline());
-        flightDto.setStatus(flight.getStatus() != null ? flight.getStatus().toString() : null);
-        flightDto.setScheduledDeparture(flight.getScheduledDeparture());
-        flightDto.setScheduledArrival(flight.getScheduledArrival());
-        flightDto.setEstimatedDeparture(flight.getEstimatedDeparture());
-        flightDto.setEstimatedArrival(flight.getEstimatedArrival());
+        FlightDto flightDto = flightMapper.toDto(subscription.getFlight(), 0);
+        flightDto.setSubscribed(subscription.getStatus() == FlightSubscription.SubscriptionStatus.ACTIVE);
         dto.setFlight(flightDto);
 
         User user = subscription.getUser();
@@ -3,28 +3,43 @@ package com.example.lowflightzone.services;
 import com.example.lowflightzone.dao.FlightDao;
 import com.example.lowflightzone.dao.FlightViewHistoryDao;
 import com.example.lowflightzone.dao.UserDao;
-import com.example.lowflightzone.dto.AirportDto;
+import com.example.lowflightzone.dto.CursorPage;
 import com.example.lowflightzone.dto.FlightDto;
 import com.example.lowflightzone.dto.FlightViewHistoryDto;
+import com.example.lowflightzone.dto.PageCursor;
 import com.example.lowflightzone.entity.Flight;
-import com.example.lowflightzone.entity.FlightSubscription;
 import com.example.lowflightzone.entity.FlightViewHistory;
 import com.example.lowflightzone.entity.User;
 import com.example.lowflightzone.exceptions.FlightException;
 import com.example.lowflightzone.exceptions.UserException;
+import com.example.lowflightzone.exceptions.ValidationException;
+import com.example.lowflightzone.index.IntHashSet;
+import com.example.lowflightzone.index.SubscribedFlightsCache;
+import com.example.lowflightzone.mappers.FlightMapper;
 import com.example.lowflightzone.repositories.FlightRepository;
-import com.example.lowflightzone.repositories.FlightSubscriptionRepository;
 import com.example.lowflightzone.repositories.FlightViewHistoryRepository;
 import com.example.lowflightzone.repositories.UserRepository;
+import com.example.lowflightzone.repositories.projections.FlightRow;
+import com.example.lowflightzone.repositories.projections.ViewHistoryRow;
 import com.example.lowflightzone.security.SecurityUtils;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataAccessException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -39,7 +54,9 @@ public class FlightViewHistoryService {
     private final FlightViewHistoryRepository flightViewHistoryRepository;
     private final FlightRepository flightRepository;
     private final UserRepository userRepository;
-    private final FlightSubscriptionRepository flightSubscriptionRepository;
+    private final SubscribedFlightsCache subscribedFlights;
+    private final FlightMapper flightMapper;
+    private final TransactionTemplate transaction;
 
     @Transactional
     public FlightViewHistoryDto recordFlightView(Integer flightId) {
@@ -97,24 +114,130 @@ public class FlightViewHistoryService {
     }
 
 
+    /**
+     * Пакетная запись просмотров из фоновой очереди {@link FlightViewRecorder}.
+     * Просмотры одной пары пользователь × рейс складываются; существующая запись
+     * дополняется одним UPDATE, новая вставляется по ссылкам без загрузки сущностей.
+     * Неизвестные пользователи и уже удалённые рейсы пропускаются.
+     * <p>
+     * Пачка пишется одной транзакцией; если БД её отклонила (рейс удалён после проверки,
+     * ту же пару только что вставил синхронный POST /api/flight-views/record) —
+     * каждая пара повторяется в своей транзакции, и теряется только сама конфликтная пара.
+     */
+    public void recordViews(Collection<FlightViewRecorder.ViewEvent> events) {
+        Collection<PendingViews> pending = transaction.execute(status -> groupViews(events));
+        try {
+            transaction.executeWithoutResult(status -> pending.forEach(this::writeViews));
+        } catch (DataAccessException e) {
+            log.warn("⚠️ БД отклонила пачку просмотров ({} записей): {} — запись по одной",
+                    pending.size(), NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+            int lost = 0;
+            for (PendingViews views : pending) {
+                if (!writeViewsSeparately(views)) {
+                    lost++;
+                }
+            }
+            if (lost > 0) {
+                log.warn("⚠️ Не записаны просмотры {} пар пользователь × рейс", lost);
+            }
+        }
+        log.debug("📊 Записано просмотров: {} событий → {} записей", events.size(), pending.size());
+    }
+
+    /**
+     * Одна пара в своей транзакции. Второй попытки хватает на гонку со вставкой той же пары:
+     * запись уже есть, и UPDATE её дополняет. false — пара не записана (например, рейс удалён).
+     */
+    private boolean writeViewsSeparately(PendingViews views) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transaction.executeWithoutResult(status -> writeViews(views));
+                return true;
+            } catch (DataAccessException e) {
+                if (attempt == 2) {
+                    log.debug("Просмотры пользователя {} рейса {} не записаны: {}", views.userId, views.flightId,
+                            NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+                    return false;
+                }
+            }
+        }
+    }
+
+    /** Пары пользователь × рейс пачки с накопленными просмотрами; id пользователей и наличие рейсов — по двум запросам */
+    private Collection<PendingViews> groupViews(Collection<FlightViewRecorder.ViewEvent> events) {
+        // 👤 email → id одним запросом для событий без id
+        Set<String> emails = new HashSet<>();
+        Set<Integer> flightIds = new HashSet<>();
+        for (FlightViewRecorder.ViewEvent event : events) {
+            if (event.userId() == null) {
+                emails.add(event.userEmail());
+            }
+            flightIds.add(event.flightId());
+        }
+        Map<String, Integer> userIdsByEmail = new HashMap<>();
+        if (!emails.isEmpty()) {
+            for (Object[] row : userRepository.findIdsByEmails(emails)) {
+                userIdsByEmail.put((String) row[1], (Integer) row[0]);
+            }
+        }
+        Set<Integer> existingFlights = new HashSet<>(flightRepository.findExistingIds(flightIds));
+
+        Map<Long, PendingViews> pending = new LinkedHashMap<>();
+        for (FlightViewRecorder.ViewEvent event : events) {
+            Integer userId = event.userId() != null ? event.userId() : userIdsByEmail.get(event.userEmail());
+            if (userId == null || !existingFlights.contains(event.flightId())) {
+                continue;
+            }
+            long key = ((long) userId << 32) | (event.flightId() & 0xffffffffL);
+            pending.computeIfAbsent(key, k -> new PendingViews(userId, event.flightId())).add(event.viewedAt());
+        }
+        return pending.values();
+    }
+
+    private void writeViews(PendingViews views) {
+        int updated = flightViewHistoryRepository.addViews(views.userId, views.flightId, views.count, views.viewedAt);
+        if (updated == 0) {
+            FlightViewHistory viewHistory = new FlightViewHistory();
+            viewHistory.setUser(userRepository.getReferenceById(views.userId));
+            viewHistory.setFlight(flightRepository.getReferenceById(views.flightId));
+            viewHistory.setViewCount(views.count);
+            viewHistory.setViewedAt(views.viewedAt);
+            flightViewHistoryRepository.save(viewHistory);
+        }
+    }
+
+    @Transactional(readOnly = true)
     public List<FlightViewHistoryDto> getCurrentUserRecentViews(int limit) {
         Integer userId = securityUtils.getCurrentUserIdOrThrow();
-        return viewHistoryDao.getRecentViewsByUserId(userId, limit).stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return toDtos(viewHistoryDao.getRecentViewsByUserId(userId, limit));
     }
 
+    @Transactional(readOnly = true)
     public List<FlightViewHistoryDto> getRecentViews(Integer userId, int limit) {
-        return viewHistoryDao.getRecentViewsByUserId(userId, limit).stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        return toDtos(viewHistoryDao.getRecentViewsByUserId(userId, limit));
     }
 
-    public List<FlightViewHistoryDto> getCurrentUserViewHistory() {
+    @Transactional(readOnly = true)
+    public CursorPage<FlightViewHistoryDto> getCurrentUserViewHistory(String cursorToken, Integer limit) {
         Integer userId = securityUtils.getCurrentUserIdOrThrow();
-        return viewHistoryDao.getUserViewHistory(userId).stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+        int pageSize = PageCursor.normalizeLimit(limit);
+        PageCursor cursor = PageCursor.decode(cursorToken);
+
+        LocalDateTime afterViewedAt = null;
+        if (cursor != null) {
+            try {
+                afterViewedAt = LocalDateTime.parse(cursor.getKey());
+            } catch (DateTimeParseException e) {
+                throw new ValidationException("Некорректный курсор страницы");
+            }
+        }
+
+        List<ViewHistoryRow> rows = viewHistoryDao.getUserViewHistoryPage(
+                userId, afterViewedAt, cursor != null ? cursor.getId() : null, pageSize + 1);
+        Map<Integer, FlightRow> flights = loadFlights(rows);
+        IntHashSet subscribed = currentUserSubscriptions();
+        return CursorPage.of(rows, pageSize, vh -> convertToDto(vh, flights.get(vh.flightId()), subscribed),
+                vh -> PageCursor.of(vh.viewedAt(), vh.id()));
     }
 
     @Transactional
@@ -145,12 +268,57 @@ public class FlightViewHistoryService {
         viewHistory.setViewedAt(LocalDateTime.now());
         flightViewHistoryRepository.save(viewHistory);
 
-        return convertToDto(viewHistory);
+        return convertToDto(viewHistory, currentUserSubscriptions());
+    }
+
+    /** Подписки текущего пользователя — один раз на список; анонимному — пустое множество */
+    private IntHashSet currentUserSubscriptions() {
+        return securityUtils.getCurrentUserEmail()
+                .map(subscribedFlights::flightIdsOf)
+                .orElse(IntHashSet.EMPTY);
     }
 
 
-    // 📌 Полное заполнение DTO + безопасная проверка подписки
-    private FlightViewHistoryDto convertToDto(FlightViewHistory vh) {
+    private List<FlightViewHistoryDto> toDtos(List<ViewHistoryRow> rows) {
+        Map<Integer, FlightRow> flights = loadFlights(rows);
+        IntHashSet subscribed = currentUserSubscriptions();
+        return rows.stream()
+                .map(vh -> convertToDto(vh, flights.get(vh.flightId()), subscribed))
+                .collect(Collectors.toList());
+    }
+
+    /** Рейсы страницы истории одним IN-запросом проекции */
+    private Map<Integer, FlightRow> loadFlights(List<ViewHistoryRow> rows) {
+        Set<Integer> flightIds = new HashSet<>(rows.size() * 2);
+        for (ViewHistoryRow row : rows) {
+            if (row.flightId() != null) {
+                flightIds.add(row.flightId());
+            }
+        }
+        Map<Integer, FlightRow> flights = new HashMap<>(flightIds.size() * 2);
+        for (FlightRow flight : flightDao.findRowsByIds(flightIds)) {
+            flights.put(flight.id(), flight);
+        }
+        return flights;
+    }
+
+    // 📌 DTO из строки истории; рейс, удалённый между выборками, оставляет запись без рейса
+    private FlightViewHistoryDto convertToDto(ViewHistoryRow vh, FlightRow flight, IntHashSet subscribed) {
+        FlightViewHistoryDto dto = new FlightViewHistoryDto();
+        dto.setId(vh.id());
+        dto.setViewedAt(vh.viewedAt());
+        dto.setViewCount(vh.viewCount());
+
+        if (flight != null) {
+            FlightDto fd = flightMapper.toDto(flight, 0);
+            fd.setSubscribed(subscribed.contains(flight.id()));
+            dto.setFlight(fd);
+        }
+        return dto;
+    }
+
+    // 📌 Полное заполнение DTO + флаг подписки из множества подписок пользователя
+    private FlightViewHistoryDto convertToDto(FlightViewHistory vh, IntHashSet subscribed) {
         FlightViewHistoryDto dto = new FlightViewHistoryDto();
         dto.setId(vh.getId());
         dto.setViewedAt(vh.getViewedAt());
@@ -158,52 +326,10 @@ public class FlightViewHistoryService {
 
         Flight f = vh.getFlight();
         if (f != null) {
-            FlightDto fd = new FlightDto();
-            fd.setId(f.getId());
-            fd.setFlightNumber(f.getFlightNumber());
-            fd.setAirline(f.getAirline());
-            fd.setScheduledDeparture(f.getScheduledDeparture());
-            fd.setScheduledArrival(f.getScheduledArrival());
-            fd.setEstimatedDeparture(f.getEstimatedDeparture());
-            fd.setEstimatedArrival(f.getEstimatedArrival());
-            fd.setActualDeparture(f.getActualDeparture());
-            fd.setActualArrival(f.getActualArrival());
-            fd.setStatus(f.getStatus() != null ? f.getStatus().name() : null);
-
-            // ✈️ Отправной аэропорт
-            if (f.getDepartureAirport() != null) {
-                AirportDto dep = new AirportDto();
-                dep.setIataCode(f.getDepartureAirport().getIataCode());
-                dep.setName(f.getDepartureAirport().getName());
-                dep.setCity(f.getDepartureAirport().getCity());
-                dep.setCountry(f.getDepartureAirport().getCountry());
-                fd.setDepartureAirport(dep);
-            }
+            FlightDto fd = flightMapper.toDto(f, 0);
 
-            // 🛬 Аэропорт прибытия
-            if (f.getArrivalAirport() != null) {
-                AirportDto arr = new AirportDto();
-                arr.setIataCode(f.getArrivalAirport().getIataCode());
-                arr.setName(f.getArrivalAirport().getName());
-                arr.setCity(f.getArrivalAirport().getCity());
-                arr.setCountry(f.getArrivalAirport().getCountry());
-                fd.setArrivalAirport(arr);
-            }
-
-            // ❤️ Проверяем, подписан ли текущий пользователь на рейс
-            boolean isSubscribed = false;
-            try {
-                String email = securityUtils.getCurrentUserOrThrow().getEmail();
-                isSubscribed = flightSubscriptionRepository.existsByFlight_FlightNumberAndUser_EmailAndStatus(
-                        f.getFlightNumber(),
-                        email,
-                        FlightSubscription.SubscriptionStatus.ACTIVE
-                );
-            } catch (Exception e) {
-                // если пользователь не авторизован — оставляем false
-                isSubscribed = false;
-            }
-            fd.setSubscribed(isSubscribed);
+            // ❤️ Подписан ли текущий пользователь на рейс — O(1) без запроса
+            fd.setSubscribed(subscribed.contains(f.getId()));
 
             dto.setFlight(fd);
         }
@@ -211,4 +337,23 @@ public class FlightViewHistoryService {
         return dto;
     }
 
+    /** Накопленные просмотры одной пары пользователь × рейс в пачке */
+    private static final class PendingViews {
+        private final Integer userId;
+        private final Integer flightId;
+        private int count;
+        private LocalDateTime viewedAt;
+
+        PendingViews(Integer userId, Integer flightId) {
+            this.userId = userId;
+            this.flightId = flightId;
+        }
+
+        void add(LocalDateTime at) {
+            count++;
+            if (viewedAt == null || at.isAfter(viewedAt)) {
+                viewedAt = at;
+            }
+        }
+    }
 }
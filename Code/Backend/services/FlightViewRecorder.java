@@ -0,0 +1,112 @@
+package com.example.lowflightzone.services;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Асинхронная запись просмотров рейсов: чтение карточки рейса только кладёт событие
+ * в ограниченную очередь, фоновый поток пишет их пачками.
+ * При переполнении очереди просмотр теряется (счётчик просмотров — не критичные данные),
+ * но чтение никогда не ждёт записи.
+ */
+@Slf4j
+@Component
+public class FlightViewRecorder {
+
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final int BATCH_SIZE = 500;
+    private static final long POLL_TIMEOUT_MS = 200;
+    private static final long SHUTDOWN_TIMEOUT_MS = 5_000;
+    private static final long DROP_LOG_EVERY = 1_000;
+
+    private final FlightViewHistoryService viewHistoryService;
+    private final BlockingQueue<ViewEvent> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    @Autowired
+    public FlightViewRecorder(FlightViewHistoryService viewHistoryService) {
+        this.viewHistoryService = viewHistoryService;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::runWriter, "flight-view-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /** Дописать оставшиеся события до закрытия пула соединений */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.join(SHUTDOWN_TIMEOUT_MS);
+        if (!queue.isEmpty()) {
+            log.warn("⚠️ При остановке не записано просмотров: {}", queue.size());
+        }
+    }
+
+    /** Просмотр пользователя, известного по email (из контекста безопасности, без запроса в БД) */
+    public void record(String userEmail, Integer flightId) {
+        if (userEmail != null && flightId != null) {
+            enqueue(new ViewEvent(null, userEmail, flightId, LocalDateTime.now()));
+        }
+    }
+
+    /** Просмотр пользователя, известного по id */
+    public void record(Integer userId, Integer flightId) {
+        if (userId != null && flightId != null) {
+            enqueue(new ViewEvent(userId, null, flightId, LocalDateTime.now()));
+        }
+    }
+
+    private void enqueue(ViewEvent event) {
+        if (!queue.offer(event)) {
+            long total = dropped.incrementAndGet();
+            if (total % DROP_LOG_EVERY == 1) {
+                log.warn("⚠️ Очередь просмотров переполнена, отброшено всего: {}", total);
+            }
+        }
+    }
+
+    private void runWriter() {
+        List<ViewEvent> batch = new ArrayList<>(BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                ViewEvent first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                viewHistoryService.recordViews(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                // пачка теряется, поток продолжает работу
+                log.warn("⚠️ Не удалось записать пачку просмотров ({} шт.): {}", batch.size(), e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /** Событие просмотра: пользователь задан id или email */
+    public record ViewEvent(Integer userId, String userEmail, Integer flightId, LocalDateTime viewedAt) {
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.lowflightzone.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Изменения in-memory структур (табло, поиск, подсказки, колесо пересчёта) по записи в БД.
+ * Применяются только после коммита: читатели не видят незакоммиченных рейсов,
+ * а откат (в том числе нарушение уникальности при flush) структуры не трогает.
+ * Само изменение (DTO, значения полей) готовится заранее, в транзакции.
+ * <p>
+ * Пока структуры перезагружаются из БД ({@link #reload}), изменения копятся и применяются
+ * поверх нового снимка в порядке коммитов: запись, которую снимок не увидел, не теряется.
+ */
+@Slf4j
+@Component
+public class InMemoryIndexUpdates {
+
+    private final Object lock = new Object();
+    /** Изменения, закоммиченные во время перезагрузки; null — перезагрузки нет */
+    private List<Runnable> buffered;
+
+    /** Вне транзакции — сразу, иначе после коммита */
+    public void afterCommit(Runnable update) {
+        afterCommit(update, update);
+    }
+
+    /**
+     * Как {@link #afterCommit(Runnable)}, но если изменение пришлось на перезагрузку, вместо update
+     * поверх снимка выполняется replay: снимок мог уже учесть изменение, и сдвиг (например,
+     * счётчика) применился бы дважды — replay перечитывает значение, а не сдвигает его.
+     */
+    public void afterCommit(Runnable update, Runnable replay) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(update, replay);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(update, replay);
+            }
+        });
+    }
+
+    /**
+     * Перезагрузка структур из БД (load). Изменения копятся с момента ДО чтения снимка, поэтому
+     * каждое закоммиченное во время загрузки попадёт либо в снимок, либо в очередь (или в оба —
+     * повтор идемпотентен). Очередь применяется и после неудачной загрузки: структуры могли
+     * частично обновиться. Вызывать вне транзакции — load открывает свою.
+     */
+    public void reload(Runnable load) {
+        synchronized (lock) {
+            buffered = new ArrayList<>();
+        }
+        try {
+            load.run();
+        } finally {
+            // под блокировкой: изменения, пришедшие во время повтора, встанут за ним
+            synchronized (lock) {
+                List<Runnable> pending = buffered;
+                buffered = null;
+                for (Runnable replay : pending) {
+                    try {
+                        replay.run();
+                    } catch (RuntimeException e) {
+                        log.warn("⚠️ Изменение, отложенное на время загрузки индексов, не применилось: {}", e.getMessage());
+                    }
+                }
+                if (!pending.isEmpty()) {
+                    log.info("🔁 Поверх загруженных индексов применено отложенных изменений: {}", pending.size());
+                }
+            }
+        }
+    }
+
+    private void apply(Runnable update, Runnable replay) {
+        synchronized (lock) {
+            if (buffered != null) {
+                buffered.add(replay);
+                return;
+            }
+            update.run();
+        }
+    }
+}
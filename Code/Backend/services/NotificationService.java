@@ -1,52 +1,149 @@
 // com.example.lowflightzone.services.NotificationService
 package com.example.lowflightzone.services;
 
-import com.example.lowflightzone.entity.Flight;
+import com.example.lowflightzone.dao.FlightSubscriptionDao;
 import com.example.lowflightzone.entity.FlightSubscription;
-import com.example.lowflightzone.repositories.FlightSubscriptionRepository;
+import com.example.lowflightzone.repositories.projections.PushTargetRow;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-
-import static com.example.lowflightzone.entity.FlightSubscription.SubscriptionStatus.ACTIVE;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class NotificationService {
 
+    private static final int MAX_LISTED_CHANGES = 5;
+    private static final DateTimeFormatter DEPARTURE_FORMAT = DateTimeFormatter.ofPattern("dd.MM HH:mm");
+
     private final PushNotificationService push;
-    private final FlightSubscriptionRepository subsRepo;
+    private final FlightSubscriptionDao subscriptionDao;
+    private final ObjectMapper objectMapper;
 
-    public void notifySubscribersAboutFlightUpdate(Flight flight) {
-        List<FlightSubscription> subs = subsRepo.findAllByFlightIdAndStatus(flight.getId(), ACTIVE);
-        if (subs.isEmpty()) {
-            log.info("No active subs for flight {}", flight.getFlightNumber());
-            return;
+    /**
+     * Пачка изменений рейсов: один push на браузерную подписку (endpoint), даже если
+     * подписчик следит за несколькими затронутыми рейсами. Адресаты — одним запросом на пачку.
+     */
+    public void notifySubscribersAboutFlightChanges(List<FlightChangeEvent> changes) {
+        // изменения одного рейса в пачке сливаются; без смысла для подписчика — отбрасываем
+        Map<Integer, FlightChangeEvent> byFlight = new LinkedHashMap<>();
+        for (FlightChangeEvent change : changes) {
+            byFlight.merge(change.flightId(), change, FlightChangeEvent::merge);
         }
-
-        // минимальный JSON для service worker (title/body/click)
-        String payload = """
-        {
-          "title": "Рейс %s",
-          "body":  "Статус: %s",
-          "clickUrl": "/flights/%d"
+        byFlight.values().removeIf(change -> change.types().isEmpty());
+        if (byFlight.isEmpty()) {
+            return;
         }
-        """.formatted(flight.getFlightNumber(), flight.getStatus(), flight.getId());
 
-        for (FlightSubscription s : subs) {
-            if (isBlank(s.getEndpoint()) || isBlank(s.getP256dh()) || isBlank(s.getAuth())) {
+        Map<String, PushTarget> byEndpoint = new LinkedHashMap<>();
+        for (PushTargetRow row : subscriptionDao.findActivePushTargets(byFlight.keySet())) {
+            if (isBlank(row.endpoint()) || isBlank(row.p256dh()) || isBlank(row.auth())) {
                 // нет браузерной подписки — пропускаем
                 continue;
             }
-            boolean ok = push.sendPush(s.getEndpoint(), s.getP256dh(), s.getAuth(), payload);
-            if (!ok) {
+            byEndpoint.computeIfAbsent(row.endpoint(), endpoint -> new PushTarget(row)).flightIds.add(row.flightId());
+        }
+        if (byEndpoint.isEmpty()) {
+            log.info("No active subs for {} changed flights", byFlight.size());
+            return;
+        }
+
+        int failed = 0;
+        for (PushTarget target : byEndpoint.values()) {
+            List<FlightChangeEvent> own = new ArrayList<>(target.flightIds.size());
+            for (Integer flightId : target.flightIds) {
+                own.add(byFlight.get(flightId));
+            }
+            if (!push.sendPush(target.endpoint, target.p256dh, target.auth, payload(own))) {
                 // Можно пометить подписку как INACTIVE или почистить «мертвые»
-                log.warn("Push failed for sub id={}", s.getId());
+                log.warn("Push failed for sub id={}", target.subscriptionId);
+                failed++;
+            }
+        }
+        log.info("📣 Изменения {} рейсов: push {} адресатам, ошибок {}", byFlight.size(), byEndpoint.size(), failed);
+    }
+
+    // минимальный JSON для service worker (title/body/click)
+    private String payload(List<FlightChangeEvent> changes) {
+        if (changes.size() == 1) {
+            FlightChangeEvent change = changes.get(0);
+            return json(message("Рейс " + change.flightNumber(), describe(change), "/flights/" + change.flightId()));
+        }
+
+        StringJoiner body = new StringJoiner("; ");
+        for (int i = 0; i < Math.min(changes.size(), MAX_LISTED_CHANGES); i++) {
+            FlightChangeEvent change = changes.get(i);
+            body.add(change.flightNumber() + " — " + describe(change));
+        }
+        if (changes.size() > MAX_LISTED_CHANGES) {
+            body.add("и ещё " + (changes.size() - MAX_LISTED_CHANGES));
+        }
+        return json(message("Изменения по " + changes.size() + " рейсам", body.toString(), "/my-flights"));
+    }
+
+    private static Map<String, String> message(String title, String body, String clickUrl) {
+        Map<String, String> message = new LinkedHashMap<>();
+        message.put("title", title);
+        message.put("body", body);
+        if (clickUrl != null) {
+            message.put("clickUrl", clickUrl);
+        }
+        return message;
+    }
+
+    // через ObjectMapper: кавычки и переводы строк в номерах рейсов/статусах экранируются
+    private String json(Map<String, String> message) {
+        try {
+            return objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать push-сообщение", e);
+        }
+    }
+
+    private static String describe(FlightChangeEvent change) {
+        EnumSet<FlightChangeEvent.Type> types = change.types();
+        List<String> parts = new ArrayList<>();
+        boolean written = types.contains(FlightChangeEvent.Type.STATUS) || types.contains(FlightChangeEvent.Type.DELAY)
+                || types.contains(FlightChangeEvent.Type.SCHEDULE);
+        if (written) {
+            parts.add("статус: " + change.newStatus());
+            if (change.newDelayMinutes() != null && change.newDelayMinutes() > 0) {
+                parts.add("задержка " + change.newDelayMinutes() + " мин");
+            }
+        }
+        LocalDateTime departure = change.estimatedDeparture() != null
+                ? change.estimatedDeparture() : change.newScheduledDeparture();
+        if (departure != null && !types.contains(FlightChangeEvent.Type.DEPARTED)) {
+            if (types.contains(FlightChangeEvent.Type.SCHEDULE) || types.contains(FlightChangeEvent.Type.DELAY)) {
+                parts.add("вылет " + departure.format(DEPARTURE_FORMAT));
+            } else if (types.contains(FlightChangeEvent.Type.ETA)) {
+                parts.add("расчётный вылет " + departure.format(DEPARTURE_FORMAT));
             }
         }
+        if (types.contains(FlightChangeEvent.Type.DEPARTED)) {
+            parts.add("вылетел " + change.departedAt().format(DEPARTURE_FORMAT));
+        }
+        if (types.contains(FlightChangeEvent.Type.ARRIVED)) {
+            parts.add("прибыл " + change.arrivedAt().format(DEPARTURE_FORMAT));
+        }
+        if (parts.isEmpty()) {
+            return "Данные рейса обновлены";
+        }
+        String text = String.join(", ", parts);
+        return Character.toUpperCase(text.charAt(0)) + text.substring(1);
     }
 
     public void sendSubscriptionConfirmation(FlightSubscription subscription) {
@@ -55,16 +152,29 @@ public class NotificationService {
             return;
         }
 
-        String payload = """
-    {
-      "title": "Подписка активирована",
-      "body": "Вы будете получать уведомления об изменениях рейса %s"
-    }
-    """.formatted(subscription.getFlight().getFlightNumber());
+        String payload = json(message("Подписка активирована",
+                "Вы будете получать уведомления об изменениях рейса " + subscription.getFlight().getFlightNumber(),
+                null));
 
         push.sendPush(subscription.getEndpoint(), subscription.getP256dh(), subscription.getAuth(), payload);
     }
 
 
     private boolean isBlank(String v) { return v == null || v.isBlank(); }
+
+    /** Одна браузерная подписка и рейсы пачки, на которые она подписана */
+    private static final class PushTarget {
+        private final Integer subscriptionId;
+        private final String endpoint;
+        private final String p256dh;
+        private final String auth;
+        private final Set<Integer> flightIds = new LinkedHashSet<>();
+
+        PushTarget(PushTargetRow row) {
+            this.subscriptionId = row.subscriptionId();
+            this.endpoint = row.endpoint();
+            this.p256dh = row.p256dh();
+            this.auth = row.auth();
+        }
+    }
 }
@@ -0,0 +1,106 @@
+package com.example.lowflightzone.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Прогрев после старта в фоне: полный пересчёт рейсов (FlightRecalcEngine), затем справочник,
+ * табло и индексы (FlightService.loadInMemoryIndexes). Контекст поднимается за секунды
+ * независимо от размера таблицы рейсов: пока прогрев идёт, чтения обслуживаются из БД
+ * (у всех in-memory структур есть запасной путь), а GET /health/readiness отвечает 503 NOT_READY.
+ * Записи, закоммиченные во время загрузки, не теряются: InMemoryIndexUpdates.reload применяет их поверх снимка.
+ * Упавший шаг повторяется через RETRY_DELAY, уже выполненные не повторяются.
+ */
+@Slf4j
+@Component
+public class StartupWarmup {
+
+    private static final Duration RETRY_DELAY = Duration.ofSeconds(30);
+
+    public enum Phase {
+        STARTING, RECALCULATING, LOADING_INDEXES, READY
+    }
+
+    private final FlightRecalcEngine recalcEngine;
+    private final FlightService flightService;
+    private final InMemoryIndexUpdates indexUpdates;
+
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private volatile Phase phase = Phase.STARTING;
+    private volatile LocalDateTime readyAt;
+
+    @Autowired
+    public StartupWarmup(FlightRecalcEngine recalcEngine, FlightService flightService,
+                         InMemoryIndexUpdates indexUpdates) {
+        this.recalcEngine = recalcEngine;
+        this.flightService = flightService;
+        this.indexUpdates = indexUpdates;
+    }
+
+    /** После инициализации данных и импорта (ApplicationRunner) — не задерживая старт */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        Thread worker = new Thread(this::run, "startup-warmup");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public boolean isReady() {
+        return phase == Phase.READY;
+    }
+
+    public Phase getPhase() {
+        return phase;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    /** null — ещё не готов */
+    public LocalDateTime getReadyAt() {
+        return readyAt;
+    }
+
+    private void run() {
+        long startedMs = System.currentTimeMillis();
+        if (!step(Phase.RECALCULATING, recalcEngine::start)) {
+            return;
+        }
+        // записи, пришедшие во время загрузки, копятся и применяются поверх снимка
+        if (!step(Phase.LOADING_INDEXES, () -> indexUpdates.reload(flightService::loadInMemoryIndexes))) {
+            return;
+        }
+        readyAt = LocalDateTime.now();
+        phase = Phase.READY;
+        log.info("✅ Прогрев завершён за {} мс, сервис готов", System.currentTimeMillis() - startedMs);
+    }
+
+    /** false — поток прерван при остановке приложения */
+    private boolean step(Phase stepPhase, Runnable action) {
+        phase = stepPhase;
+        while (true) {
+            try {
+                long stepStartedMs = System.currentTimeMillis();
+                action.run();
+                log.info("🔥 Прогрев: {} за {} мс", stepPhase, System.currentTimeMillis() - stepStartedMs);
+                return true;
+            } catch (Exception e) {
+                log.warn("⚠️ Прогрев: {} не удался, повтор через {} с: {}",
+                        stepPhase, RETRY_DELAY.toSeconds(), e.getMessage());
+            }
+            try {
+                Thread.sleep(RETRY_DELAY.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.example.lowflightzone.services;
 
+import com.example.lowflightzone.dao.FlightSubscriptionDao;
 import com.example.lowflightzone.dao.UserDao;
 import com.example.lowflightzone.dto.AuthRequest;
+import com.example.lowflightzone.dto.CursorPage;
+import com.example.lowflightzone.dto.PageCursor;
 import com.example.lowflightzone.dto.UserDto;
 import com.example.lowflightzone.entity.FlightSubscription;
 import com.example.lowflightzone.entity.User;
@@ -16,6 +19,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,22 +29,32 @@ public class UserService {
     private final UserDao userDao;
     private final PasswordEncoder passwordEncoder;
     private final FlightSubscriptionRepository subscriptionRepository;
+    private final FlightSubscriptionDao subscriptionDao;
     private final FlightSubscriptionService subscriptionService;
 
     @Autowired
     public UserService(UserDao userDao, UserRepository userRepository, FlightSubscriptionRepository subscriptionRepository,
-                       FlightSubscriptionService subscriptionService, PasswordEncoder passwordEncoder) {
+                       FlightSubscriptionDao subscriptionDao, FlightSubscriptionService subscriptionService,
+                       PasswordEncoder passwordEncoder) {
         this.userDao = userDao;
         this.subscriptionRepository = subscriptionRepository;
+        this.subscriptionDao = subscriptionDao;
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.subscriptionService = subscriptionService;
     }
 
-    public List<UserDto> getAllUsers() {
-        return userDao.findAll().stream()
-                .map(this::convertToDto)
-                .collect(Collectors.toList());
+    public CursorPage<UserDto> getAllUsers(String cursorToken, Integer limit) {
+        int pageSize = PageCursor.normalizeLimit(limit);
+        PageCursor cursor = PageCursor.decode(cursorToken);
+
+        List<User> rows = userDao.findPage(cursor != null ? cursor.getId() : null, pageSize + 1);
+        Map<Integer, Integer> subscriptionCounts = subscriptionDao.countActiveByUserIds(rows.stream()
+                .map(User::getId)
+                .collect(Collectors.toList()));
+        return CursorPage.of(rows, pageSize,
+                user -> convertToDto(user, subscriptionCounts.getOrDefault(user.getId(), 0)),
+                user -> PageCursor.of(null, user.getId()));
     }
 
     public UserDto getUserById(Integer id) {
@@ -147,6 +161,10 @@ public class UserService {
     }
 
     private UserDto convertToDto(User user) {
+        return convertToDto(user, user.getId() != null ? subscriptionDao.countActiveByUserId(user.getId()) : 0);
+    }
+
+    private UserDto convertToDto(User user, int subscriptionCount) {
         UserDto dto = new UserDto();
         dto.setId(user.getId());
         dto.setEmail(user.getEmail());
@@ -156,15 +174,8 @@ public class UserService {
         dto.setDeviceToken(user.getDeviceToken());
         dto.setCreatedAt(user.getCreatedAt());
 
-        // ✅ Считаем только активные подписки пользователя
-        if (user.getSubscriptions() != null) {
-            long activeCount = user.getSubscriptions().stream()
-                    .filter(s -> s.getStatus() == FlightSubscription.SubscriptionStatus.ACTIVE)
-                    .count();
-            dto.setSubscriptionCount((int) activeCount);
-        } else {
-            dto.setSubscriptionCount(0);
-        }
+        // ✅ Только активные подписки пользователя — счётчик агрегатом из БД
+        dto.setSubscriptionCount(subscriptionCount);
 
         return dto;
     }
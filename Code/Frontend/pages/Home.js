@@ -61,7 +61,7 @@ const Home = () => {
             const response = await api.get(
                 `/flights/search?query=${encodeURIComponent(searchQuery)}&userEmail=${encodeURIComponent(currentUser.email)}`
             );
-            const flights = Array.isArray(response.data) ? response.data : [];
+            const flights = Array.isArray(response.data?.items) ? response.data.items : [];
 
             const wrapped = flights.map((f) => ({
                 id: f.id,
@@ -1,10 +1,13 @@
 import React, { useEffect, useState } from "react";
 import api from "../services/api";
+import { flightsService } from "../services/flights";
 import { useAuth } from "../context/AuthContext";
 import { useNavigate } from "react-router-dom";
 import airplaneImage from "../assets/plane.png";
 import "../styles/MyFlights.css";
 
+const BATCH_SIZE = 500;
+
 const MyFlights = () => {
     const { currentUser } = useAuth();
     const [flights, setFlights] = useState([]);
@@ -21,22 +24,26 @@ const MyFlights = () => {
     const loadSubscribedFlights = async () => {
         try {
             setLoading(true);
-            const res = await api.get(`/api/subscriptions/user/${currentUser.email}`);
-            const subscriptions = res.data || [];
+            // Подписки приходят страницами — идём по nextCursor до конца
+            const subscriptions = [];
+            let cursor = null;
+            do {
+                const res = await api.get(`/api/subscriptions/user/${currentUser.email}`, {
+                    params: cursor ? { cursor } : {}
+                });
+                subscriptions.push(...(res.data?.items || []));
+                cursor = res.data?.nextCursor || null;
+            } while (cursor);
 
-            const flightsFull = await Promise.all(
-                subscriptions.map(async (sub) => {
-                    try {
-                        const flightRes = await api.get(`/flights/${sub.flight.id}`);
-                        return { ...flightRes.data, subscribed: true };
-                    } catch (e) {
-                        console.warn("Ошибка загрузки данных рейса:", e);
-                        return null;
-                    }
-                })
-            );
+            // Актуальные данные рейсов — пакетом, по BATCH_SIZE id за запрос
+            const ids = subscriptions.filter((sub) => sub?.flight).map((sub) => sub.flight.id);
+            const flightsFull = [];
+            for (let from = 0; from < ids.length; from += BATCH_SIZE) {
+                const flightsRes = await flightsService.batch(ids.slice(from, from + BATCH_SIZE));
+                flightsFull.push(...(flightsRes.data || []).map((flight) => ({ ...flight, subscribed: true })));
+            }
 
-            setFlights(flightsFull.filter(Boolean));
+            setFlights(flightsFull);
         } catch (err) {
             console.error("Ошибка загрузки подписок:", err);
             setError("Не удалось загрузить подписки");
@@ -2,5 +2,8 @@ import api from "./api";
 
 export const flightsService = {
     getById: (id) => api.get(`/flights/${id}`),
-    search: (query) => api.get(`/flights/search?query=${encodeURIComponent(query)}`)
+    // Несколько рейсов одним запросом (до 500 id), в порядке ids; просмотры не записываются
+    batch: (ids) => api.get(`/flights/batch?ids=${ids.join(",")}`),
+    search: (query) => api.get(`/flights/search?query=${encodeURIComponent(query)}`),
+    suggest: (prefix) => api.get(`/flights/suggest?prefix=${encodeURIComponent(prefix)}`)
 };